@@ -0,0 +1,80 @@
+package dna;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import dna.export.ExportService;
+import dna.export.ExportSetting;
+
+/**
+ * Command-line network export without the graphical user interface. Usage:
+ *
+ * <pre>
+ * java -jar dna.jar export [-type sqlite|mysql] [-login user] [-password pw] database settings.properties ...
+ * </pre>
+ *
+ * The database is read once, and one network (or network sequence) is exported per settings file; the
+ * exports run in parallel and share their intermediate results. See
+ * {@link ExportService} for the keys of the settings files.
+ */
+public class BatchExport {
+
+	public static void main(String[] args) {
+		System.exit(run(args));
+	}
+
+	/**
+	 * Run the export.
+	 *
+	 * @param args  The command-line arguments (without the leading "export").
+	 * @return      The exit status: 0 if all files were written, 1 otherwise.
+	 */
+	public static int run(String[] args) {
+		String type = "sqlite";
+		String login = "";
+		String password = "";
+		String database = null;
+		ArrayList<File> settingFiles = new ArrayList<File>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-type") && i + 1 < args.length) {
+				type = args[++i];
+			} else if (args[i].equals("-login") && i + 1 < args.length) {
+				login = args[++i];
+			} else if (args[i].equals("-password") && i + 1 < args.length) {
+				password = args[++i];
+			} else if (database == null) {
+				database = args[i];
+			} else {
+				settingFiles.add(new File(args[i]));
+			}
+		}
+		if (database == null || settingFiles.size() == 0) {
+			System.err.println("Usage: export [-type sqlite|mysql] [-login user] [-password pw] database settings.properties ...");
+			return 1;
+		}
+
+		ExportService service = new ExportService(type, database, login, password);
+		ArrayList<ExportSetting> exportSettings = new ArrayList<ExportSetting>();
+		for (int i = 0; i < settingFiles.size(); i++) {
+			try {
+				exportSettings.add(service.readSetting(settingFiles.get(i)));
+			} catch (IOException e) {
+				System.err.println("Could not read export settings: " + e.getMessage());
+				return 1;
+			}
+		}
+		int[] counts = service.exportBatch(exportSettings);
+		int status = 0;
+		for (int i = 0; i < exportSettings.size(); i++) {
+			int count = counts[i];
+			if (count == 0) {
+				System.err.println("Nothing was exported for " + settingFiles.get(i) + ".");
+				status = 1;
+			} else {
+				System.out.println(settingFiles.get(i) + ": " + count + " file(s) written.");
+			}
+		}
+		return status;
+	}
+}
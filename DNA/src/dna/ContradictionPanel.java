@@ -8,6 +8,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.regex.Matcher;
@@ -27,7 +28,6 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeSelectionModel;
 
-import dna.dataStructures.Statement;
 
 public class ContradictionPanel extends JPanel {
 	private static final long serialVersionUID = 1L;
@@ -286,18 +286,18 @@ public class ContradictionPanel extends JPanel {
 		String var2 = (String) filterComboBoxVar2.getSelectedItem();
 		String varBoolean = (String) filterComboBoxBoolean.getSelectedItem();
 
-		// get list of statement IDs 
+		// get list of statement IDs of the statement type from the bitmap index
 		ArrayList<Integer> ids = new ArrayList<Integer>();
-		for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-			ids.add(Dna.data.getStatements().get(i).getId());
+		BitSet ofType = Dna.data.getStatementIndex().getStatementType(statTypeId);
+		for (int id = ofType.nextSetBit(0); id >= 0; id = ofType.nextSetBit(id + 1)) {
+			ids.add(id);
 		}
 
 		// get List of actors:
 		ArrayList<String> actors = new ArrayList<String>();
-		ArrayList<Statement> statements = Dna.data.getStatementsByStatementTypeId(statTypeId);
 		//String[] actors = new String[statements.size()];
-		for (int i = 0; i < statements.size(); i++) {
-			String a = (String) Dna.data.getStatements().get(i).getValues().get(var1);
+		for (int j : ids) {
+			String a = (String) Dna.data.getStatement(j).getValues().get(var1);
 			if (!actors.contains(a)) {
 				actors.add(a);
 			}
@@ -5,15 +5,17 @@ import dna.dataStructures.*;
 import java.awt.Color;
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 
 import javax.swing.ImageIcon;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 public class Dna {
 	public static Data data = new Data();
 	public static Dna dna;
 	public Gui gui;
 	public SqlConnection sql;
+	WriteQueue writeQueue;  // writes the edits of the GUI to the database in the background
 	public String version, date;
 	PrintStream console;
 	
@@ -29,19 +31,92 @@ public class Dna {
 	}
 	
 	public static void main (String[] args) {
+		if (args.length > 0 && args[0].equals("export")) {  // headless network export
+			String[] exportArgs = new String[args.length - 1];
+			System.arraycopy(args, 1, exportArgs, 0, exportArgs.length);
+			System.exit(BatchExport.run(exportArgs));
+		}
 		dna = new Dna();
 	}
 
+	/**
+	 * @return  The write queue of the current database connection; it is created on first use.
+	 */
+	public WriteQueue getWriteQueue() {
+		if (writeQueue == null) {
+			writeQueue = new WriteQueue(sql);
+			writeQueue.setFailureListener(new WriteQueue.FailureListener() {
+				public void writeFailed(final String description, final Exception e) {
+					e.printStackTrace();
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							JOptionPane.showMessageDialog(gui, "A change could not be saved in the database: " 
+									+ description + "\n" + e.getMessage() + "\nPlease reload your file.", 
+									"Database error", JOptionPane.ERROR_MESSAGE);
+						}
+					});
+				}
+			});
+		}
+		return writeQueue;
+	}
+	
+	/**
+	 * Wait until the queued changes are saved in the database, for example before the database is queried
+	 * for something that the user may just have changed.
+	 */
+	public void flushWrites() {
+		if (writeQueue != null) {
+			writeQueue.flush();
+		}
+	}
+	
+	/**
+	 * Wait until all changes are saved in the database, then close the write queue and the connection.
+	 */
+	public void closeConnection() {
+		if (writeQueue != null) {
+			writeQueue.close();
+			writeQueue = null;
+		}
+		sql.closeConnection();
+	}
+
 	public void addDocument(Document document) {
 		gui.documentPanel.setRowSorterEnabled(false);
 		gui.documentPanel.documentContainer.addDocument(document);
 		gui.documentPanel.setRowSorterEnabled(true);
-		sql.upsertDocument(document);
+		Document copy = document.copy();
+		getWriteQueue().submit(null, "add document " + document.getId(), c -> c.upsertDocument(copy));
+	}
+	
+	/**
+	 * Save the changed metadata of a document.
+	 * 
+	 * @param document  The document.
+	 */
+	public void updateDocument(Document document) {
+		Document copy = document.copy();
+		getWriteQueue().submit("document " + document.getId(), "document " + document.getId(), c -> c.upsertDocument(copy));
+	}
+	
+	/**
+	 * Save new documents, for example from an import, and wait until they are in the database.
+	 * 
+	 * @param documents  The documents, already added to the data.
+	 */
+	public void saveDocuments(ArrayList<Document> documents) {
+		ArrayList<Document> copies = new ArrayList<Document>();
+		for (int i = 0; i < documents.size(); i++) {
+			copies.add(documents.get(i).copy());
+		}
+		getWriteQueue().submit(null, "add " + copies.size() + " documents", c -> c.insertDocuments(copies));
+		writeQueue.flush();
 	}
 	
 	public void removeDocument(int documentId) {
 		Dna.data.removeDocument(documentId);
-		sql.removeDocument(documentId);
+		getWriteQueue().submit(null, "remove document " + documentId, c -> c.removeDocument(documentId));
 	}
 	
 	public void removeDocuments(int[] documentRows) {
@@ -59,58 +134,98 @@ public class Dna {
 		Dna.data.removeDocuments(docIds, modelIndices);
 		
 		// remove documents in SQL database
-		sql.removeDocuments(docIds);
+		getWriteQueue().submit(null, "remove " + docIds.size() + " documents", c -> c.removeDocuments(docIds));
 	}
 	
 	public void removeStatement(int statementId) {
 		gui.rightPanel.statementPanel.ssc.removeStatement(statementId);
-		sql.removeStatement(statementId);
+		getWriteQueue().submit(null, "remove statement " + statementId, c -> c.removeStatement(statementId));
 	}
 	
 	public void addStatement(Statement statement) {
 		gui.rightPanel.statementPanel.setRowSorterEnabled(false);
 		gui.rightPanel.statementPanel.ssc.addStatement(statement);
 		gui.rightPanel.statementPanel.setRowSorterEnabled(true);
-		int statementTypeId = statement.getStatementTypeId();
-		LinkedHashMap<String, String> map = data.getStatementTypeById(statementTypeId).getVariables();
-		sql.addStatement(statement, map);
+		Statement copy = statement.copy();
+		getWriteQueue().submit(null, "add statement " + statement.getId(), c -> c.addStatement(copy));
 	}
 	
-	public void updateVariable(int statementId, int statementTypeId, Object content, String variable) {
-		StatementType st = data.getStatementTypeById(statementTypeId);
-		String dataType = st.getVariables().get(variable);
-		try {
-			sql.upsertVariableContent(content, statementId, variable, statementTypeId, dataType);
-			Dna.data.getStatement(statementId).getValues().put(variable, content);
-		} catch (Exception e) {
-			e.printStackTrace();
+	/**
+	 * Save new statements, for example from an import, and wait until they are in the database.
+	 * 
+	 * @param statements  The statements, already added to the data.
+	 */
+	public void saveStatements(ArrayList<Statement> statements) {
+		ArrayList<Statement> copies = new ArrayList<Statement>();
+		for (int i = 0; i < statements.size(); i++) {
+			copies.add(statements.get(i).copy());
 		}
+		getWriteQueue().submit(null, "add " + copies.size() + " statements", c -> c.addStatements(copies));
+		writeQueue.flush();
+	}
+	
+	public void updateVariable(int statementId, int statementTypeId, Object content, String variable) {
+		Statement statement = Dna.data.getStatement(statementId);
+		Dna.data.statements.update(statement, () -> statement.getValues().put(variable, content));  // keeps the indexes up to date
+		getWriteQueue().submit("variable " + statementId + " " + variable, "statement " + statementId + ", " + variable, 
+				c -> c.upsertVariableContent(content, statementId, variable, statementTypeId));
 	}
 	
 	public void addCoder(Coder coder) {
 		data.addCoder(coder);
-		sql.addCoder(coder);
+		Coder copy = coder.copy();
+		getWriteQueue().submit(null, "add coder " + coder.getId(), c -> c.addCoder(copy));
 	}
 	
 	public void replaceCoder(Coder coder) {
 		data.replaceCoder(coder);
-		sql.upsertCoder(coder);
-		
+		Coder copy = coder.copy();
+		getWriteQueue().submit("coder " + coder.getId(), "coder " + coder.getId(), c -> c.upsertCoder(copy));
+	}
+	
+	public void removeCoder(int id) {
+		data.removeCoder(id);
+		getWriteQueue().submit(null, "remove coder " + id, c -> c.removeCoder(id));
+	}
+	
+	/**
+	 * Save the permissions of a coder relation.
+	 * 
+	 * @param cr  The coder relation.
+	 */
+	public void updateCoderRelation(CoderRelation cr) {
+		int id = cr.getId();
+		boolean viewStatements = cr.isViewStatements();
+		boolean editStatements = cr.isEditStatements();
+		boolean viewDocuments = cr.isViewDocuments();
+		boolean editDocuments = cr.isEditDocuments();
+		getWriteQueue().submit("coder relation " + id, "coder relation " + id, c -> {
+			c.updateCoderRelationViewStatements(id, viewStatements);
+			c.updateCoderRelationEditStatements(id, editStatements);
+			c.updateCoderRelationViewDocuments(id, viewDocuments);
+			c.updateCoderRelationEditDocuments(id, editDocuments);
+		});
+	}
+	
+	public void setSetting(String key, String value) {
+		data.getSettings().put(key, value);
+		getWriteQueue().submit("setting " + key, "setting " + key, c -> c.upsertSetting(key, value));
 	}
 	
 	public void setActiveCoder(int activeCoder) {
 		data.setActiveCoder(activeCoder);
-		sql.upsertSetting("activeCoder", (new Integer(activeCoder)).toString());
+		getWriteQueue().submit("setting activeCoder", "active coder", 
+				c -> c.upsertSetting("activeCoder", (new Integer(activeCoder)).toString()));
 	}
 	
 	public void addRegex(Regex regex) {
 		data.addRegex(regex);
-		sql.upsertRegex(regex);
+		getWriteQueue().submit(null, "add regex " + regex.getLabel(), c -> c.upsertRegex(regex));
 	}
 	
 	public void removeRegex(String label) {
 		data.removeRegex(label);
-		sql.removeRegex(label);
+		getWriteQueue().submit(null, "remove regex " + label, c -> c.removeRegex(label));
 	}
 	
 	/**
@@ -120,7 +235,22 @@ public class Dna {
 	 */
 	public void addAttributeVector(AttributeVector av) {
 		data.getAttributes().add(av);
-		sql.upsertAttributeVector(av);
+		AttributeVector copy = av.copy();
+		getWriteQueue().submit(null, "add attribute " + av.getValue(), c -> c.upsertAttributeVector(copy));
+	}
+	
+	/**
+	 * Save new attribute vectors and wait until they are in the database.
+	 * 
+	 * @param al  The attribute vectors, already added to the data.
+	 */
+	public void saveAttributeVectors(ArrayList<AttributeVector> al) {
+		ArrayList<AttributeVector> copies = new ArrayList<AttributeVector>();
+		for (int i = 0; i < al.size(); i++) {
+			copies.add(al.get(i).copy());
+		}
+		getWriteQueue().submit(null, "add " + copies.size() + " attributes", c -> c.insertAttributeVectors(copies));
+		writeQueue.flush();
 	}
 	
 	/**
@@ -131,7 +261,7 @@ public class Dna {
 	public void deleteAttributeVector(int row) {
 		int attributeVectorId = Dna.dna.gui.textPanel.bottomCardPanel.attributePanel.attributeTableModel.get(row).getId();
 		Dna.data.getAttributes().remove(row);
-		sql.deleteAttributeVector(attributeVectorId);
+		getWriteQueue().submit(null, "delete attribute " + attributeVectorId, c -> c.deleteAttributeVector(attributeVectorId));
 	}
 	
 	/**
@@ -142,7 +272,8 @@ public class Dna {
 	 */
 	public void updateAttributeColor(int row, Color color) {
 		data.getAttributes().get(row).setColor(color);
-		sql.updateAttributeColor(data.getAttributes().get(row).getId(), color);
+		int id = data.getAttributes().get(row).getId();
+		getWriteQueue().submit("attribute " + id + " Color", "attribute " + id + ", color", c -> c.updateAttributeColor(id, color));
 	}
 
 	/**
@@ -152,8 +283,10 @@ public class Dna {
 	 * @param value  String containing the value
 	 */
 	public void updateAttributeValue(int row, String value) {
-		data.getAttributes().get(row).setValue(value);
-		sql.updateAttribute(data.getAttributes().get(row).getId(), "Value", value);
+		AttributeVector av = data.getAttributes().get(row);
+		data.attributes.update(av, () -> av.setValue(value));
+		int id = data.getAttributes().get(row).getId();
+		getWriteQueue().submit("attribute " + id + " Value", "attribute " + id + ", value", c -> c.updateAttribute(id, "Value", value));
 	}
 
 	/**
@@ -164,7 +297,8 @@ public class Dna {
 	 */
 	public void updateAttributeType(int row, String type) {
 		data.getAttributes().get(row).setType(type);
-		sql.updateAttribute(data.getAttributes().get(row).getId(), "Type", type);
+		int id = data.getAttributes().get(row).getId();
+		getWriteQueue().submit("attribute " + id + " Type", "attribute " + id + ", type", c -> c.updateAttribute(id, "Type", type));
 	}
 
 	/**
@@ -175,7 +309,8 @@ public class Dna {
 	 */
 	public void updateAttributeAlias(int row, String alias) {
 		data.getAttributes().get(row).setAlias(alias);
-		sql.updateAttribute(data.getAttributes().get(row).getId(), "Alias", alias);
+		int id = data.getAttributes().get(row).getId();
+		getWriteQueue().submit("attribute " + id + " Alias", "attribute " + id + ", alias", c -> c.updateAttribute(id, "Alias", alias));
 	}
 
 	/**
@@ -186,12 +321,13 @@ public class Dna {
 	 */
 	public void updateAttributeNotes(int row, String notes) {
 		data.getAttributes().get(row).setNotes(notes);
-		sql.updateAttribute(data.getAttributes().get(row).getId(), "Notes", notes);
+		int id = data.getAttributes().get(row).getId();
+		getWriteQueue().submit("attribute " + id + " Notes", "attribute " + id + ", notes", c -> c.updateAttribute(id, "Notes", notes));
 	}
 	
 	public void closeDatabase() {
 		data = new Data();
-		sql.closeConnection();
+		closeConnection();
 		sql = null;
 		Dna.dna.gui.leftPanel.coderPanel.clear();
 		Dna.dna.gui.statusBar.resetLabel();
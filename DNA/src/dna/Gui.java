@@ -63,7 +63,7 @@ public class Gui extends JFrame {
 		this.addWindowListener(new WindowAdapter() {
 			public void windowClosing(WindowEvent e) {
 				if (Dna.dna.sql != null) {
-					Dna.dna.sql.closeConnection();
+					Dna.dna.closeConnection();
 				}
 				dispose();
 			}
@@ -300,7 +300,7 @@ public class Gui extends JFrame {
 			exit.addActionListener( new ActionListener() {
 				public void actionPerformed(ActionEvent e) {
 					if (Dna.dna.sql != null) {
-						Dna.dna.sql.closeConnection();
+						Dna.dna.closeConnection();
 					}
 					dispose();
 				}
@@ -455,8 +455,7 @@ public class Gui extends JFrame {
 			settingsMenu.add(colorCoderButton);
 			colorStatementTypeButton.addActionListener(new ActionListener() {
 				public void actionPerformed(ActionEvent e) {
-					Dna.data.getSettings().put("statementColor", "statementType");
-					Dna.dna.sql.upsertSetting("statementColor", "statementType");
+					Dna.dna.setSetting("statementColor", "statementType");
 					colorStatementTypeButton.setIcon(tickIcon);
 					colorCoderButton.setIcon(null);
 					Dna.dna.gui.rightPanel.statementPanel.statementTable.updateUI();
@@ -465,8 +464,7 @@ public class Gui extends JFrame {
 			});
 			colorCoderButton.addActionListener(new ActionListener() {
 				public void actionPerformed(ActionEvent e) {
-					Dna.data.getSettings().put("statementColor", "coder");
-					Dna.dna.sql.upsertSetting("statementColor", "coder");
+					Dna.dna.setSetting("statementColor", "coder");
 					colorStatementTypeButton.setIcon(null);
 					colorCoderButton.setIcon(tickIcon);
 					Dna.dna.gui.rightPanel.statementPanel.statementTable.updateUI();
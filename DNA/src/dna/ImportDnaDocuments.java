@@ -305,7 +305,7 @@ public class ImportDnaDocuments extends JDialog {
 			}
 			progressMonitor.setNote("(1/4) Saving documents to database...");
 			progressMonitor.setProgress(1);
-			Dna.dna.sql.insertDocuments(newDocs);
+			Dna.dna.saveDocuments(newDocs);
 			
 			// import statements for this document
 			progressMonitor.setNote("(2/4) Reading statements...");
@@ -328,7 +328,7 @@ public class ImportDnaDocuments extends JDialog {
 			Dna.dna.gui.rightPanel.statementPanel.setRowSorterEnabled(true);
 			progressMonitor.setNote("(3/4) Saving statements to database...");
 			progressMonitor.setProgress(3);
-			Dna.dna.sql.addStatements(newStatements);
+			Dna.dna.saveStatements(newStatements);
 			progressMonitor.setProgress(4);
 			Dna.dna.gui.textPanel.bottomCardPanel.attributePanel.startMissingThread();  // add attribute vectors
 		}
@@ -550,9 +550,9 @@ public class ImportOldDNA extends JDialog {
 				e.printStackTrace();
 			}
 			progressMonitor.setProgress(1);
-			Dna.dna.sql.insertDocuments(newDocs);
+			Dna.dna.saveDocuments(newDocs);
 			progressMonitor.setProgress(2);
-			Dna.dna.sql.addStatements(newStatements);
+			Dna.dna.saveStatements(newStatements);
 			progressMonitor.setProgress(3);
 			try {
 				Thread.sleep(1000);
@@ -1,6 +1,7 @@
 package dna;
 
 import dna.dataStructures.*;
+import dna.export.NetworkCreator;
 
 import javax.swing.ImageIcon;
 
@@ -1476,27 +1477,8 @@ public class NetworkExporter extends JDialog {
 	 * @return		Two-dimensional array with the output matrix.
 	 */
 	public static double[][] multiply(double[][] mat1, double[][] mat2) {
-        int aRows = mat1.length;
-        int aColumns = mat1[0].length;
-        int bRows = mat2.length;
-        int bColumns = mat2[0].length;
-        
-        if (aColumns != bRows) {
-            throw new IllegalArgumentException("A:Rows: " + aColumns + " did not match B:Columns " + bRows + ".");
-        }
-        
-        double[][] mat3 = new double[aRows][bColumns];
-        
-        for (int i = 0; i < aRows; i++) { // aRow
-            for (int j = 0; j < bColumns; j++) { // bColumn
-                for (int k = 0; k < aColumns; k++) { // aColumn
-                    mat3[i][j] += mat1[i][k] * mat2[k][j];
-                }
-            }
-        }
-        
-        return mat3;
-    }
+		return NetworkCreator.multiply(mat1, mat2);
+	}
 	
 	/**
 	 * Transpose a two-dimensional array.
@@ -1505,17 +1487,7 @@ public class NetworkExporter extends JDialog {
 	 * @return		Transposed two-dimensional array.
 	 */
 	public static double[][] transpose(double[][] mat) {
-	    int m = mat.length;
-	    int n = mat[0].length;
-
-	    double[][] t = new double[n][m];
-
-	    for(int i = 0; i < n; i++) {
-	    	for(int j = 0; j < m; j++) {
-	            t[i][j] = mat[j][i];
-	        }
-	    }
-	    return t;
+		return NetworkCreator.transpose(mat);
 	}
 
 	/**
@@ -1526,28 +1498,8 @@ public class NetworkExporter extends JDialog {
 	 * @return		Two-dimensional array with the output matrix.
 	 */
 	public static double[][] add(double[][] mat1, double[][] mat2) {
-        int aRows = mat1.length;
-        int aColumns = mat1[0].length;
-        int bRows = mat2.length;
-        int bColumns = mat2[0].length;
-
-        if (aRows != bRows) {
-            throw new IllegalArgumentException("Matrix dimensions do not match: " + aRows + " vs. " + bRows + " rows.");
-        }
-        if (aColumns != bColumns) {
-            throw new IllegalArgumentException("Matrix dimensions do not match: " + aColumns + " vs. " + bColumns + " columns.");
-        }
-        
-        double[][] mat3 = new double[aRows][aColumns];
-        
-        for (int i = 0; i < aRows; i++) {
-            for (int j = 0; j < aColumns; j++) {
-                mat3[i][j] = mat1[i][j] + mat2[i][j];
-            }
-        }
-        
-        return mat3;
-    }
+		return NetworkCreator.add(mat1, mat2);
+	}
 	
 	/**
 	 * This function accepts a list of statements that should be included in the network export, 
@@ -1658,7 +1610,7 @@ public class NetworkExporter extends JDialog {
 		double[][] cooc = new double[names1.size()][names1.size()];
 		for (int i = 0; i < qualifierValues.size(); i++) { // compute one-mode projections for each agreement level, then add up
 			double[][] mat = affiliation(statements, variable1, variable2, qualifier).getMatrix().getMatrix();
-			mat = multiply(mat, transpose(mat));
+			mat = NetworkCreator.multiplyTranspose(mat);
 			cooc = add(cooc, mat);
 		}
 		for (int i = 0; i < names1.size(); i++) {
@@ -1162,6 +1162,7 @@ public class NewDatabaseDialog extends JDialog {
 					Dna.dna.sql.upsertSetting("date", Dna.dna.date);
 					
 					Dna.dna.setActiveCoder(Dna.data.getCoders().get(0).getId());
+					Dna.dna.flushWrites();  // before writing through the connection directly
 					for (int i = 0; i < Dna.data.getCoders().size(); i++) {
 						Dna.dna.sql.addCoder(Dna.data.getCoders().get(i));
 					}
@@ -260,6 +260,16 @@ public class OpenDatabaseDialog extends JDialog {
 	}
 	
 	public void loadDataAndDispose() {
+		if (Dna.dna.sql.upgradeSchema() == false) {  // the writes rely on the keys created by the migrations
+			JOptionPane.showMessageDialog(Dna.dna.gui, "The database could not be upgraded to the current version "
+					+ "of DNA and is not opened.");
+			Dna.dna.sql.closeConnection();
+			Dna.dna.sql = null;
+			return;
+		}
+		if (Dna.dna.sql.getTextSizeEstimate() > SqlConnection.LAZY_TEXTS) {  // keep only the texts in use in memory
+			Dna.dna.sql.setLazyTexts(true, SqlConnection.TEXT_CACHE_SIZE);
+		}
 		Dna.data = Dna.dna.sql.getAllData();
 		Dna.dna.gui.rightPanel.rm.regexListModel.updateList();
 		Dna.dna.gui.rightPanel.rm.setFieldsEnabled(true);
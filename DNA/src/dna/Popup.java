@@ -202,8 +202,7 @@ public class Popup extends JDialog {
 			JLabel label = new JLabel(key, JLabel.TRAILING);
 			if (value.equals("short text")) {
 				String val = (String) Dna.data.getStatement(statementId).getValues().get(key);
-				int attributeIndex = Dna.data.getAttributeIndex(val, key, statementTypeId);
-				AttributeVector entry = Dna.data.getAttributes().get(attributeIndex);
+				AttributeVector entry = Dna.data.getAttribute(val, key, statementTypeId);
 				AttributeVector[] entriesArray = Dna.data.getAttributes(key, statementTypeId);
 				JComboBox<AttributeVector> box = new JComboBox<AttributeVector>(entriesArray);
 				box.setRenderer(new AttributeComboBoxRenderer());
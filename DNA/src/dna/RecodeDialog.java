@@ -348,7 +348,7 @@ public class RecodeDialog extends JDialog {
 	        			} else if (target.equals("Notes")) {
 	        				Dna.data.getDocument(document.getId()).setNotes(result);
 	        			}
-	        			Dna.dna.sql.upsertDocument(Dna.data.getDocument(document.getId()));
+	        			Dna.dna.updateDocument(Dna.data.getDocument(document.getId()));
 	        		}
 	        	}
 	        	if (onlyTable == true) {
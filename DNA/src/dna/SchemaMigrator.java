@@ -0,0 +1,288 @@
+package dna;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/**
+ * Upgrades the tables of an SQLite or MySQL database in place to the current schema version. The version of
+ * a database is stored in the SETTINGS table under the property "schemaVersion"; databases without it have
+ * version 0, which is the schema created by {@link SqlConnection#createDataStructure()} before versions
+ * were introduced. Each version has a migration in {@link #upgrade(int)}, and the migrations from the
+ * version of the database up to {@link #SCHEMA_VERSION} are executed in order, each one together with the
+ * new version number in its own transaction.
+ *
+ * MySQL commits schema changes immediately, so a failed migration may be partly applied there. The
+ * migrations therefore check what exists before they change it, and a failed migration can simply be
+ * repeated the next time the database is opened.
+ */
+public class SchemaMigrator {
+	public static final int SCHEMA_VERSION = 2;
+	public static final String VERSION_SETTING = "schemaVersion";
+	static final String[] DATA_TABLES = new String[] {"DATABOOLEAN", "DATAINTEGER", "DATASHORTTEXT", "DATALONGTEXT"};
+	SqlConnection sql;
+
+	/**
+	 * @param sql  The connection to the database to upgrade.
+	 */
+	public SchemaMigrator(SqlConnection sql) {
+		this.sql = sql;
+	}
+
+	/**
+	 * @return  The schema version of the database, 0 if it has none.
+	 * @throws SQLException
+	 */
+	public int getVersion() throws SQLException {
+		Object version = sql.executeQueryForObject("SELECT Value FROM SETTINGS WHERE Property = '" + VERSION_SETTING + "'");
+		return version == null ? 0 : Integer.parseInt(version.toString());
+	}
+
+	/**
+	 * Execute the migrations from the version of the database to the current version.
+	 *
+	 * @return  The schema version of the database afterwards.
+	 * @throws SQLException  If a migration fails; it is rolled back as far as the database allows.
+	 */
+	public int migrate() throws SQLException {
+		int version = getVersion();
+		if (version > SCHEMA_VERSION) {
+			System.err.println("The database has schema version " + version + ", which is newer than this version of DNA ("
+					+ SCHEMA_VERSION + "). It is used without changes.");
+			return version;
+		}
+		boolean autoCommit = sql.connection.getAutoCommit();
+		try {
+			while (version < SCHEMA_VERSION) {
+				long time = System.currentTimeMillis();
+				sql.connection.setAutoCommit(false);
+				upgrade(version + 1);
+				PreparedStatement setVersion = sql.connection.prepareStatement(sql.upsertInto("SETTINGS",
+						new String[] {"Property"}, "Property", "Value"));
+				setVersion.setString(1, VERSION_SETTING);
+				setVersion.setString(2, String.valueOf(version + 1));
+				setVersion.executeUpdate();
+				setVersion.close();
+				sql.connection.commit();
+				version++;
+				System.out.println("Upgraded the database to schema version " + version + " in "
+						+ (System.currentTimeMillis() - time) + " ms.");
+			}
+		} catch (SQLException e) {
+			try {
+				sql.connection.rollback();
+			} catch (SQLException e1) {
+				e1.printStackTrace();
+			}
+			throw e;
+		} finally {
+			sql.connection.setAutoCommit(autoCommit);
+		}
+		return version;
+	}
+
+	/**
+	 * Apply the changes of a schema version to a database of the previous version.
+	 *
+	 * @param version  The new version.
+	 * @throws SQLException
+	 */
+	void upgrade(int version) throws SQLException {
+		switch (version) {
+		case 1:
+			// indexes for the look-ups by statement, document and variable, and the unique keys that the native
+			// upserts of SqlConnection need; files from old versions may lack the latter and contain duplicates
+			if (!hasUniqueKey("VARIABLES", "StatementTypeId", "Variable")) {
+				mergeDuplicateVariables();  // before the data tables, which may get duplicates from it
+				removeDuplicates("VARIABLES", "StatementTypeId", "Variable");
+				createIndex("VARIABLES", "VARIABLES_STATEMENTTYPE", true, "StatementTypeId", "Variable");
+			}
+			for (int i = 0; i < DATA_TABLES.length; i++) {
+				if (!hasUniqueKey(DATA_TABLES[i], "StatementId", "VariableId")) {
+					removeDuplicates(DATA_TABLES[i], "StatementId", "VariableId");
+					createIndex(DATA_TABLES[i], DATA_TABLES[i] + "_STATEMENT", true, "StatementId", "VariableId");
+				}
+				createIndex(DATA_TABLES[i], DATA_TABLES[i] + "_VARIABLE", false, "VariableId");
+			}
+			createIndex("STATEMENTS", "STATEMENTS_DOCUMENT", false, "DocumentId");
+			if (!hasUniqueKey("CODERPERMISSIONS", "Coder", "Type")) {
+				removeDuplicates("CODERPERMISSIONS", "Coder", "Type");
+				createIndex("CODERPERMISSIONS", "CODERPERMISSIONS_CODER", true, "Coder", "Type");
+			}
+			createIndex("ATTRIBUTES", "ATTRIBUTES_VARIABLE", false, "VariableId",
+					sql.dbtype.equals("mysql") ? "Value(100)" : "Value");  // MySQL can only index the beginning of a TEXT
+			break;
+		case 2:
+			// the full-text index of the documents, which only exists in SQLite
+			if (sql.dbtype.equals("sqlite")) {
+				createFullTextIndex();
+			}
+			break;
+		default:
+			throw new SQLException("There is no migration to schema version " + version + ".");
+		}
+	}
+
+	/**
+	 * @return  The indexes of a table, as index name -> column names; only unique indexes if requested.
+	 */
+	private HashMap<String, HashSet<String>> getIndexes(String table, boolean unique) throws SQLException {
+		HashMap<String, HashSet<String>> indexes = new HashMap<String, HashSet<String>>();
+		DatabaseMetaData metaData = sql.connection.getMetaData();
+		ResultSet result = metaData.getIndexInfo(sql.connection.getCatalog(), null, table, unique, false);
+		while (result.next()) {
+			String name = result.getString("INDEX_NAME");
+			String column = result.getString("COLUMN_NAME");
+			if (name == null || column == null || (unique == true && result.getBoolean("NON_UNIQUE") == true)) {
+				continue;  // table statistics, or a driver that ignores the unique argument
+			}
+			HashSet<String> columns = indexes.get(name);
+			if (columns == null) {
+				columns = new HashSet<String>();
+				indexes.put(name, columns);
+			}
+			columns.add(column.toLowerCase());
+		}
+		result.close();
+		return indexes;
+	}
+
+	/**
+	 * @return  True if a primary key or unique index of a table consists of exactly the given columns, in any order.
+	 */
+	boolean hasUniqueKey(String table, String... columns) throws SQLException {
+		HashSet<String> key = new HashSet<String>();
+		for (int i = 0; i < columns.length; i++) {
+			key.add(columns[i].toLowerCase());
+		}
+		Iterator<HashSet<String>> it = getIndexes(table, true).values().iterator();
+		while (it.hasNext()) {
+			if (it.next().equals(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Create an index unless an index with the same name exists.
+	 *
+	 * @param columns  The columns, with a prefix length where MySQL needs one.
+	 */
+	void createIndex(String table, String name, boolean unique, String... columns) throws SQLException {
+		if (getIndexes(table, false).containsKey(name)) {
+			return;
+		}
+		String list = Arrays.toString(columns);
+		execute("CREATE " + (unique == true ? "UNIQUE " : "") + "INDEX " + name + " ON " + table
+				+ " (" + list.substring(1, list.length() - 1) + ")");
+	}
+
+	/**
+	 * Delete the rows of a table that have the same values in the given columns as a row with a higher ID.
+	 */
+	void removeDuplicates(String table, String column1, String column2) throws SQLException {
+		int removed;
+		if (sql.dbtype.equals("mysql")) {
+			removed = execute("DELETE t1 FROM " + table + " t1 JOIN " + table + " t2 ON t1." + column1 + " = t2." + column1
+					+ " AND t1." + column2 + " = t2." + column2 + " AND t1.ID < t2.ID");
+		} else {
+			removed = execute("DELETE FROM " + table + " WHERE ID NOT IN (SELECT MAX(ID) FROM " + table
+					+ " GROUP BY " + column1 + ", " + column2 + ")");
+		}
+		if (removed > 0) {
+			System.err.println("Removed " + removed + " duplicate rows from " + table + ".");
+		}
+	}
+
+	/**
+	 * Create the full-text index of an SQLite database if it does not exist yet. The index is an FTS5 table,
+	 * DOCUMENTSFTS, over the titles and texts of the DOCUMENTS table. It refers to the rows of the DOCUMENTS
+	 * table instead of storing a copy of the texts and is kept in sync with it by triggers. When the index
+	 * is added to an existing file, it is filled with the documents that are already there. If the SQLite 
+	 * library does not support FTS5, the database is used without a full-text index.
+	 */
+	void createFullTextIndex() throws SQLException {
+		boolean exists = sql.hasFullTextIndex();
+		String[] statements = new String[] {
+				"CREATE VIRTUAL TABLE IF NOT EXISTS DOCUMENTSFTS USING fts5(Title, Text, "
+						+ "content='DOCUMENTS', content_rowid='ID')", 
+				// REPLACE INTO deletes the old row without firing the delete trigger, so remove it here
+				"CREATE TRIGGER IF NOT EXISTS DOCUMENTSFTS_BEFORE_INSERT BEFORE INSERT ON DOCUMENTS BEGIN "
+						+ "INSERT INTO DOCUMENTSFTS(DOCUMENTSFTS, rowid, Title, Text) "
+						+ "SELECT 'delete', ID, Title, Text FROM DOCUMENTS WHERE ID = new.ID; END", 
+				"CREATE TRIGGER IF NOT EXISTS DOCUMENTSFTS_INSERT AFTER INSERT ON DOCUMENTS BEGIN "
+						+ "INSERT INTO DOCUMENTSFTS(rowid, Title, Text) VALUES (new.ID, new.Title, new.Text); END", 
+				"CREATE TRIGGER IF NOT EXISTS DOCUMENTSFTS_DELETE AFTER DELETE ON DOCUMENTS BEGIN "
+						+ "INSERT INTO DOCUMENTSFTS(DOCUMENTSFTS, rowid, Title, Text) "
+						+ "VALUES ('delete', old.ID, old.Title, old.Text); END", 
+				"CREATE TRIGGER IF NOT EXISTS DOCUMENTSFTS_UPDATE AFTER UPDATE OF Title, Text ON DOCUMENTS BEGIN "
+						+ "INSERT INTO DOCUMENTSFTS(DOCUMENTSFTS, rowid, Title, Text) "
+						+ "VALUES ('delete', old.ID, old.Title, old.Text); "
+						+ "INSERT INTO DOCUMENTSFTS(rowid, Title, Text) VALUES (new.ID, new.Title, new.Text); END"
+		};
+		Savepoint savepoint = sql.connection.setSavepoint();
+		try {
+			for (int i = 0; i < statements.length; i++) {
+				execute(statements[i]);
+			}
+			if (exists == false) {  // index the documents of an existing file
+				execute("INSERT INTO DOCUMENTSFTS(DOCUMENTSFTS) VALUES ('rebuild')");
+			}
+			sql.connection.releaseSavepoint(savepoint);
+		} catch (SQLException e) {
+			if (e.getMessage() == null || !e.getMessage().contains("fts5")) {
+				throw e;
+			}
+			sql.connection.rollback(savepoint);  // "no such module: fts5"
+			System.err.println("The full-text index could not be created: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Point the values and attributes of duplicate variables to the variable with the same statement type and
+	 * name that has the highest ID, which is the one {@link #removeDuplicates(String, String, String)} keeps.
+	 * If a statement has a value for both, the value of the kept variable is used.
+	 */
+	void mergeDuplicateVariables() throws SQLException {
+		HashMap<Integer, Integer> kept = new HashMap<Integer, Integer>();  // duplicate ID -> ID of the kept variable
+		PreparedStatement query = sql.connection.prepareStatement("SELECT v1.ID, MAX(v2.ID) FROM VARIABLES v1 "
+				+ "JOIN VARIABLES v2 ON v1.StatementTypeId = v2.StatementTypeId AND v1.Variable = v2.Variable "
+				+ "GROUP BY v1.ID HAVING v1.ID < MAX(v2.ID)");
+		ResultSet result = query.executeQuery();
+		while (result.next()) {
+			kept.put(result.getInt(1), result.getInt(2));
+		}
+		result.close();
+		query.close();
+		Iterator<Integer> it = kept.keySet().iterator();
+		while (it.hasNext()) {
+			int duplicate = it.next();
+			int variable = kept.get(duplicate);
+			for (int i = 0; i < DATA_TABLES.length; i++) {
+				// the inner select is wrapped because MySQL cannot read the table it deletes from otherwise
+				execute("DELETE FROM " + DATA_TABLES[i] + " WHERE VariableId = " + duplicate + " AND StatementId IN "
+						+ "(SELECT StatementId FROM (SELECT StatementId FROM " + DATA_TABLES[i] + " WHERE VariableId = " 
+						+ variable + ") k)");
+				execute("UPDATE " + DATA_TABLES[i] + " SET VariableId = " + variable + " WHERE VariableId = " + duplicate);
+			}
+			execute("UPDATE ATTRIBUTES SET VariableId = " + variable + " WHERE VariableId = " + duplicate);
+		}
+		if (kept.size() > 0) {
+			System.err.println("Merged " + kept.size() + " duplicate variables.");
+		}
+	}
+
+	private int execute(String statement) throws SQLException {
+		PreparedStatement preStatement = sql.connection.prepareStatement(statement);
+		int rows = preStatement.executeUpdate();
+		preStatement.close();
+		return rows;
+	}
+}
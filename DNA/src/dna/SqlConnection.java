@@ -5,13 +5,15 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.TreeMap;
+import java.util.List;
 
 import javax.swing.JOptionPane;
 
@@ -24,11 +26,14 @@ import dna.dataStructures.Regex;
 import dna.dataStructures.Statement;
 import dna.dataStructures.StatementLink;
 import dna.dataStructures.StatementType;
+import dna.dataStructures.TextCache;
 
 import static java.lang.Math.toIntExact;
 import java.awt.Color;
 
-public class SqlConnection {
+public class SqlConnection implements TextCache.Loader {
+	public static final long LAZY_TEXTS = 256L << 20;  // estimated text size in bytes above which texts are loaded on demand
+	public static final long TEXT_CACHE_SIZE = 16L << 20;  // characters of the texts loaded on demand kept in memory
 	String dbtype;
 	String dbfile;
 	String login;
@@ -36,6 +41,12 @@ public class SqlConnection {
 	Connection connection = null;
 	PreparedStatement preStatement = null;
 	ResultSet result = null;
+	int batchSize = 1000;
+	boolean lazyTexts = false;
+	boolean collectErrors = false;  // keep database errors in writeError instead of showing them
+	SQLException writeError = null;
+	long textCacheSize = TEXT_CACHE_SIZE;  // characters
+	VariableCache variables = new VariableCache();
 	
 	public SqlConnection(String dbtype, String dbfile, String login, String password) {
 		this.dbtype = dbtype;
@@ -43,10 +54,10 @@ public class SqlConnection {
 		this.login = login;
 		this.password = password;
 		try {
-			if (dbtype == "mysql") {
+			if (dbtype.equals("mysql")) {
 				Class.forName("com.mysql.jdbc.Driver");
 				this.connection = DriverManager.getConnection("jdbc:mysql://" + dbfile, login, password);
-			} else if (dbtype == "sqlite") {
+			} else if (dbtype.equals("sqlite")) {
 				Class.forName("org.sqlite.JDBC");
 				this.connection = DriverManager.getConnection("jdbc:sqlite:" + dbfile);
 			}
@@ -71,12 +82,7 @@ public class SqlConnection {
 	 * @param value  Value corresponding to the property
 	 */
 	public void upsertSetting(String key, String value) {
-		if (dbtype == "sqlite") {
-			executeStatement("INSERT OR REPLACE INTO SETTINGS (Property, Value) VALUES ('" + key + "', '" + value + "')");
-		} else if (dbtype == "mysql") {
-			executeStatement("INSERT INTO SETTINGS (Property, Value) VALUES('" + key + "', '" + value + "') "
-					+ "ON DUPLICATE KEY UPDATE Value = '" + value + "'");
-		}
+		executeStatement(upsertInto("SETTINGS", new String[] {"Property"}, "Property", "Value"), key, value);
 	}
 	
 	/**
@@ -187,10 +193,10 @@ public class SqlConnection {
 		String password = coder.getPassword();
 		HashMap<String, Boolean> permissions = coder.getPermissions();
 		
-		if (dbtype == "sqlite") {
+		if (dbtype.equals("sqlite")) {
 			executeStatement("INSERT OR REPLACE INTO CODERS (ID, Name, Red, Green, Blue, Password) "
 					+ "VALUES (" + id + ", '" + name + "', " + red + ", " + green + ", " + blue + ", '" + password + "')");
-		} else if (dbtype == "mysql") {
+		} else if (dbtype.equals("mysql")) {
 			executeStatement("INSERT INTO CODERS (ID, Name, Red, Green, Blue, Password) "
 					+ "VALUES(" + id + ", '" + name + "', " + red + ", " + green + ", " + blue + ", '" + password + "') "
 					+ "ON DUPLICATE KEY UPDATE Name = '" + name + "', red = " + red + ", green = " + green + ", blue = "
@@ -207,14 +213,8 @@ public class SqlConnection {
     		} else {
     			intValue = 0;
     		}
-    		int permissionId;
-			try {
-				permissionId = (int) executeQueryForObject("SELECT ID from CODERPERMISSIONS WHERE Coder = " + id + " AND Type = '" + key + "'");
-				executeStatement("REPLACE INTO CODERPERMISSIONS(ID, Coder, Type, Permission) "
-    					+ "VALUES (" + permissionId + ", " + id + ", '" + key + "', " + intValue + ")");
-			} catch (SQLException e) {
-				e.printStackTrace();
-			}
+    		executeStatement(upsertInto("CODERPERMISSIONS", new String[] {"Coder", "Type"}, "Coder", "Type", "Permission"), 
+    				id, key, intValue);
     	}
         
         if (permissions.get("viewOthersStatements") == false) {
@@ -258,18 +258,22 @@ public class SqlConnection {
 	 */
 	public void insertDocuments(ArrayList<Document> al) {
 		if (al.size() > 0) {
-			String query = "INSERT INTO DOCUMENTS(ID, Title, Text, Coder, Author, Source, Section, Notes, Type, Date) VALUES ";
-			for (int i = 0; i < al.size(); i++) {
-				query = query + "(" + al.get(i).getId() + ", '" + al.get(i).getTitle().replaceAll("'", "''") + "', '" 
-						+ al.get(i).getText().replaceAll("'", "''") + "', " + al.get(i).getCoder() + ", '" 
-						+ al.get(i).getAuthor().replaceAll("'", "''")  + "', '" + al.get(i).getSource().replaceAll("'", "''")  + "', '" 
-						+ al.get(i).getSection().replaceAll("'", "''") + "', '" + al.get(i).getNotes().replaceAll("'", "''") + "', '" 
-						+ al.get(i).getType().replaceAll("'", "''") + "', " + al.get(i).getDate().getTime() + ")";
-				if (i < al.size() - 1) {
-					query = query + ", ";
+			boolean autoCommit = beginTransaction();
+			try {
+				BatchWriter writer = new BatchWriter("INSERT INTO DOCUMENTS(ID, Title, Text, Coder, Author, Source, Section, "
+						+ "Notes, Type, Date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+				for (int i = 0; i < al.size(); i++) {
+					Document d = al.get(i);
+					writer.add(d.getId(), d.getTitle(), d.getText(), d.getCoder(), d.getAuthor(), d.getSource(), 
+							d.getSection(), d.getNotes(), d.getType(), d.getDate().getTime());
 				}
+				writer.close();
+				commitTransaction(autoCommit);
+			} catch (SQLException e) {
+				rollbackTransaction(e);
+			} finally {
+				endTransaction(autoCommit);
 			}
-			executeStatement(query);
 		}
 	}
 	
@@ -290,33 +294,10 @@ public class SqlConnection {
 		Iterator<String> keyIterator = statementType.getVariables().keySet().iterator();
         while (keyIterator.hasNext()){
     		String key = keyIterator.next();
-    		String value = statementType.getVariables().get(key);
-    		String query = "SELECT ID FROM VARIABLES WHERE Variable = '" + key + "' AND StatementTypeId = " + statementType.getId();
-    		int variableId = -1;
-    		try {
-        		PreparedStatement preStatement = (PreparedStatement) connection.prepareStatement(query);
-        		ResultSet result;
-    			result = preStatement.executeQuery();
-				if (result.next()) {
-					do {
-						variableId = result.getInt(1);
-					} while (result.next());
-				}
-	    		result.close();
-	    		preStatement.close();
-			} catch (SQLException e) {
-				e.printStackTrace();
-			}
-    		
-    		if (variableId == -1) {
-    			executeStatement("INSERT INTO VARIABLES(Variable, DataType, StatementTypeId) VALUES ('"
-        				+ key + "', '" + value + "', " + statementType.getId() + ")");
-    		} else {
-    			executeStatement("REPLACE INTO VARIABLES(ID, Variable, DataType, StatementTypeId) VALUES (" + variableId + ", '" 
-        				+ key + "', '" + value + "', " + statementType.getId() + ")");
-    		}
-    		
+    		executeStatement(upsertInto("VARIABLES", new String[] {"Variable", "StatementTypeId"}, "Variable", "DataType", 
+    				"StatementTypeId"), key, statementType.getVariables().get(key), statementType.getId());
     	}
+        variables.clear();
 	}
 	
 	/**
@@ -389,12 +370,17 @@ public class SqlConnection {
 	*/
 	
 	/**
-	 * @return     Array list of all documents in the SQL database.
+	 * @return     Array list of all documents in the SQL database. In lazy text mode, the documents load 
+	 *             their texts on demand through a shared {@link TextCache}.
 	 */
 	private ArrayList<Document> getAllDocuments() {
 		ArrayList<Document> al = new ArrayList<Document>();
+		TextCache textCache = lazyTexts == true ? new TextCache(this, textCacheSize) : null;
 		try {
 			String myQuery = "SELECT * FROM DOCUMENTS";
+			if (lazyTexts == true) {
+				myQuery = "SELECT ID, Title, Coder, Author, Source, Section, Notes, Type, Date FROM DOCUMENTS";
+			}
 			PreparedStatement preStatement = (PreparedStatement) connection.prepareStatement(myQuery);
 			ResultSet result = preStatement.executeQuery();
 			if (result.next()) {
@@ -405,7 +391,7 @@ public class SqlConnection {
 					Document document = new Document(
 							id, 
 							result.getString("Title"), 
-							result.getString("Text"), 
+							lazyTexts == true ? null : result.getString("Text"), 
 							result.getInt("Coder"), 
 							result.getString("Author"), 
 							result.getString("Source"), 
@@ -414,6 +400,7 @@ public class SqlConnection {
 							result.getString("Type"), 
 							date
 					);
+					document.setTextCache(textCache);
 					al.add(document);
 				} while (result.next());
 			}
@@ -425,6 +412,81 @@ public class SqlConnection {
 		Collections.sort(al);
 		return al;
 	}
+	
+	/**
+	 * Read the texts of some documents, for documents that load their texts on demand.
+	 * 
+	 * @param documentIds  The IDs of the documents.
+	 * @return             The texts, by document ID.
+	 */
+	public HashMap<Integer, String> loadTexts(List<Integer> documentIds) {
+		HashMap<Integer, String> texts = new HashMap<Integer, String>();
+		if (documentIds.isEmpty()) {
+			return texts;
+		}
+		StringBuilder myQuery = new StringBuilder("SELECT ID, Text FROM DOCUMENTS WHERE ID IN (");
+		for (int i = 0; i < documentIds.size(); i++) {
+			myQuery.append(i == 0 ? "?" : ", ?");
+		}
+		myQuery.append(")");
+		try {
+			PreparedStatement preStatement = connection.prepareStatement(myQuery.toString());
+			setParameters(preStatement, documentIds.toArray());
+			ResultSet result = preStatement.executeQuery();
+			while (result.next()) {
+				texts.put(result.getInt(1), result.getString(2));
+			}
+			result.close();
+			preStatement.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return texts;
+	}
+	
+	/**
+	 * Estimate the size of the document texts, to decide whether the texts should be loaded on demand. The
+	 * texts themselves are not read: the estimate is the size of the SQLite file, which is an upper bound, 
+	 * or the data length of the DOCUMENTS table in the table statistics of MySQL.
+	 * 
+	 * @return  The estimated size of the document texts in bytes.
+	 */
+	public long getTextSizeEstimate() {
+		try {
+			if (dbtype.equals("mysql")) {
+				Object size = executeQueryForObject("SELECT DATA_LENGTH FROM information_schema.TABLES "
+						+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'DOCUMENTS'");
+				return size == null ? 0 : ((Number) size).longValue();
+			} else {
+				Object pageCount = executeQueryForObject("PRAGMA page_count");
+				Object pageSize = executeQueryForObject("PRAGMA page_size");
+				return ((Number) pageCount).longValue() * ((Number) pageSize).longValue();
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+	
+	/**
+	 * @return  True if {@link #getAllData()} creates documents that load their texts on demand.
+	 */
+	public boolean isLazyTexts() {
+		return lazyTexts;
+	}
+	
+	/**
+	 * Choose whether {@link #getAllData()} reads all document texts into memory or only the metadata of the
+	 * documents. In lazy text mode, the texts are read when they are needed and the most recently used ones 
+	 * are kept in a {@link TextCache}. The connection must stay open as long as the documents are used.
+	 * 
+	 * @param lazyTexts      True to load the texts on demand.
+	 * @param textCacheSize  The capacity of the text cache in characters.
+	 */
+	public void setLazyTexts(boolean lazyTexts, long textCacheSize) {
+		this.lazyTexts = lazyTexts;
+		this.textCacheSize = textCacheSize;
+	}
 
 	/**
 	 * @return     Array list of all regular expressions in the SQL database.
@@ -531,11 +593,7 @@ public class SqlConnection {
 	 */
 	void upsertAttributeVector(AttributeVector av) {
 		try {
-			int statementTypeId = av.getStatementTypeId();
-			String variable = av.getVariable();
-			int variableId = (int) executeQueryForObject("SELECT ID FROM VARIABLES WHERE StatementTypeID = " + statementTypeId + 
-					" AND Variable = '" + variable + "'");
-
+			int variableId = variables.getId(this, av.getStatementTypeId(), av.getVariable());
 			executeStatement("REPLACE INTO ATTRIBUTES(ID, VariableId, Value, Red, Green, Blue, Type, Alias, Notes, ChildOf) "
 					+ "VALUES (" + av.getId() + ", " + variableId + ", '" + av.getValue().replaceAll("'", "''") + "', " 
 					+ av.getColor().getRed() + ", " + av.getColor().getGreen() + ", " + av.getColor().getBlue()	+ ", '" 
@@ -553,18 +611,24 @@ public class SqlConnection {
 	 */
 	public void insertAttributeVectors(ArrayList<AttributeVector> al) {
 		if (al.size() > 0) {
-			String query = "INSERT INTO ATTRIBUTES(ID, VariableId, Value, Red, Green, Blue, Type, Alias, Notes, ChildOf) VALUES ";
-			for (int i = 0; i < al.size(); i++) {
-				query = query + "(" + al.get(i).getId() + ", (SELECT ID FROM VARIABLES WHERE StatementTypeId = " + al.get(i).getStatementTypeId() 
-						+ " AND Variable = '" + al.get(i).getVariable() + "'), '" + al.get(i).getValue().replaceAll("'", "''") + "', " 
-						+ al.get(i).getColor().getRed() + ", " + al.get(i).getColor().getGreen() + ", " + al.get(i).getColor().getBlue() + ", '" 
-						+ al.get(i).getType().replaceAll("'", "''") + "', '" + al.get(i).getAlias().replaceAll("'", "''") + "', '" 
-						+ al.get(i).getNotes().replaceAll("'", "''") + "', '" + al.get(i).getChildOf().replaceAll("'", "''") + "')";
-				if (i < al.size() - 1) {
-					query = query + ", ";
+			boolean autoCommit = beginTransaction();
+			try {
+				BatchWriter writer = new BatchWriter("INSERT INTO ATTRIBUTES(ID, VariableId, Value, Red, Green, Blue, Type, "
+						+ "Alias, Notes, ChildOf) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+				for (int i = 0; i < al.size(); i++) {
+					AttributeVector av = al.get(i);
+					int variableId = variables.getId(this, av.getStatementTypeId(), av.getVariable());
+					writer.add(av.getId(), variableId, av.getValue(), av.getColor().getRed(), 
+							av.getColor().getGreen(), av.getColor().getBlue(), av.getType(), av.getAlias(), av.getNotes(), 
+							av.getChildOf());
 				}
+				writer.close();
+				commitTransaction(autoCommit);
+			} catch (SQLException e) {
+				rollbackTransaction(e);
+			} finally {
+				endTransaction(autoCommit);
 			}
-			executeStatement(query);
 		}
 	}
 	
@@ -664,42 +728,25 @@ public class SqlConnection {
 		return map;
 	}
 	
-	public void upsertVariableContent(Object value, int statementId, String variableName, int statementTypeId, String dataType) throws Exception {
-		String table = "";
-		String ap = "";
-		if (dataType.equals("integer")) {
-			table = "DATAINTEGER";
-		} else if (dataType.equals("boolean")) {
-			table = "DATABOOLEAN";
-		} else if (dataType.equals("short text")) {
-			table = "DATASHORTTEXT";
-			ap = "'";
-			value = ((String) value).replaceAll("'", "''");
-		} else if (dataType.equals("long text")) {
-			table = "DATALONGTEXT";
-			ap = "'";
-			value = ((String) value).replaceAll("'", "''");
-		}
-		
-		// get ID of data entry to update
-		int dataId = (int) executeQueryForObject("SELECT ID FROM " + table + " WHERE VariableId = " 
-				+ "(SELECT ID FROM VARIABLES WHERE StatementTypeId = " + statementTypeId + " AND Variable = '" 
-				+ variableName + "') AND StatementId = " + statementId);
-
-		// then replace entry
-		String myStatement = "";
-		if (dataId == -1) {
-			myStatement = "INSERT INTO " + table + "(StatementId, VariableId, StatementTypeId, Value) "
-					+ "VALUES (" + statementId + ", (SELECT ID FROM VARIABLES WHERE StatementTypeId = " 
-					+ statementTypeId + " AND Variable = '" + variableName + "')" + ", " + statementTypeId 
-					+ ", " + ap + value + ap + ")";
-		} else {
-			myStatement = "REPLACE INTO " + table + "(ID, StatementId, VariableId, StatementTypeId, Value) "
-					+ "VALUES (" + dataId + ", " + statementId + ", (SELECT ID FROM VARIABLES WHERE StatementTypeId = " 
-					+ statementTypeId + " AND Variable = '" + variableName + "')" + ", " + statementTypeId 
-					+ ", " + ap + value + ap + ")";
+	/**
+	 * Insert or update the content of a variable of a statement with a single upsert.
+	 * 
+	 * @param value            The new content.
+	 * @param statementId      The ID of the statement.
+	 * @param variableName     The name of the variable.
+	 * @param statementTypeId  The ID of the statement type of the statement.
+	 * @throws SQLException    If the variable does not exist or the database cannot be written.
+	 */
+	public void upsertVariableContent(Object value, int statementId, String variableName, int statementTypeId) throws SQLException {
+		String table = dataTable(variables.getDataType(this, statementTypeId, variableName));
+		int variableId = variables.getId(this, statementTypeId, variableName);
+		PreparedStatement upsert = connection.prepareStatement(upsertData(table));
+		setParameters(upsert, statementId, variableId, statementTypeId, value);
+		try {
+			upsert.executeUpdate();
+		} finally {
+			upsert.close();
 		}
-		executeStatement(myStatement);
 	}
 	
 	public void addCoder(Coder coder) {
@@ -748,25 +795,35 @@ public class SqlConnection {
 	}
 
 	public void removeDocuments(ArrayList<Integer> documentIds) {
-		// create a string of document IDs for batch-selecting entries in SQL
-		String ids = "";
-		for (int i = 0; i < documentIds.size(); i++) {
-			ids = ids + documentIds.get(i);
-			if (i < documentIds.size() - 1) {
-				ids = ids + ", ";
+		// remove statements and documents, one batched statement per table
+		String[] deletes = new String[] {
+				"DELETE FROM DATABOOLEAN WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId = ?)", 
+				"DELETE FROM DATAINTEGER WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId = ?)", 
+				"DELETE FROM DATASHORTTEXT WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId = ?)", 
+				"DELETE FROM DATALONGTEXT WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId = ?)", 
+				"DELETE FROM STATEMENTS WHERE DocumentId = ?", 
+				"DELETE FROM DOCUMENTS WHERE ID = ?"
+		};
+		boolean autoCommit = beginTransaction();
+		try {
+			for (int i = 0; i < deletes.length; i++) {
+				BatchWriter writer = new BatchWriter(deletes[i]);
+				for (int j = 0; j < documentIds.size(); j++) {
+					writer.add(documentIds.get(j));
+				}
+				writer.close();
 			}
+			commitTransaction(autoCommit);
+		} catch (SQLException e) {
+			rollbackTransaction(e);
+		} finally {
+			endTransaction(autoCommit);
 		}
 		
-		// remove statements and documents
-		executeStatement("DELETE FROM DATABOOLEAN WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId IN (" + ids + "))");
-		executeStatement("DELETE FROM DATAINTEGER WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId IN (" + ids + "))");
-		executeStatement("DELETE FROM DATASHORTTEXT WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId IN (" + ids + "))");
-		executeStatement("DELETE FROM DATALONGTEXT WHERE StatementId IN (SELECT ID FROM STATEMENTS WHERE DocumentId IN (" + ids + "))");
-		executeStatement("DELETE FROM STATEMENTS WHERE DocumentId IN (" + ids + ")");
-		executeStatement("DELETE FROM DOCUMENTS WHERE ID IN (" + ids + ")");
-		
-		// free up unused physical space in the database
-		if (dbtype.equals("mysql")) {
+		// free up unused physical space in the database, unless the deletion is part of a larger transaction
+		if (autoCommit == false) {
+			return;
+		} else if (dbtype.equals("mysql")) {
 			executeStatement("OPTIMIZE TABLE DATABOOLEAN");
 			executeStatement("OPTIMIZE TABLE DATAINTEGER");
 			executeStatement("OPTIMIZE TABLE DATASHORTTEXT");
@@ -802,214 +859,111 @@ public class SqlConnection {
 		executeStatement("DELETE FROM STATEMENTS WHERE ID = " + statementId);
 	}
 	
-	@SuppressWarnings("serial")
+	/**
+	 * Add multiple new statements to the STATEMENTS table and their contents to the data tables.
+	 * 
+	 * @param al  An array list of Statement objects to be inserted
+	 */
 	public void addStatements(ArrayList<Statement> al) {
 		if (al.size() > 0) {
-			
-			class Tuple implements Comparable<Tuple> {
-				int statementTypeId;
-				String variable;
-				public Tuple(int statementTypeId, String variable) {
-					this.statementTypeId = statementTypeId;
-					this.variable = variable;
-				}
-
-				// how should entries be sorted in a list or table?
-				public int compareTo(Tuple t) {
-					if (((Integer) this.statementTypeId).compareTo(t.statementTypeId) < 0) {
-						return -1;
-					} else if (((Integer) this.statementTypeId).compareTo(t.statementTypeId) > 0) {
-						return 1;
-					} else {
-						if (this.variable.compareTo(t.variable) < 0) {
-							return -1;
-						} else if (this.variable.compareTo(t.variable) > 0) {
-							return 1;
-						} else {
-							return 0;
-						}
-					}
-				}
-				
-				//necessary for sorting purposes
-				public boolean equals(Object o) {
-					if (o == null) return false;
-					if (this == o) return true;
-					if (getClass() != o.getClass()) return false;
-					return compareTo((Tuple) o) == 0;
-				}
-			}
-			
-			TreeMap<Tuple, String> map = new TreeMap<Tuple, String>();
-			try {
-				String myQuery = "SELECT Variable, DataType, StatementTypeId FROM VARIABLES";
-				PreparedStatement preStatement = (PreparedStatement) connection.prepareStatement(myQuery);
-				ResultSet result = preStatement.executeQuery();
-				if (result.next()) {
-					do {
-						map.put(new Tuple(result.getInt("StatementTypeId"), result.getString("Variable")), result.getString("DataType"));
-					} while (result.next());
-				}
-				result.close();
-				preStatement.close();
-			} catch (SQLException e) {
-				e.printStackTrace();
-			}
-			
-			String queryStatements = "INSERT INTO STATEMENTS (ID, StatementTypeId, DocumentId, Start, Stop, Coder) VALUES ";
-			String queryShortText = "INSERT INTO DATASHORTTEXT (StatementId, VariableId, StatementTypeId, Value) VALUES ";
-			String queryLongText = "INSERT INTO DATALONGTEXT (StatementId, VariableId, StatementTypeId, Value) VALUES ";
-			String queryBoolean = "INSERT INTO DATABOOLEAN (StatementId, VariableId, StatementTypeId, Value) VALUES ";
-			String queryInteger = "INSERT INTO DATAINTEGER (StatementId, VariableId, StatementTypeId, Value) VALUES ";
-			int statementId;
-			int statementTypeId;
-			int documentId;
-			int start;
-			int stop;
-			int coderId;
+			insertStatements(al);
+		}
+	}
+	
+	/**
+	 * Add a new statement to the STATEMENTS table and its contents to the data tables.
+	 * 
+	 * @param statement  A Statement object.
+	 */
+	public void addStatement(Statement statement) {
+		ArrayList<Statement> al = new ArrayList<Statement>();
+		al.add(statement);
+		insertStatements(al);
+	}
+	
+	/**
+	 * Insert statements and their variable contents in a single transaction, using one batched prepared 
+	 * statement for the STATEMENTS table and one for each data table. The variable IDs and data types are 
+	 * taken from the {@link VariableCache}.
+	 * 
+	 * @param al  The statements to insert.
+	 */
+	private void insertStatements(ArrayList<Statement> al) {
+		boolean autoCommit = beginTransaction();
+		try {
+			BatchWriter statementWriter = new BatchWriter("INSERT INTO STATEMENTS (ID, StatementTypeId, DocumentId, "
+					+ "Start, Stop, Coder) VALUES (?, ?, ?, ?, ?, ?)");
+			LinkedHashMap<String, BatchWriter> dataWriters = new LinkedHashMap<String, BatchWriter>();
 			for (int i = 0; i < al.size(); i++) {
-				statementId = al.get(i).getId();
-				statementTypeId = al.get(i).getStatementTypeId();
-				documentId = al.get(i).getDocumentId();
-				start = al.get(i).getStart();
-				stop = al.get(i).getStop();
-				coderId = al.get(i).getCoder();
-				queryStatements = queryStatements + "(" + statementId + ", " + statementTypeId + ", " + documentId + ", " + start 
-						+ ", " + stop  + ", " + coderId + ")";
-				
-				Iterator<String> keyIterator = al.get(i).getValues().keySet().iterator();
-		        while (keyIterator.hasNext()){
-		    		String key = keyIterator.next();
-		    		Object object = al.get(i).getValues().get(key);
-		    		String type = map.get(new Tuple(statementTypeId, key));
-		    		if (type.equals("short text")) {
-		    			String myString = ((String) object).replaceAll("'", "''");
-		    			queryShortText = queryShortText + "(" + statementId + ", (SELECT ID FROM VARIABLES WHERE Variable = '" + key 
-			    				+ "' AND StatementTypeId = " + statementTypeId + "), " + statementTypeId + ", '" + myString + "'), ";
-		    		} else if (type.equals("long text")) {
-		    			String myString = ((String) object).replaceAll("'", "''");
-		    			queryLongText = queryLongText + "(" + statementId + ", (SELECT ID FROM VARIABLES WHERE Variable = '" + key 
-			    				+ "' AND StatementTypeId = " + statementTypeId + "), " + statementTypeId + ", '" + myString + "'), ";
-		    		} else if (type.equals("boolean")) {
-		    			queryBoolean = queryBoolean + "(" + statementId + ", (SELECT ID FROM VARIABLES WHERE Variable = '" + key 
-			    				+ "' AND StatementTypeId = " + statementTypeId + "), " + statementTypeId + ", " + (int) object + "), ";
-		    		} else if (type.equals("integer")) {
-		    			queryInteger = queryInteger + "(" + statementId + ", (SELECT ID FROM VARIABLES WHERE Variable = '" + key 
-			    				+ "' AND StatementTypeId = " + statementTypeId + "), " + statementTypeId + ", " + (int) object + "), ";
-		    		}
-		        }
-				if (i < al.size() - 1) {
-					queryStatements = queryStatements + ", ";
+				Statement s = al.get(i);
+				statementWriter.add(s.getId(), s.getStatementTypeId(), s.getDocumentId(), s.getStart(), s.getStop(), s.getCoder());
+				Iterator<String> keyIterator = s.getValues().keySet().iterator();
+				while (keyIterator.hasNext()) {
+					String key = keyIterator.next();
+					String table = dataTable(variables.getDataType(this, s.getStatementTypeId(), key));
+					BatchWriter writer = dataWriters.get(table);
+					if (writer == null) {
+						// the contents refer to their statements, which must be sent first because of the foreign keys, 
+						// so a data writer that reaches the batch size flushes the statement writer before itself
+						writer = new BatchWriter("INSERT INTO " + table + " (StatementId, VariableId, StatementTypeId, Value) "
+								+ "VALUES (?, ?, ?, ?)", statementWriter);
+						dataWriters.put(table, writer);
+					}
+					writer.add(s.getId(), variables.getId(this, s.getStatementTypeId(), key), s.getStatementTypeId(), 
+							s.getValues().get(key));
 				}
 			}
-			if (queryShortText.endsWith(", ")) {
-				queryShortText = queryShortText.substring(0, queryShortText.length() - 2);
-			}
-			if (queryLongText.endsWith(", ")) {
-				queryLongText = queryLongText.substring(0, queryLongText.length() - 2);
-			}
-			if (queryBoolean.endsWith(", ")) {
-				queryBoolean = queryBoolean.substring(0, queryBoolean.length() - 2);
-			}
-			if (queryInteger.endsWith(", ")) {
-				queryInteger = queryInteger.substring(0, queryInteger.length() - 2);
-			}
-			executeStatement(queryStatements);
-			if (!queryShortText.endsWith("VALUES ")) {
-				executeStatement(queryShortText);
-			}
-			if (!queryLongText.endsWith("VALUES ")) {
-				executeStatement(queryLongText);
-			}
-			if (!queryBoolean.endsWith("VALUES ")) {
-				executeStatement(queryBoolean);
-			}
-			if (!queryInteger.endsWith("VALUES ")) {
-				executeStatement(queryInteger);
+			statementWriter.close();  // remaining statements before their contents because of the foreign keys
+			Iterator<BatchWriter> writerIterator = dataWriters.values().iterator();
+			while (writerIterator.hasNext()) {
+				writerIterator.next().close();
 			}
+			commitTransaction(autoCommit);
+		} catch (SQLException e) {
+			rollbackTransaction(e);
+		} finally {
+			endTransaction(autoCommit);
 		}
 	}
 	
-	public void addStatement(Statement statement, LinkedHashMap<String, String> variables) {
-		executeStatement("INSERT INTO STATEMENTS(ID, StatementTypeId, DocumentId, Start, Stop, Coder) "
-				+ "VALUES (" + statement.getId() + ", " + statement.getStatementTypeId() + ", " + statement.getDocumentId() 
-				+ ", " + statement.getStart() + ", " + statement.getStop() + ", " + statement.getCoder() + ")");
-		
-		Iterator<String> keyIterator = statement.getValues().keySet().iterator();
-        while (keyIterator.hasNext()){
-    		String key = keyIterator.next();
-    		Object object = statement.getValues().get(key);
-    		String type = variables.get(key);
-			String tableExtension = null;
-			String ap = "";
-			if (type.equals("boolean")) {
-				tableExtension = "BOOLEAN";
-			} else if (type.equals("integer")) {
-    			tableExtension = "INTEGER";
-    		} else if (type.equals("short text")) {
-    			tableExtension = "SHORTTEXT";
-    			ap = "'";
-    			object = ((String) object).replaceAll("'", "''");
-    		} else if (type.equals("long text")) {
-    			tableExtension = "LONGTEXT";
-    			ap = "'";
-    			object = ((String) object).replaceAll("'", "''");
-    		}
-			
-			String myStatement = "INSERT INTO DATA" + tableExtension + " (StatementId, VariableId, StatementTypeId, Value) "
-					+ "VALUES (" + statement.getId() + ", " + "(SELECT ID FROM VARIABLES WHERE Variable = '" + key 
-					+ "' AND StatementTypeId = " + statement.getStatementTypeId() + "), " + statement.getStatementTypeId() + ", "  
-					+ ap + object + ap + ")";
-			executeStatement(myStatement);
-    	}
-	}
-	
 	/**
+	 * Insert or replace a statement and upsert its variable contents, with one batched upsert per data table.
+	 * 
 	 * @param statement       A Statement object.
-	 * @param variables       A LinkedHashMap as contained in a statement type.
 	 */
-	public void upsertStatement(Statement statement, LinkedHashMap<String, String> variables) {
-		executeStatement("REPLACE INTO STATEMENTS(ID, StatementTypeId, DocumentId, Start, Stop, Coder) "
-				+ "VALUES (" + statement.getId() + ", " + statement.getStatementTypeId() + ", " + statement.getDocumentId() 
-				+ ", " + statement.getStart() + ", " + statement.getStop() + ", " + statement.getCoder() + ")");
-		
-		Iterator<String> keyIterator = statement.getValues().keySet().iterator();
-        while (keyIterator.hasNext()){
-    		String key = keyIterator.next();
-    		Object object = statement.getValues().get(key);
-    		String type = variables.get(key);
-			String tableExtension = null;
-			String ap = "";
-			if (type.equals("boolean")) {
-				tableExtension = "BOOLEAN";
-			} else if (type.equals("integer")) {
-    			tableExtension = "INTEGER";
-    		} else if (type.equals("short text")) {
-    			tableExtension = "SHORTTEXT";
-    			ap = "'";
-    			object = ((String) object).replaceAll("'", "''");
-    		} else if (type.equals("long text")) {
-    			tableExtension = "LONGTEXT";
-    			ap = "'";
-    			object = ((String) object).replaceAll("'", "''");
-    		}
+	public void upsertStatement(Statement statement) {
+		boolean autoCommit = beginTransaction();
+		try {
+			PreparedStatement replaceStatement = connection.prepareStatement("REPLACE INTO STATEMENTS(ID, StatementTypeId, "
+					+ "DocumentId, Start, Stop, Coder) VALUES (?, ?, ?, ?, ?, ?)");
+			setParameters(replaceStatement, statement.getId(), statement.getStatementTypeId(), statement.getDocumentId(), 
+					statement.getStart(), statement.getStop(), statement.getCoder());
+			replaceStatement.executeUpdate();
+			replaceStatement.close();
 			
-			int varid = -1;
-			int dataId = -1;
-			try {
-				varid = (int) executeQueryForObject("SELECT ID FROM VARIABLES WHERE Variable = '" + key 
-						+ "' AND StatementTypeId = " + statement.getStatementTypeId());
-				dataId = (int) executeQueryForObject("SELECT ID FROM DATA" + tableExtension + " WHERE StatementId = " + statement.getId() 
-						+ " AND VariableId = " + varid);
-			} catch (SQLException e) {
-				e.printStackTrace();
+			LinkedHashMap<String, BatchWriter> dataWriters = new LinkedHashMap<String, BatchWriter>();
+			Iterator<String> keyIterator = statement.getValues().keySet().iterator();
+			while (keyIterator.hasNext()) {
+				String key = keyIterator.next();
+				String table = dataTable(variables.getDataType(this, statement.getStatementTypeId(), key));
+				BatchWriter writer = dataWriters.get(table);
+				if (writer == null) {
+					writer = new BatchWriter(upsertData(table));
+					dataWriters.put(table, writer);
+				}
+				writer.add(statement.getId(), variables.getId(this, statement.getStatementTypeId(), key), 
+						statement.getStatementTypeId(), statement.getValues().get(key));
 			}
-			
-			String myStatement = "REPLACE INTO DATA" + tableExtension + " (ID, StatementId, VariableId, StatementTypeId, Value) "
-					+ "VALUES (" + dataId + ", " + statement.getId() + ", " + varid + ", " + statement.getStatementTypeId() 
-					+ ", "  + ap + object + ap + ")";
-			executeStatement(myStatement);
-    	}
+			Iterator<BatchWriter> writerIterator = dataWriters.values().iterator();
+			while (writerIterator.hasNext()) {
+				writerIterator.next().close();
+			}
+			commitTransaction(autoCommit);
+		} catch (SQLException e) {
+			rollbackTransaction(e);
+		} finally {
+			endTransaction(autoCommit);
+		}
 	}
 	
 	/**
@@ -1025,83 +979,186 @@ public class SqlConnection {
 		data.setStatementLinks(getAllStatementLinks());
 		data.setStatementTypes(getAllStatementTypes());
 		
+		data.setStatements(getAllStatements(data));
+		data.setAttributes(getAllAttributes());
+		return data;
+	}
+	
+	/**
+	 * Read all statements from the STATEMENTS table and fill in their variable contents. Instead of querying 
+	 * the data tables once per statement and variable, each of the DATABOOLEAN, DATAINTEGER, DATASHORTTEXT 
+	 * and DATALONGTEXT tables is read exactly once, and the rows are assigned to the statements in memory. 
+	 * Variable contents that are missing in the database are repaired afterwards in a single batched pass.
+	 * 
+	 * @param data  Data object with documents and statement types already loaded.
+	 * @return      Array list of all statements in the SQL database.
+	 */
+	private ArrayList<Statement> getAllStatements(Data data) {
 		ArrayList<Statement> statements = new ArrayList<Statement>();
+		HashMap<Integer, Statement> statementMap = new HashMap<Integer, Statement>();
 		try {
-			String myQuery = "SELECT * FROM STATEMENTS";
-			PreparedStatement preStatement = (PreparedStatement) connection.prepareStatement(myQuery);
+			// variable IDs and names, read once instead of a sub-query per statement and variable
+			HashMap<Integer, String> variableNames = new HashMap<Integer, String>();
+			HashMap<String, Integer> variableIds = new HashMap<String, Integer>();
+			PreparedStatement preStatement = (PreparedStatement) connection.prepareStatement(
+					"SELECT ID, Variable, StatementTypeId FROM VARIABLES");
 			ResultSet result = preStatement.executeQuery();
-			if (result.next()) {
-				do {
-					int id = result.getInt("ID");
-					int documentId = result.getInt("DocumentId");
-					int start = result.getInt("Start");
-					int stop = result.getInt("Stop");
-					int statementTypeId = result.getInt("StatementTypeId");
-					int coder = result.getInt("Coder");
-					Date date = data.getDocument(documentId).getDate();
-					StatementType st = data.getStatementTypeById(statementTypeId);
-					LinkedHashMap<String, Object> values = new LinkedHashMap<String, Object>();
-					
-					Iterator<String> keyIterator = st.getVariables().keySet().iterator();
-			        while (keyIterator.hasNext()){
-			    		String key = keyIterator.next();
-			    		String value = st.getVariables().get(key);
-			    		String tableExtension = "";
-			    		if (value.equals("boolean")) {
-			    			tableExtension = "BOOLEAN";
-			    		} else if (value.equals("integer")) {
-			    			tableExtension = "INTEGER";
-			    		} else if (value.equals("short text")) {
-			    			tableExtension = "SHORTTEXT";
-			    		} else if (value.equals("long text")) {
-			    			tableExtension = "LONGTEXT";
-			    		}
-			    		String myQuery2 = "SELECT * FROM DATA" + tableExtension + " WHERE StatementId = " + id 
-			    				+ " AND VariableId = (SELECT ID FROM VARIABLES WHERE StatementTypeId = " + statementTypeId 
-			    				+ " AND Variable = '" + key + "')";
-						PreparedStatement preStatement2 = (PreparedStatement) connection.prepareStatement(myQuery2);
-						ResultSet result2 = preStatement2.executeQuery();
-						if (result2.next()) {
-							do {
-								values.put(key, result2.getObject("Value"));
-							} while (result2.next());
-						}
-						result2.close();
-						preStatement2.close();
-						if (values.size() == 0 || values.get(key) == null) {  // Fix errors here if no statement contents availabe
-							System.err.print("Statement " + id + ": variable \"" + key + "\" was not saved... ");
-							String query = "SELECT ID FROM VARIABLES WHERE (StatementTypeId = " + statementTypeId 
-									+ " AND Variable = '" + key + "')";
-							int varId = (int) executeQueryForObject(query);
-							String replacementValue = "0";
-							if (value.equals("short text") || value.equals("long text")) {
-								replacementValue = "''";
-							}
-							String statement = "INSERT INTO DATA" + tableExtension + " (StatementId, VariableId, StatementTypeId, Value) "
-									+ "Values (" + id + ", " + varId + ", " + statementTypeId + ", " + replacementValue + ")";
-							executeStatement(statement);
-							if (value.equals("short text") || value.equals("long text")) {
-								values.put(key, "");
-							} else {
-								values.put(key, 0);
-							}
-							System.err.println("The problem has been fixed. Please review this statement.");
-						}
-			    	}
-					Statement statement = new Statement(id, documentId, start, stop, date, statementTypeId, coder, values);
-					statements.add(statement);
-				} while (result.next());
+			while (result.next()) {
+				variableNames.put(result.getInt("ID"), result.getString("Variable"));
+				variableIds.put(result.getInt("StatementTypeId") + "|" + result.getString("Variable"), result.getInt("ID"));
+			}
+			result.close();
+			preStatement.close();
+			
+			// document dates and statement types by ID, so statements can be assembled without list scans
+			HashMap<Integer, Date> documentDates = new HashMap<Integer, Date>();
+			for (int i = 0; i < data.getDocuments().size(); i++) {
+				documentDates.put(data.getDocuments().get(i).getId(), data.getDocuments().get(i).getDate());
+			}
+			HashMap<Integer, StatementType> statementTypes = new HashMap<Integer, StatementType>();
+			for (int i = 0; i < data.getStatementTypes().size(); i++) {
+				statementTypes.put(data.getStatementTypes().get(i).getId(), data.getStatementTypes().get(i));
+			}
+			
+			// statements with empty value maps; keys are inserted in the order of the statement type
+			long time = System.currentTimeMillis();
+			preStatement = prepareStreamingQuery("SELECT * FROM STATEMENTS");
+			result = preStatement.executeQuery();
+			while (result.next()) {
+				int id = result.getInt("ID");
+				int documentId = result.getInt("DocumentId");
+				int statementTypeId = result.getInt("StatementTypeId");
+				Date date = documentDates.get(documentId);
+				StatementType st = statementTypes.get(statementTypeId);
+				LinkedHashMap<String, Object> values = new LinkedHashMap<String, Object>();
+				Iterator<String> keyIterator = st.getVariables().keySet().iterator();
+				while (keyIterator.hasNext()) {
+					values.put(keyIterator.next(), null);
+				}
+				Statement statement = new Statement(id, documentId, result.getInt("Start"), result.getInt("Stop"), date, 
+						statementTypeId, result.getInt("Coder"), values);
+				statements.add(statement);
+				statementMap.put(id, statement);
 			}
 			result.close();
 			preStatement.close();
+			System.out.println("Loaded " + statements.size() + " statements in " + (System.currentTimeMillis() - time) + " ms.");
+			
+			// variable contents, one pass per data table
+			String[] tables = new String[] {"DATABOOLEAN", "DATAINTEGER", "DATASHORTTEXT", "DATALONGTEXT"};
+			for (int i = 0; i < tables.length; i++) {
+				time = System.currentTimeMillis();
+				int rows = 0;
+				preStatement = prepareStreamingQuery("SELECT StatementId, VariableId, Value FROM " + tables[i]);
+				result = preStatement.executeQuery();
+				while (result.next()) {
+					Statement statement = statementMap.get(result.getInt("StatementId"));
+					String variable = variableNames.get(result.getInt("VariableId"));
+					if (statement != null && variable != null && statement.getValues().containsKey(variable)) {
+						statement.getValues().put(variable, result.getObject("Value"));
+					}
+					rows++;
+					if (rows % 100000 == 0) {
+						System.out.println("  " + tables[i] + ": " + rows + " rows read...");
+					}
+				}
+				result.close();
+				preStatement.close();
+				System.out.println("Loaded " + rows + " rows from " + tables[i] + " in " + (System.currentTimeMillis() - time) + " ms.");
+			}
+			
+			repairMissingValues(statements, data, variableIds);
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
-		data.setStatements(statements);
-		data.setAttributes(getAllAttributes());
-		return data;
+		return statements;
+	}
+	
+	/**
+	 * Fill in variable contents that were not saved in the database. Missing values are replaced by 
+	 * {@code 0} or an empty string in the statements, and the replacement values are inserted into the 
+	 * respective data tables in one batch per table.
+	 * 
+	 * @param statements   Statements loaded from the database; {@code null} values denote missing contents.
+	 * @param data         Data object with the statement types.
+	 * @param variableIds  Map from "statementTypeId|variable" to the variable ID in the VARIABLES table.
+	 */
+	private void repairMissingValues(ArrayList<Statement> statements, Data data, HashMap<String, Integer> variableIds) {
+		LinkedHashMap<String, ArrayList<Object[]>> missing = new LinkedHashMap<String, ArrayList<Object[]>>();
+		for (int i = 0; i < statements.size(); i++) {
+			Statement statement = statements.get(i);
+			LinkedHashMap<String, String> variables = data.getStatementTypeById(statement.getStatementTypeId()).getVariables();
+			Iterator<String> keyIterator = variables.keySet().iterator();
+			while (keyIterator.hasNext()) {
+				String key = keyIterator.next();
+				if (statement.getValues().get(key) == null) {
+					String dataType = variables.get(key);
+					String table;
+					Object replacementValue;
+					if (dataType.equals("short text") || dataType.equals("long text")) {
+						table = dataType.equals("short text") ? "DATASHORTTEXT" : "DATALONGTEXT";
+						replacementValue = "";
+					} else {
+						table = dataType.equals("boolean") ? "DATABOOLEAN" : "DATAINTEGER";
+						replacementValue = 0;
+					}
+					statement.getValues().put(key, replacementValue);
+					if (!missing.containsKey(table)) {
+						missing.put(table, new ArrayList<Object[]>());
+					}
+					missing.get(table).add(new Object[] {statement.getId(), 
+							variableIds.get(statement.getStatementTypeId() + "|" + key), statement.getStatementTypeId(), 
+							replacementValue});
+					System.err.println("Statement " + statement.getId() + ": variable \"" + key + "\" was not saved.");
+				}
+			}
+		}
+		if (missing.size() == 0) {
+			return;
+		}
+		
+		boolean autoCommit = beginTransaction();
+		try {
+			Iterator<String> tableIterator = missing.keySet().iterator();
+			while (tableIterator.hasNext()) {
+				String table = tableIterator.next();
+				BatchWriter writer = new BatchWriter("INSERT INTO " + table 
+						+ " (StatementId, VariableId, StatementTypeId, Value) VALUES (?, ?, ?, ?)");
+				ArrayList<Object[]> rows = missing.get(table);
+				for (int i = 0; i < rows.size(); i++) {
+					writer.add(rows.get(i));
+				}
+				writer.close();
+				System.err.println("Repaired " + rows.size() + " missing values in " + table + ". Please review these statements.");
+			}
+			commitTransaction(autoCommit);
+		} catch (SQLException e) {
+			rollbackTransaction(e);
+		} finally {
+			endTransaction(autoCommit);
+		}
 	}
 	
+	/**
+	 * Prepare a forward-only, read-only query whose results are streamed from the database rather than 
+	 * buffered in memory as a whole. MySQL only streams if the fetch size is set to 
+	 * {@link Integer#MIN_VALUE}; for SQLite, the fetch size is a hint for the number of rows per step.
+	 * 
+	 * @param myQuery  A string representation of the SQL query.
+	 * @return         The prepared statement.
+	 * @throws SQLException
+	 */
+	private PreparedStatement prepareStreamingQuery(String myQuery) throws SQLException {
+		PreparedStatement preStatement = (PreparedStatement) connection.prepareStatement(myQuery, 
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		if (dbtype.equals("mysql")) {
+			preStatement.setFetchSize(Integer.MIN_VALUE);
+		} else {
+			preStatement.setFetchSize(10000);
+		}
+		return preStatement;
+	}
+
 	/**
 	 * @return     Array list of all statement types in the SQL database.
 	 */
@@ -1583,23 +1640,453 @@ public class SqlConnection {
 	        		+ "FOREIGN KEY(VariableId) REFERENCES VARIABLES(ID), "
 					+ "PRIMARY KEY(ID))");
 		}
+		upgradeSchema();  // indexes, keys and the full-text index of the later schema versions
+	}
+	
+	/**
+	 * Upgrade the tables of the database to the current schema version with the {@link SchemaMigrator}. Has 
+	 * to be called when a database is opened, before it is read or written.
+	 * 
+	 * @return  True if the database has the current schema version or a newer one.
+	 */
+	public boolean upgradeSchema() {
+		try {
+			return new SchemaMigrator(this).migrate() >= SchemaMigrator.SCHEMA_VERSION;
+		} catch (SQLException e) {
+			reportError(e);
+			return false;
+		}
+	}
+	
+	/**
+	 * @return  True if the database has the full-text index created by 
+	 *          {@link SchemaMigrator#createFullTextIndex()}.
+	 */
+	public boolean hasFullTextIndex() {
+		if (!dbtype.equals("sqlite")) {
+			return false;
+		}
+		try {
+			PreparedStatement preStatement = connection.prepareStatement(
+					"SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'DOCUMENTSFTS'");
+			int count = queryForInt(preStatement);
+			preStatement.close();
+			return count > 0;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Search the full-text index. The query uses the FTS5 syntax: words, "quoted phrases", prefixes like 
+	 * {@code climat*}, AND, OR, NOT and NEAR; the case is ignored. The best matches come first.
+	 * 
+	 * @param query   The full-text query.
+	 * @param offset  The number of matches to skip, for paging.
+	 * @param limit   The maximal number of matches to return.
+	 * @return        The matching documents.
+	 * @throws SQLException  If the query is malformed or the database has no full-text index.
+	 */
+	public ArrayList<FullTextMatch> searchFullText(String query, int offset, int limit) throws SQLException {
+		ArrayList<FullTextMatch> al = new ArrayList<FullTextMatch>();
+		PreparedStatement preStatement = connection.prepareStatement("SELECT rowid, Title, "
+				+ "snippet(DOCUMENTSFTS, 1, char(2), char(3), '', 12) FROM DOCUMENTSFTS WHERE DOCUMENTSFTS MATCH ? "
+				+ "ORDER BY rank LIMIT ? OFFSET ?");
+		setParameters(preStatement, query, limit, offset);
+		ResultSet result = preStatement.executeQuery();
+		while (result.next()) {
+			al.add(new FullTextMatch(result.getInt(1), result.getString(2), result.getString(3)));
+		}
+		result.close();
+		preStatement.close();
+		return al;
+	}
+	
+	/**
+	 * A document found in the full-text index, with a snippet of its text around the best match.
+	 */
+	public static class FullTextMatch {
+		int documentId;
+		String title;
+		String snippet;  // the matched words are enclosed in the characters 2 and 3
+		
+		FullTextMatch(int documentId, String title, String snippet) {
+			this.documentId = documentId;
+			this.title = title;
+			this.snippet = snippet;
+		}
+		
+		/**
+		 * @return  The ID of the document.
+		 */
+		public int getDocumentId() {
+			return documentId;
+		}
+		
+		/**
+		 * @return  The title of the document.
+		 */
+		public String getTitle() {
+			return title;
+		}
+		
+		/**
+		 * @return  The snippet, with the first matched word at {@link #getMatchStart()}.
+		 */
+		public String getSnippet() {
+			return snippet.replace("\u0002", "").replace("\u0003", "");
+		}
+		
+		/**
+		 * @return  The position of the first matched word in the snippet, or -1 if none is marked.
+		 */
+		public int getMatchStart() {
+			return snippet.indexOf('\u0002');
+		}
+		
+		/**
+		 * @return  The end of the first matched word in the snippet, or -1 if none is marked.
+		 */
+		public int getMatchEnd() {
+			int end = snippet.indexOf('\u0003');
+			return end < 0 ? -1 : end - 1;
+		}
 	}
     
+	/**
+	 * @return  The number of rows sent to the database per batch when writing many rows at once.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @param batchSize  The number of rows sent to the database per batch when writing many rows at once.
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+	
+	/**
+	 * A reusable prepared statement that collects rows with {@code addBatch} and sends them to the database 
+	 * whenever the configured batch size is reached. Should be used within a transaction. A writer for rows 
+	 * that refer to the rows of another writer, for example variable contents and their statements, can be 
+	 * given that writer as its parent, which is then flushed first.
+	 */
+	class BatchWriter {
+		PreparedStatement preStatement;
+		BatchWriter parent = null;
+		int pending = 0;
+		
+		BatchWriter(String sql) throws SQLException {
+			this.preStatement = connection.prepareStatement(sql);
+		}
+		
+		/**
+		 * @param sql     The statement with placeholders.
+		 * @param parent  The writer of the rows that the rows of this writer refer to.
+		 * @throws SQLException
+		 */
+		BatchWriter(String sql, BatchWriter parent) throws SQLException {
+			this(sql);
+			this.parent = parent;
+		}
+		
+		/**
+		 * @param parameters  Values for the placeholders of the prepared statement, in order.
+		 * @throws SQLException
+		 */
+		void add(Object... parameters) throws SQLException {
+			setParameters(preStatement, parameters);
+			preStatement.addBatch();
+			pending++;
+			if (pending >= batchSize) {
+				flush();
+			}
+		}
+		
+		void flush() throws SQLException {
+			if (parent != null) {
+				parent.flush();
+			}
+			if (pending > 0) {
+				preStatement.executeBatch();
+				pending = 0;
+			}
+		}
+		
+		void close() throws SQLException {
+			flush();
+			preStatement.close();
+		}
+	}
+	
+	/**
+	 * Bind values to the placeholders of a prepared statement. Strings, numbers and {@code null} are supported.
+	 * 
+	 * @param preStatement  The prepared statement.
+	 * @param parameters    Values for the placeholders, in order.
+	 * @throws SQLException
+	 */
+	private static void setParameters(PreparedStatement preStatement, Object... parameters) throws SQLException {
+		for (int i = 0; i < parameters.length; i++) {
+			if (parameters[i] == null) {
+				preStatement.setNull(i + 1, Types.NULL);
+			} else {
+				preStatement.setObject(i + 1, parameters[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Execute a prepared query and return the integer in the first column of the last row, or -1 if empty.
+	 * 
+	 * @param preStatement  The prepared query with all parameters bound.
+	 * @return              The integer result or -1.
+	 * @throws SQLException
+	 */
+	private static int queryForInt(PreparedStatement preStatement) throws SQLException {
+		int value = -1;
+		ResultSet result = preStatement.executeQuery();
+		while (result.next()) {
+			value = result.getInt(1);
+		}
+		result.close();
+		return value;
+	}
+	
+	/**
+	 * Turn off auto-commit so that the following writes are committed as one transaction.
+	 * 
+	 * @return  The previous auto-commit state, to be handed over to {@link #endTransaction(boolean)}.
+	 */
+	private boolean beginTransaction() {
+		boolean autoCommit = true;
+		try {
+			autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return autoCommit;
+	}
+	
+	/**
+	 * Commit the writes since {@link #beginTransaction()}. If the transaction is nested in an outer one, for 
+	 * example in a group of writes of the {@link WriteQueue}, nothing is done, and the writes are committed 
+	 * with the outer transaction.
+	 * 
+	 * @param autoCommit  The auto-commit state returned by {@link #beginTransaction()}.
+	 * @throws SQLException
+	 */
+	private void commitTransaction(boolean autoCommit) throws SQLException {
+		if (autoCommit == true) {
+			connection.commit();
+		}
+	}
+	
+	/**
+	 * Undo the current transaction after a failed write and report the error.
+	 * 
+	 * @param e  The exception that caused the rollback.
+	 */
+	private void rollbackTransaction(SQLException e) {
+		try {
+			connection.rollback();
+		} catch (SQLException e1) {
+			e1.printStackTrace();
+		}
+		reportError(e);
+	}
+	
+	/**
+	 * Restore the auto-commit state from before {@link #beginTransaction()}.
+	 * 
+	 * @param autoCommit  The previous auto-commit state.
+	 */
+	private void endTransaction(boolean autoCommit) {
+		try {
+			connection.setAutoCommit(autoCommit);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * @param table  A data table.
+	 * @return       An insert statement for the contents of a variable that updates the value if the statement 
+	 *               already has a value for the variable. The parameters are the statement ID, variable ID, 
+	 *               statement type ID and value.
+	 */
+	String upsertData(String table) {
+		return upsertInto(table, new String[] {"StatementId", "VariableId"}, "StatementId", "VariableId", "StatementTypeId", "Value");
+	}
+	
+	/**
+	 * Create a native upsert: ON CONFLICT for SQLite and ON DUPLICATE KEY for MySQL. The key must be the 
+	 * primary key or a unique index of the table, which {@link SchemaMigrator} ensures for older files.
+	 * 
+	 * @param table    The table.
+	 * @param key      The columns of the key that identifies existing rows.
+	 * @param columns  The columns to write, including the key columns.
+	 * @return         An insert statement with a placeholder for each column, in order, that updates the columns 
+	 *                 outside the key if a row with the same key exists.
+	 */
+	String upsertInto(String table, String[] key, String... columns) {
+		String names = "";
+		String placeholders = "";
+		String updates = "";
+		for (int i = 0; i < columns.length; i++) {
+			names = names + (i > 0 ? ", " : "") + columns[i];
+			placeholders = placeholders + (i > 0 ? ", " : "") + "?";
+			if (!Arrays.asList(key).contains(columns[i])) {
+				updates = updates + (updates.equals("") ? "" : ", ") + columns[i] + " = " 
+						+ (dbtype.equals("mysql") ? "VALUES(" + columns[i] + ")" : "excluded." + columns[i]);
+			}
+		}
+		String upsert = "INSERT INTO " + table + " (" + names + ") VALUES (" + placeholders + ") ";
+		if (dbtype.equals("mysql")) {
+			return upsert + "ON DUPLICATE KEY UPDATE " + updates;
+		} else {
+			String keyNames = Arrays.toString(key);
+			return upsert + "ON CONFLICT (" + keyNames.substring(1, keyNames.length() - 1) + ") DO UPDATE SET " + updates;
+		}
+	}
+	
+	/**
+	 * The IDs and data types of the variables in the VARIABLES table, by statement type and variable name, so 
+	 * that the data tables can be written with literal variable IDs instead of a sub-query per row. The 
+	 * table is read once when a variable is first looked up and again after {@link #clear()}, which 
+	 * {@link SqlConnection#upsertStatementType(StatementType)} calls when the variables change. The 
+	 * connection of the {@link WriteQueue} shares the cache of the connection it was opened from.
+	 */
+	static class VariableCache {
+		HashMap<String, Integer> ids = null;  // "statementTypeId|variable" -> variable ID
+		HashMap<String, String> dataTypes = null;  // "statementTypeId|variable" -> data type
+		
+		/**
+		 * @return  The ID of a variable.
+		 * @throws SQLException  If the variable does not exist.
+		 */
+		synchronized int getId(SqlConnection sql, int statementTypeId, String variable) throws SQLException {
+			return ids.get(lookUp(sql, statementTypeId, variable));
+		}
+		
+		/**
+		 * @return  The data type of a variable.
+		 * @throws SQLException  If the variable does not exist.
+		 */
+		synchronized String getDataType(SqlConnection sql, int statementTypeId, String variable) throws SQLException {
+			return dataTypes.get(lookUp(sql, statementTypeId, variable));
+		}
+		
+		/**
+		 * Forget the variables, so that they are read again on the next look-up.
+		 */
+		synchronized void clear() {
+			ids = null;
+			dataTypes = null;
+		}
+		
+		/**
+		 * Make sure that a variable is in the cache. If it is missing, the table is read again, in case the 
+		 * variable was added through another connection.
+		 * 
+		 * @return  The key of the variable in the maps.
+		 */
+		private String lookUp(SqlConnection sql, int statementTypeId, String variable) throws SQLException {
+			String key = statementTypeId + "|" + variable;
+			if (ids == null || !ids.containsKey(key)) {
+				load(sql);
+			}
+			if (!ids.containsKey(key)) {
+				throw new SQLException("Variable \"" + variable + "\" does not exist in statement type " + statementTypeId + ".");
+			}
+			return key;
+		}
+		
+		private void load(SqlConnection sql) throws SQLException {
+			HashMap<String, Integer> ids = new HashMap<String, Integer>();
+			HashMap<String, String> dataTypes = new HashMap<String, String>();
+			PreparedStatement preStatement = sql.connection.prepareStatement("SELECT ID, Variable, DataType, StatementTypeId FROM VARIABLES");
+			ResultSet result = preStatement.executeQuery();
+			while (result.next()) {
+				String key = result.getInt("StatementTypeId") + "|" + result.getString("Variable");
+				ids.put(key, result.getInt("ID"));
+				dataTypes.put(key, result.getString("DataType"));
+			}
+			result.close();
+			preStatement.close();
+			this.ids = ids;
+			this.dataTypes = dataTypes;
+		}
+	}
+	
+	/**
+	 * @param dataType  A variable data type: "boolean", "integer", "short text" or "long text".
+	 * @return          The name of the table storing the contents of variables with this data type.
+	 */
+	static String dataTable(String dataType) {
+		if (dataType.equals("boolean")) {
+			return "DATABOOLEAN";
+		} else if (dataType.equals("integer")) {
+			return "DATAINTEGER";
+		} else if (dataType.equals("short text")) {
+			return "DATASHORTTEXT";
+		} else if (dataType.equals("long text")) {
+			return "DATALONGTEXT";
+		}
+		throw new IllegalArgumentException("Unknown data type: " + dataType);
+	}
+	
+	/**
+	 * Tell the user that a database access failed and print the stack trace.
+	 * 
+	 * @param e  The exception.
+	 */
+	private void reportError(SQLException e) {
+		if (collectErrors == true) {  // the write queue reports the error
+			if (writeError == null) {
+				writeError = e;
+			}
+			e.printStackTrace();
+			return;
+		}
+		if (Dna.dna != null) {  // not in headless mode
+			JOptionPane.showMessageDialog(Dna.dna.gui, 
+					"Database access could not be executed properly. Report this problem along with the \n "
+					+ "error log if you can see a systematic pattern here. Also, reload your file.");
+		}
+		e.printStackTrace();
+	}
+	
 	/**
 	 * Execute a statement on the database.
 	 * 
 	 * @param myStatement     A string representation of the SQL statement.
 	 */
 	public void executeStatement(String myStatement) {
+		executeStatement(myStatement, new Object[0]);
+	}
+	
+	/**
+	 * Execute a prepared statement on the database.
+	 * 
+	 * @param myStatement     A string representation of the SQL statement with placeholders.
+	 * @param parameters      Values for the placeholders, in order.
+	 */
+	void executeStatement(String myStatement, Object... parameters) {
 		try {
 			PreparedStatement preStatement = (PreparedStatement) connection.prepareStatement(myStatement);
+			setParameters(preStatement, parameters);
 			preStatement.execute();
 			preStatement.close();
 		} catch (SQLException e) {
-			JOptionPane.showMessageDialog(Dna.dna.gui, 
-					"Database access could not be executed properly. Report this problem along with the \n "
-					+ "error log if you can see a systematic pattern here. Also, reload your file.");
-			e.printStackTrace();
+			reportError(e);
 		}
 	}
 	
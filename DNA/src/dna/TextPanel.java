@@ -174,10 +174,10 @@ public class TextPanel extends JPanel {
 					codersVisible.add(Dna.data.getCoderRelations().get(i).getOtherCoder());  // which coders are visible?
 				}
 			}
-			for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-				if (Dna.data.getStatements().get(i).getDocumentId() == documentId 
-						&& codersVisible.contains(Dna.data.getStatements().get(i).getCoder())) {
-					statements.add(Dna.data.getStatements().get(i));  // add to list of statements to be painted
+			ArrayList<Statement> inDocument = Dna.data.getStatementsByDocumentId(documentId);
+			for (int i = 0; i < inDocument.size(); i++) {
+				if (codersVisible.contains(inDocument.get(i).getCoder())) {
+					statements.add(inDocument.get(i));  // add to list of statements to be painted
 				}
 			}
 			for (int i = 0; i < statements.size(); i++) {
@@ -274,35 +274,32 @@ public class TextPanel extends JPanel {
 			int pos = textWindow.getCaretPosition(); //click caret position
 			Point p = me.getPoint();
 			
-			for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-				if (Dna.data.getStatements().get(i).getDocumentId() == documentId 
-						&& Dna.data.getStatements().get(i).getStart() < pos 
-						&& Dna.data.getStatements().get(i).getStop() > pos) {
-					boolean[] b = Dna.data.getActiveStatementPermissions(Dna.data.getStatements().get(i).getId());
-					if (b[0] == true) {  // statement is visible to the active coder
-						int statementId = Dna.data.getStatements().get(i).getId();
-						int startIndex = Dna.data.getStatements().get(i).getStart();
-						int stopIndex = Dna.data.getStatements().get(i).getStop();
-						Point location = textWindow.getLocationOnScreen();
-						textWindow.setSelectionStart(startIndex);
-						textWindow.setSelectionEnd(stopIndex);
-						int row = Dna.dna.gui.rightPanel.statementPanel.ssc.getIndexByStatementId(statementId);
-						if (row > -1) {
-							Dna.dna.gui.rightPanel.statementPanel.statementTable.setRowSelectionInterval(row, row);
-							Dna.dna.gui.rightPanel.statementPanel.statementTable.scrollRectToVisible(new Rectangle(  // scroll to selected row
-									Dna.dna.gui.rightPanel.statementPanel.statementTable.getCellRect(i, 0, true)));
-						}
-						int docModelIndex = Dna.dna.gui.documentPanel.documentContainer.getModelIndexById(Dna.data.getStatements().get(i).getDocumentId());
-						int docRow = Dna.dna.gui.documentPanel.documentTable.convertRowIndexToView(docModelIndex);
-						//int docRow = Dna.dna.gui.documentPanel.documentContainer.getRowIndexById(Dna.data.getStatements().get(i).getDocumentId());
-						Dna.dna.gui.documentPanel.documentTable.scrollRectToVisible(new Rectangle(Dna.dna.gui.documentPanel.documentTable.getCellRect(docRow, 0, true)));
-						if (b[1] == true) {  // statement is editable by the active coder
-							new Popup(p, statementId, location, true);
-						} else {
-							new Popup(p, statementId, location, false);
-						}
-						break;
+			ArrayList<Statement> covering = Dna.data.getStatementsAt(documentId, pos);
+			for (int i = 0; i < covering.size(); i++) {
+				boolean[] b = Dna.data.getActiveStatementPermissions(covering.get(i).getId());
+				if (b[0] == true) {  // statement is visible to the active coder
+					int statementId = covering.get(i).getId();
+					int startIndex = covering.get(i).getStart();
+					int stopIndex = covering.get(i).getStop();
+					Point location = textWindow.getLocationOnScreen();
+					textWindow.setSelectionStart(startIndex);
+					textWindow.setSelectionEnd(stopIndex);
+					int row = Dna.dna.gui.rightPanel.statementPanel.ssc.getIndexByStatementId(statementId);
+					if (row > -1) {
+						Dna.dna.gui.rightPanel.statementPanel.statementTable.setRowSelectionInterval(row, row);
+						Dna.dna.gui.rightPanel.statementPanel.statementTable.scrollRectToVisible(new Rectangle(  // scroll to selected row
+								Dna.dna.gui.rightPanel.statementPanel.statementTable.getCellRect(row, 0, true)));
 					}
+					int docModelIndex = Dna.dna.gui.documentPanel.documentContainer.getModelIndexById(covering.get(i).getDocumentId());
+					int docRow = Dna.dna.gui.documentPanel.documentTable.convertRowIndexToView(docModelIndex);
+					//int docRow = Dna.dna.gui.documentPanel.documentContainer.getRowIndexById(covering.get(i).getDocumentId());
+					Dna.dna.gui.documentPanel.documentTable.scrollRectToVisible(new Rectangle(Dna.dna.gui.documentPanel.documentTable.getCellRect(docRow, 0, true)));
+					if (b[1] == true) {  // statement is editable by the active coder
+						new Popup(p, statementId, location, true);
+					} else {
+						new Popup(p, statementId, location, false);
+					}
+					break;
 				}
 			}
 		}
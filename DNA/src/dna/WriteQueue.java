@@ -0,0 +1,248 @@
+package dna;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Writes the changes made in the GUI to the database in the background. The GUI changes the data in memory
+ * right away and hands the database write over to the queue, so that the event dispatch thread does not
+ * wait for the database. A writer thread with its own connection executes the queued writes in groups, one
+ * transaction per group. Writes that are queued with the same key, for example repeated edits of the same
+ * variable of a statement, are coalesced as long as the earlier write is still waiting, so only the last
+ * value is written. Writes without a key, such as inserts and deletions, are never coalesced and keep their
+ * order relative to all other writes.
+ *
+ * If a group fails, it is rolled back and its writes are repeated one by one, so that only the failed writes
+ * are lost; these are reported to the {@link FailureListener}. {@link #flush()} waits until all queued
+ * writes are in the database, and {@link #close()} flushes the queue and closes the connection.
+ */
+public class WriteQueue implements Runnable {
+	static final int GROUP = 500;  // maximal number of writes per transaction
+	SqlConnection sql;
+	ArrayList<Write> pending = new ArrayList<Write>();
+	HashMap<String, Write> coalescable = new HashMap<String, Write>();  // key -> pending write since the last write without key
+	boolean busy = false;  // true while the writer thread executes a group
+	boolean closed = false;
+	Thread writer;
+	FailureListener failureListener;
+
+	/**
+	 * A database write.
+	 */
+	public interface Operation {
+
+		/**
+		 * @param sql  The connection of the write queue.
+		 * @throws Exception  If the write fails.
+		 */
+		void run(SqlConnection sql) throws Exception;
+	}
+
+	/**
+	 * Is told about writes that could not be executed.
+	 */
+	public interface FailureListener {
+
+		/**
+		 * @param description  A description of the write.
+		 * @param e            The reason.
+		 */
+		void writeFailed(String description, Exception e);
+	}
+
+	static class Write {
+		String key;
+		String description;
+		Operation operation;
+
+		Write(String key, String description, Operation operation) {
+			this.key = key;
+			this.description = description;
+			this.operation = operation;
+		}
+	}
+
+	/**
+	 * Open a second connection to the database of an existing connection and start the writer thread.
+	 *
+	 * @param connection  The connection to the database that is written to.
+	 */
+	public WriteQueue(SqlConnection connection) {
+		this.sql = new SqlConnection(connection.dbtype, connection.dbfile, connection.login, connection.password);
+		this.sql.collectErrors = true;
+		this.sql.variables = connection.variables;  // cleared when the statement types are changed through either connection
+		this.failureListener = new FailureListener() {
+			public void writeFailed(String description, Exception e) {
+				System.err.println("Write failed: " + description + ": " + e.getMessage());
+			}
+		};
+		writer = new Thread(this, "Database writer");
+		writer.setDaemon(true);  // close() must be called to write the remaining changes
+		writer.start();
+	}
+
+	/**
+	 * @param failureListener  Is told about writes that could not be executed, on the writer thread.
+	 */
+	public void setFailureListener(FailureListener failureListener) {
+		this.failureListener = failureListener;
+	}
+
+	/**
+	 * Queue a write.
+	 *
+	 * @param key          Identifies the database row and column that is written, for example
+	 *                     "variable 12 concept"; a waiting write with the same key is replaced. {@code null}
+	 *                     if the write must not be coalesced, for example an insert or deletion.
+	 * @param description  A description of the write for error messages.
+	 * @param operation    The write. It runs on the writer thread, so it must not use objects that the GUI can
+	 *                     change in the meantime, such as statements or documents; it should write copies of them.
+	 */
+	public synchronized void submit(String key, String description, Operation operation) {
+		if (closed == true) {
+			throw new IllegalStateException("The write queue has been closed.");
+		}
+		if (key == null) {
+			coalescable.clear();  // later writes must not overtake this one
+			pending.add(new Write(null, description, operation));
+		} else {
+			Write waiting = coalescable.get(key);
+			if (waiting != null) {
+				waiting.description = description;
+				waiting.operation = operation;
+			} else {
+				Write write = new Write(key, description, operation);
+				pending.add(write);
+				coalescable.put(key, write);
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Wait until all queued writes have been executed.
+	 */
+	public synchronized void flush() {
+		while (!pending.isEmpty() || busy == true) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Execute the remaining writes, stop the writer thread and close the connection of the queue.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		sql.closeConnection();
+	}
+
+	/**
+	 * @return  The number of writes that are waiting.
+	 */
+	public synchronized int size() {
+		return pending.size();
+	}
+
+	public void run() {
+		while (true) {
+			ArrayList<Write> group;
+			synchronized (this) {
+				while (pending.isEmpty() && closed == false) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// keep writing until the queue is closed
+					}
+				}
+				if (pending.isEmpty()) {
+					notifyAll();
+					return;  // closed and done
+				}
+				group = new ArrayList<Write>(pending.subList(0, Math.min(GROUP, pending.size())));
+				pending.subList(0, group.size()).clear();
+				for (int i = 0; i < group.size(); i++) {
+					if (group.get(i).key != null && coalescable.get(group.get(i).key) == group.get(i)) {
+						coalescable.remove(group.get(i).key);
+					}
+				}
+				busy = true;
+			}
+			if (execute(group) == false && group.size() > 1) {
+				for (int i = 0; i < group.size(); i++) {  // find the writes that fail
+					ArrayList<Write> single = new ArrayList<Write>();
+					single.add(group.get(i));
+					execute(single);
+				}
+			}
+			synchronized (this) {
+				busy = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Execute writes in one transaction. If there is only one write and it fails, the failure listener is
+	 * told.
+	 *
+	 * @return  True if the transaction was committed, false if it was rolled back.
+	 */
+	boolean execute(ArrayList<Write> group) {
+		Exception failure = null;
+		Write failed = null;
+		try {
+			sql.connection.setAutoCommit(false);
+			for (int i = 0; i < group.size() && failure == null; i++) {
+				try {
+					group.get(i).operation.run(sql);
+				} catch (Exception e) {
+					failure = e;
+				}
+				if (failure == null && sql.writeError != null) {  // caught and recorded by the connection
+					failure = sql.writeError;
+				}
+				if (failure != null) {
+					failed = group.get(i);
+				}
+			}
+			if (failure == null) {
+				sql.connection.commit();
+			} else {
+				sql.connection.rollback();
+			}
+		} catch (SQLException | NullPointerException e) {  // no connection or the connection was lost
+			failure = e;
+			failed = group.get(0);
+			try {
+				sql.connection.rollback();
+			} catch (SQLException | NullPointerException e1) {
+				e1.printStackTrace();
+			}
+		} finally {
+			sql.writeError = null;
+			try {
+				sql.connection.setAutoCommit(true);
+			} catch (SQLException | NullPointerException e) {
+				e.printStackTrace();
+			}
+		}
+		if (failure != null && group.size() == 1) {
+			failureListener.writeFailed(failed.description, failure);
+		}
+		return failure == null;
+	}
+}
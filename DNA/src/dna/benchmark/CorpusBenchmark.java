@@ -0,0 +1,170 @@
+package dna.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import dna.Dna;
+import dna.SqlConnection;
+import dna.dataStructures.Data;
+import dna.dataStructures.Document;
+import dna.dataStructures.Statement;
+import dna.dataStructures.TextIndex;
+import dna.export.ExportService;
+import dna.export.ExportSetting;
+import dna.export.NetworkCreator;
+
+/**
+ * Times the main operations of DNA on a synthetic corpus from the {@link CorpusGenerator}, so that
+ * performance regressions can be tracked: reading a database with {@link SqlConnection#getAllData()},
+ * inserting statements with {@link SqlConnection#addStatements(ArrayList)}, two-mode, one-mode and
+ * conflict network exports, the full-text search of the search window with and without the text index,
+ * and the look-ups of the statements in a document and at a text position, which the text panel does when
+ * it paints and selects statements.
+ * The database operations need the SQLite JDBC driver on the class path and are skipped otherwise. Usage:
+ *
+ * <pre>
+ * java dna.benchmark.CorpusBenchmark [documents] [statements] [rounds]
+ * </pre>
+ */
+public class CorpusBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int documents = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int statements = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		final CorpusGenerator generator = new CorpusGenerator();
+		generator.setDocuments(documents);
+		generator.setStatements(statements);
+		final Data data = generator.generate();
+		Dna.data = data;
+		System.out.println("Documents: " + documents + ", statements: " + statements + ", processors: "
+				+ Runtime.getRuntime().availableProcessors());
+
+		// database
+		System.out.println("Database:");
+		if (sqliteAvailable()) {
+			final File file = File.createTempFile("benchmark", ".dna");
+			file.deleteOnExit();
+			generator.writeDatabase(data, file.getPath());
+			Timing.bestOf("getAllData", rounds, new Runnable() {
+				public void run() {
+					SqlConnection sql = new SqlConnection("sqlite", file.getPath(), "", "");
+					sql.getAllData();
+					sql.closeConnection();
+				}
+			});
+			Data documentsOnly = generator.generate();
+			documentsOnly.setStatements(new ArrayList<Statement>());
+			generator.writeDatabase(documentsOnly, file.getPath());
+			Timing.bestOf("addStatements", 1, new Runnable() {
+				public void run() {
+					SqlConnection sql = new SqlConnection("sqlite", file.getPath(), "", "");
+					sql.executeStatement("DELETE FROM DATASHORTTEXT");
+					sql.executeStatement("DELETE FROM DATABOOLEAN");
+					sql.executeStatement("DELETE FROM DATAINTEGER");
+					sql.executeStatement("DELETE FROM STATEMENTS");
+					sql.addStatements(data.getStatements());
+					sql.closeConnection();
+				}
+			});
+		} else {
+			System.out.println("  skipped: the SQLite JDBC driver (org.sqlite.JDBC) is not on the class path");
+		}
+
+		// network export
+		System.out.println("Network export:");
+		ExportService service = new ExportService(data);
+		final ExportSetting twoMode = service.createSetting("twoMode", "DNA Statement", "organization", "concept");
+		final ExportSetting oneMode = service.createSetting("oneMode", "DNA Statement", "organization", "concept");
+		final ExportSetting conflict = service.createSetting("oneMode", "DNA Statement", "organization", "concept");
+		oneMode.setQualifier("agreement");
+		conflict.setQualifier("agreement");
+		conflict.setAgreementPattern("conflict");
+		ExportSetting[] settings = new ExportSetting[] {twoMode, oneMode, conflict};
+		String[] names = new String[] {"two-mode network", "one-mode network", "one-mode conflict network"};
+		for (int i = 0; i < settings.length; i++) {
+			final NetworkCreator networkCreator = new NetworkCreator(settings[i], data);
+			Timing.bestOf(names[i], rounds, new Runnable() {
+				public void run() {
+					networkCreator.network(networkCreator.filter());
+				}
+			});
+		}
+
+		// search window: case-insensitive regular expression over all document texts
+		System.out.println("Text:");
+		final String searchTerm = "word4242\\b";  // a rare word
+		final Pattern pattern = Pattern.compile(searchTerm, Pattern.CASE_INSENSITIVE);
+		final int[] matches = new int[2];
+		Timing.bestOf("full-text search", rounds, new Runnable() {
+			public void run() {
+				matches[0] = search(data, pattern, null);
+			}
+		});
+		Timing.bestOf("build text index", 1, new Runnable() {
+			public void run() {
+				new TextIndex(data.documents).getCandidates("word42");
+			}
+		});
+		Timing.bestOf("indexed full-text search", rounds, new Runnable() {
+			public void run() {
+				matches[1] = search(data, pattern, data.getTextIndex().getCandidates(searchTerm));
+			}
+		});
+		System.out.println("  (" + matches[0] + " and " + matches[1] + " matches)");
+
+		// text panel: statements of a document and statements at a position
+		final Random random = new Random(1);
+		Timing.bestOf("statements in 10000 documents", rounds, new Runnable() {
+			public void run() {
+				for (int i = 0; i < 10000; i++) {
+					data.getStatementsByDocumentId(1 + random.nextInt(data.getDocuments().size()));
+				}
+			}
+		});
+		Timing.bestOf("statements at 10000 positions", rounds, new Runnable() {
+			public void run() {
+				for (int i = 0; i < 10000; i++) {
+					Document d = data.getDocuments().get(random.nextInt(data.getDocuments().size()));
+					data.getStatementsAt(d.getId(), random.nextInt(d.getText().length()));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Search the documents as the search window does.
+	 *
+	 * @param candidates  The IDs of the documents to search, or {@code null} to search all documents.
+	 * @return            The number of matches.
+	 */
+	static int search(Data data, Pattern pattern, HashSet<Integer> candidates) {
+		int count = 0;
+		for (int i = 0; i < data.getDocuments().size(); i++) {
+			Document d = data.getDocuments().get(i);
+			if (candidates != null && !candidates.contains(d.getId())) {
+				continue;
+			}
+			Matcher m = pattern.matcher(d.getText());
+			while (m.find()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	static boolean sqliteAvailable() {
+		try {
+			Class.forName("org.sqlite.JDBC");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
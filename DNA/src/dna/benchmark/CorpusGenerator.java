@@ -0,0 +1,280 @@
+package dna.benchmark;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import dna.SqlConnection;
+import dna.dataStructures.Coder;
+import dna.dataStructures.Data;
+import dna.dataStructures.Document;
+import dna.dataStructures.Statement;
+import dna.dataStructures.StatementType;
+
+/**
+ * Generates synthetic DNA corpora for benchmarks. The numbers of documents, statements, statement types,
+ * actors, concepts and qualifier levels can be configured. As in real discourse data, a few actors and
+ * concepts account for most of the statements: actors, concepts, words of the document texts, authors
+ * and sources are drawn from Zipf distributions. Each statement covers a few words of its document, and
+ * the documents are spread over several years.
+ *
+ * The first statement type is "DNA Statement" with the variables organization, concept and agreement;
+ * further statement types have the same structure with the variables actor, concept and level. The
+ * values are called "organization 0", "concept 0" etc., with 0 being the most frequent value. The corpus
+ * is returned as a {@link Data} object or written to an SQLite .dna file. Usage:
+ *
+ * <pre>
+ * java dna.benchmark.CorpusGenerator file.dna [documents] [statements]
+ * </pre>
+ */
+public class CorpusGenerator {
+	int documents = 1000;
+	int statements = 20000;
+	int statementTypes = 1;
+	int actors = 500;
+	int concepts = 100;
+	int qualifierLevels = 2;
+	int wordsPerDocument = 300;
+	int years = 10;
+	double exponent = 1.0;
+	long seed = 1;
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: java dna.benchmark.CorpusGenerator file.dna [documents] [statements]");
+			System.exit(1);
+		}
+		CorpusGenerator generator = new CorpusGenerator();
+		if (args.length > 1) {
+			generator.setDocuments(Integer.parseInt(args[1]));
+		}
+		if (args.length > 2) {
+			generator.setStatements(Integer.parseInt(args[2]));
+		}
+		generator.writeDatabase(generator.generate(), args[0]);
+	}
+
+	/**
+	 * @param documents  The number of documents (default: 1000).
+	 */
+	public void setDocuments(int documents) {
+		this.documents = documents;
+	}
+
+	/**
+	 * @param statements  The number of statements, spread over all statement types (default: 20000).
+	 */
+	public void setStatements(int statements) {
+		this.statements = statements;
+	}
+
+	/**
+	 * @param statementTypes  The number of statement types (default: 1).
+	 */
+	public void setStatementTypes(int statementTypes) {
+		this.statementTypes = statementTypes;
+	}
+
+	/**
+	 * @param actors  The number of different actors, e.g., organizations (default: 500).
+	 */
+	public void setActors(int actors) {
+		this.actors = actors;
+	}
+
+	/**
+	 * @param concepts  The number of different concepts (default: 100).
+	 */
+	public void setConcepts(int concepts) {
+		this.concepts = concepts;
+	}
+
+	/**
+	 * @param qualifierLevels  The number of levels of the qualifier variable; 2 for a boolean agreement
+	 *                         variable, more for an integer scale starting at 0 (default: 2).
+	 */
+	public void setQualifierLevels(int qualifierLevels) {
+		this.qualifierLevels = qualifierLevels;
+	}
+
+	/**
+	 * @param wordsPerDocument  The average length of the document texts in words (default: 300).
+	 */
+	public void setWordsPerDocument(int wordsPerDocument) {
+		this.wordsPerDocument = wordsPerDocument;
+	}
+
+	/**
+	 * @param years  The number of years, starting in 2010, over which the documents are spread (default: 10).
+	 */
+	public void setYears(int years) {
+		this.years = years;
+	}
+
+	/**
+	 * @param exponent  The exponent of the Zipf distributions; 0 means uniform distributions (default: 1.0).
+	 */
+	public void setExponent(double exponent) {
+		this.exponent = exponent;
+	}
+
+	/**
+	 * @param seed  The seed of the random number generator; the same seed gives the same corpus (default: 1).
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Generate a corpus in memory.
+	 *
+	 * @return  The data, with one coder, the statement types, documents and statements.
+	 */
+	public Data generate() {
+		Random random = new Random(seed);
+		Data data = new Data();
+		Coder coder = new Coder(1);
+		coder.setName("Admin");
+		data.addCoder(coder);
+		data.setActiveCoder(1);
+		data.getSettings().put("statementColor", "coder");
+		for (int t = 1; t <= statementTypes; t++) {
+			data.addStatementType(createStatementType(t));
+		}
+
+		Zipf actorDistribution = new Zipf(actors, exponent);
+		Zipf conceptDistribution = new Zipf(concepts, exponent);
+		Zipf authorDistribution = new Zipf(50, exponent);
+		Zipf sourceDistribution = new Zipf(20, exponent);
+		Zipf wordDistribution = new Zipf(5000, exponent);
+
+		long first = 1262304000000L;  // 2010-01-01
+		long day = 86400000L;
+		ArrayList<Document> documentList = new ArrayList<Document>();
+		ArrayList<int[]> wordStarts = new ArrayList<int[]>();
+		ArrayList<int[]> wordEnds = new ArrayList<int[]>();
+		for (int i = 1; i <= documents; i++) {
+			int length = wordsPerDocument / 2 + random.nextInt(wordsPerDocument + 1);
+			int[] starts = new int[length];
+			int[] ends = new int[length];
+			StringBuilder text = new StringBuilder();
+			for (int w = 0; w < length; w++) {
+				if (w > 0) {
+					text.append(w % 15 == 0 ? ". " : " ");  // a sentence of 15 words
+				}
+				starts[w] = text.length();
+				text.append("word").append(wordDistribution.next(random));
+				ends[w] = text.length();
+			}
+			wordStarts.add(starts);
+			wordEnds.add(ends);
+			documentList.add(new Document(i, "Document " + i, text.toString(), 1, "author " + authorDistribution.next(random),
+					"source " + sourceDistribution.next(random), "section " + random.nextInt(10), "",
+					"type " + random.nextInt(5), new Date(first + random.nextInt(365 * years) * day)));
+		}
+		data.setDocuments(documentList);
+
+		ArrayList<Statement> statementList = new ArrayList<Statement>();
+		for (int i = 1; i <= statements; i++) {
+			int d = random.nextInt(documents);
+			Document document = documentList.get(d);
+			int words = wordStarts.get(d).length;
+			int firstWord = random.nextInt(words);
+			int lastWord = Math.min(words - 1, firstWord + random.nextInt(8));  // statements cover up to eight words
+			int type = 1 + random.nextInt(statementTypes);
+			Statement s = new Statement(i, document.getId(), wordStarts.get(d)[firstWord], wordEnds.get(d)[lastWord], 
+					document.getDate(), type, 1);
+			String[] variables = data.getStatementTypeById(type).getVariables().keySet().toArray(new String[3]);
+			s.getValues().put(variables[0], "organization " + actorDistribution.next(random));
+			s.getValues().put(variables[1], "concept " + conceptDistribution.next(random));
+			s.getValues().put(variables[2], random.nextInt(qualifierLevels));
+			statementList.add(s);
+		}
+		data.setStatements(statementList);
+		return data;
+	}
+
+	private StatementType createStatementType(int id) {
+		LinkedHashMap<String, String> variables = new LinkedHashMap<String, String>();
+		String qualifierType = qualifierLevels == 2 ? "boolean" : "integer";
+		if (id == 1) {
+			variables.put("organization", "short text");
+			variables.put("concept", "short text");
+			variables.put("agreement", qualifierType);
+			return new StatementType(id, "DNA Statement", Color.YELLOW, variables);
+		}
+		variables.put("actor", "short text");
+		variables.put("concept", "short text");
+		variables.put("level", qualifierType);
+		return new StatementType(id, "Statement type " + id, Color.getHSBColor(id / 7f, 0.5f, 1f), variables);
+	}
+
+	/**
+	 * Write a corpus to a new SQLite database. An existing file is replaced. Needs the SQLite JDBC driver
+	 * on the class path.
+	 *
+	 * @param data    The corpus, as created by {@link #generate()}.
+	 * @param dbfile  The file name of the .dna database.
+	 */
+	public void writeDatabase(Data data, String dbfile) {
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("The SQLite JDBC driver (org.sqlite.JDBC) is not on the class path.");
+		}
+		File file = new File(dbfile);
+		if (file.exists()) {
+			file.delete();
+		}
+		SqlConnection sql = new SqlConnection("sqlite", dbfile, "", "");
+		sql.createDataStructure();
+		HashMap<String, String> settings = data.getSettings();
+		String[] keys = settings.keySet().toArray(new String[0]);
+		Arrays.sort(keys);
+		for (int i = 0; i < keys.length; i++) {
+			sql.upsertSetting(keys[i], settings.get(keys[i]));
+		}
+		for (int i = 0; i < data.getCoders().size(); i++) {
+			sql.addCoder(data.getCoders().get(i));
+		}
+		for (int i = 0; i < data.getStatementTypes().size(); i++) {
+			sql.upsertStatementType(data.getStatementTypes().get(i));
+		}
+		sql.insertDocuments(data.getDocuments());
+		sql.addStatements(data.getStatements());
+		sql.closeConnection();
+	}
+
+	/**
+	 * Draws ranks 0 to n - 1 from a Zipf distribution, in which the probability of rank k is proportional
+	 * to 1 / (k + 1)^exponent.
+	 */
+	static class Zipf {
+		double[] cumulative;
+
+		Zipf(int n, double exponent) {
+			cumulative = new double[n];
+			double sum = 0;
+			for (int k = 0; k < n; k++) {
+				sum += 1.0 / Math.pow(k + 1, exponent);
+				cumulative[k] = sum;
+			}
+			for (int k = 0; k < n; k++) {
+				cumulative[k] = cumulative[k] / sum;
+			}
+		}
+
+		int next(Random random) {
+			int k = Arrays.binarySearch(cumulative, random.nextDouble());
+			if (k < 0) {
+				k = -k - 1;
+			}
+			return Math.min(k, cumulative.length - 1);
+		}
+	}
+}
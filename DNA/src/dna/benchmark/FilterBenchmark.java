@@ -0,0 +1,124 @@
+package dna.benchmark;
+
+import java.util.Date;
+
+import dna.Dna;
+import dna.dataStructures.Data;
+import dna.dataStructures.Statement;
+import dna.export.ExportSetting;
+import dna.export.NetworkCreator;
+import dna.export.StatementFilter;
+
+/**
+ * Measures the throughput of the statement filter of the network export in statements per second, on a 
+ * synthetic data set. Three variants are compared: a plain loop that looks up the document of each 
+ * statement and searches the exclusion lists (the way the filter used to work), a loop over the compiled 
+ * {@link StatementFilter}, and {@link NetworkCreator#filter()}, which applies the compiled filter with a 
+ * parallel stream. Usage:
+ *
+ * <pre>
+ * java dna.benchmark.FilterBenchmark [statements] [documents] [rounds]
+ * </pre>
+ */
+public class FilterBenchmark {
+
+	public static void main(String[] args) {
+		int statements = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int documents = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		Data data = createData(statements, documents);
+		Dna.data = data;
+		ExportSetting exportSetting = createSetting(data);
+
+		System.out.println("Statements: " + statements + ", documents: " + documents + ", processors: " 
+				+ Runtime.getRuntime().availableProcessors());
+		measure("lookup loop", rounds, statements, () -> lookupLoop(data, exportSetting));
+		measure("compiled filter, sequential", rounds, statements, () -> compiledLoop(data, exportSetting));
+		NetworkCreator networkCreator = new NetworkCreator(exportSetting, data);
+		measure("compiled filter, parallel", rounds, statements, () -> networkCreator.filter().size());
+	}
+
+	/**
+	 * Create a data set with one statement type (organization, concept, agreement) and uniformly distributed 
+	 * documents and statements spread over ten years.
+	 */
+	static Data createData(int statements, int documents) {
+		CorpusGenerator generator = new CorpusGenerator();
+		generator.setStatements(statements);
+		generator.setDocuments(documents);
+		generator.setWordsPerDocument(20);
+		generator.setExponent(0.0);
+		return generator.generate();
+	}
+
+	/**
+	 * Export settings for five of the ten years, with a few excluded authors, sources and concepts.
+	 */
+	static ExportSetting createSetting(Data data) {
+		ExportSetting exportSetting = new ExportSetting("oneMode", data.getStatementTypeById(1), new Date(1325376000000L), 
+				new Date(1483228800000L), "organization", "concept");
+		for (int i = 0; i < 10; i++) {
+			exportSetting.getAuthorExclude().add("author " + (i * 5));
+			exportSetting.getExcludeValues().get("concept").add("concept " + (i * 10));
+		}
+		exportSetting.getSourceExclude().add("source 3");
+		exportSetting.getTypeExclude().add("type 4");
+		return exportSetting;
+	}
+
+	static int lookupLoop(Data data, ExportSetting exportSetting) {
+		int count = 0;
+		for (int i = 0; i < data.getStatements().size(); i++) {
+			Statement s = data.getStatements().get(i);
+			if (s.getDate().before(exportSetting.getStartDate()) || s.getDate().after(exportSetting.getStopDate()) 
+					|| s.getStatementTypeId() != exportSetting.getStatementType().getId()) {
+				continue;
+			}
+			if (exportSetting.getAuthorExclude().contains(data.getDocument(s.getDocumentId()).getAuthor()) 
+					|| exportSetting.getSourceExclude().contains(data.getDocument(s.getDocumentId()).getSource()) 
+					|| exportSetting.getSectionExclude().contains(data.getDocument(s.getDocumentId()).getSection()) 
+					|| exportSetting.getTypeExclude().contains(data.getDocument(s.getDocumentId()).getType())) {
+				continue;
+			}
+			if (exportSetting.getExcludeValues().get("concept").contains((String) s.getValues().get("concept"))) {
+				continue;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	static int compiledLoop(Data data, ExportSetting exportSetting) {
+		StatementFilter statementFilter = new StatementFilter(exportSetting, data);
+		int count = 0;
+		for (int i = 0; i < data.getStatements().size(); i++) {
+			if (statementFilter.test(data.getStatements().get(i))) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Run a variant a few times to warm up the JIT compiler, then time the given number of rounds and print 
+	 * the throughput.
+	 */
+	static void measure(String name, int rounds, int statements, Variant variant) {
+		int result = 0;
+		for (int i = 0; i < 3; i++) {
+			result = variant.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			result = variant.run();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%-30s %12.0f statements/s  (%d selected, %.1f ms per round)", name, 
+				statements * rounds / seconds, result, seconds * 1000 / rounds));
+	}
+
+	interface Variant {
+		int run();
+	}
+}
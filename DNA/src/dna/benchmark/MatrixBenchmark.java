@@ -0,0 +1,129 @@
+package dna.benchmark;
+
+import java.util.Random;
+
+import dna.export.NetworkCreator;
+
+/**
+ * Compares the dense matrix operations of the network export with the naive triple loops they replaced,
+ * on random actor x concept matrices. For each size, the one-mode projection A * A^T is computed as
+ * {@code multiply(A, transpose(A))} with the naive loops and with {@link NetworkCreator#multiplyTranspose},
+ * the concept projection A^T * A with a general product, and the sum of two projections. The results of 
+ * both implementations are compared cell by cell. Usage:
+ *
+ * <pre>
+ * java dna.benchmark.MatrixBenchmark [actors concepts]...
+ * </pre>
+ */
+public class MatrixBenchmark {
+
+	public static void main(String[] args) {
+		int[][] sizes = new int[][] {{200, 50}, {1000, 200}, {3000, 400}};
+		if (args.length > 1) {
+			sizes = new int[args.length / 2][2];
+			for (int i = 0; i < sizes.length; i++) {
+				sizes[i][0] = Integer.parseInt(args[2 * i]);
+				sizes[i][1] = Integer.parseInt(args[2 * i + 1]);
+			}
+		}
+		System.out.println("Processors: " + Runtime.getRuntime().availableProcessors());
+		Random random = new Random(1);
+		for (int s = 0; s < sizes.length; s++) {
+			final double[][] a = createAffiliation(sizes[s][0], sizes[s][1], random);
+			System.out.println(sizes[s][0] + " actors x " + sizes[s][1] + " concepts:");
+			final double[][][] results = new double[4][][];
+			double naive = Timing.bestOf("naive multiply(A, transpose(A))", 3, new Runnable() {
+				public void run() {
+					results[0] = multiply(a, transpose(a));
+				}
+			});
+			double blocked = Timing.bestOf("blocked multiplyTranspose(A)", 3, new Runnable() {
+				public void run() {
+					results[1] = NetworkCreator.multiplyTranspose(a);
+				}
+			});
+			System.out.println(String.format("  speed-up %.1f, same result: %b", naive / blocked, same(results[0], results[1])));
+			naive = Timing.bestOf("naive multiply(transpose(A), A)", 3, new Runnable() {
+				public void run() {
+					results[2] = multiply(transpose(a), a);
+				}
+			});
+			blocked = Timing.bestOf("blocked multiply(transpose(A), A)", 3, new Runnable() {
+				public void run() {
+					results[3] = NetworkCreator.multiply(NetworkCreator.transpose(a), a);
+				}
+			});
+			System.out.println(String.format("  speed-up %.1f, same result: %b", naive / blocked, same(results[2], results[3])));
+			naive = Timing.bestOf("naive add", 3, new Runnable() {
+				public void run() {
+					results[2] = add(results[0], results[0]);
+				}
+			});
+			blocked = Timing.bestOf("parallel add", 3, new Runnable() {
+				public void run() {
+					results[3] = NetworkCreator.add(results[1], results[1]);
+				}
+			});
+			System.out.println(String.format("  speed-up %.1f, same result: %b", naive / blocked, same(results[2], results[3])));
+		}
+	}
+
+	/**
+	 * Create a two-mode network in which each actor refers to a few concepts, some of them repeatedly.
+	 */
+	static double[][] createAffiliation(int actors, int concepts, Random random) {
+		double[][] mat = new double[actors][concepts];
+		for (int i = 0; i < actors; i++) {
+			int statements = 1 + random.nextInt(Math.max(1, concepts / 4));
+			for (int k = 0; k < statements; k++) {
+				mat[i][random.nextInt(concepts)]++;
+			}
+		}
+		return mat;
+	}
+
+	static boolean same(double[][] mat1, double[][] mat2) {
+		for (int i = 0; i < mat1.length; i++) {
+			for (int j = 0; j < mat1[i].length; j++) {
+				if (mat1[i][j] != mat2[i][j]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// the naive implementations that were used before
+
+	static double[][] multiply(double[][] mat1, double[][] mat2) {
+		double[][] mat3 = new double[mat1.length][mat2[0].length];
+		for (int i = 0; i < mat1.length; i++) {
+			for (int j = 0; j < mat2[0].length; j++) {
+				for (int k = 0; k < mat1[0].length; k++) {
+					mat3[i][j] += mat1[i][k] * mat2[k][j];
+				}
+			}
+		}
+		return mat3;
+	}
+
+	static double[][] transpose(double[][] mat) {
+		double[][] t = new double[mat[0].length][mat.length];
+		for (int i = 0; i < mat[0].length; i++) {
+			for (int j = 0; j < mat.length; j++) {
+				t[i][j] = mat[j][i];
+			}
+		}
+		return t;
+	}
+
+	static double[][] add(double[][] mat1, double[][] mat2) {
+		double[][] mat3 = new double[mat1.length][mat1[0].length];
+		for (int i = 0; i < mat1.length; i++) {
+			for (int j = 0; j < mat1[0].length; j++) {
+				mat3[i][j] = mat1[i][j] + mat2[i][j];
+			}
+		}
+		return mat3;
+	}
+}
@@ -0,0 +1,27 @@
+package dna.benchmark;
+
+/**
+ * Times operations for the benchmarks.
+ */
+class Timing {
+
+	/**
+	 * Run an operation once to warm up the JIT compiler, then time a few runs and print the fastest one.
+	 *
+	 * @param name       The name of the operation, to be printed.
+	 * @param rounds     The number of timed runs.
+	 * @param operation  The operation.
+	 * @return           The time of the fastest run in milliseconds.
+	 */
+	static double bestOf(String name, int rounds, Runnable operation) {
+		operation.run();
+		double best = Double.MAX_VALUE;
+		for (int i = 0; i < rounds; i++) {
+			long start = System.nanoTime();
+			operation.run();
+			best = Math.min(best, (System.nanoTime() - start) / 1e6);
+		}
+		System.out.println(String.format("  %-35s %10.1f ms", name, best));
+		return best;
+	}
+}
@@ -26,6 +26,13 @@ public class AttributeVector implements Comparable<AttributeVector> {
 		this.variable = variable;
 	}
 	
+	/**
+	 * @return  A copy of the attribute vector, which can be handed over to another thread.
+	 */
+	public AttributeVector copy() {
+		return new AttributeVector(id, value, color, type, alias, notes, childOf, statementTypeId, variable);
+	}
+	
 	public String toString() {
 		return this.value;
 	}
@@ -43,6 +43,13 @@ public class Coder implements Comparable<Coder> {
 		this.permissions.put("editRegex", true);
 	}
 	
+	/**
+	 * @return  A copy of the coder with its own map of permissions, which can be handed over to another thread.
+	 */
+	public Coder copy() {
+		return new Coder(id, name, color, password, new HashMap<String, Boolean>(permissions));
+	}
+	
 	public String toString() {
 		return(this.getName());
 	}
@@ -0,0 +1,101 @@
+package dna.dataStructures;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A set of non-negative integers that uses little memory whether it is sparse or dense. Small sets are 
+ * stored as a sorted array of their members (four bytes per member); once the array would need more 
+ * memory than a bit set covering the largest member (one bit per position), the set is converted into a 
+ * {@link BitSet}. This keeps the many small bitmaps of a {@link StatementIndex}, for example the one of 
+ * each document, small, while frequent values such as a statement type get a plain bit set.
+ */
+public class CompactBitSet {
+	private int[] members = new int[4];  // sorted; used while bits == null
+	private int size = 0;
+	private BitSet bits = null;
+	
+	/**
+	 * Add a member.
+	 *
+	 * @param i  A non-negative integer.
+	 */
+	public void set(int i) {
+		if (i < 0) {
+			throw new IndexOutOfBoundsException("Negative member: " + i);
+		}
+		if (bits != null) {
+			bits.set(i);
+			return;
+		}
+		int p = size > 0 && members[size - 1] < i ? -size - 1 : Arrays.binarySearch(members, 0, size, i);  // IDs mostly grow
+		if (p >= 0) {
+			return;
+		}
+		p = -p - 1;
+		if ((long) (size + 1) * 32 > Math.max(i, members[size > 0 ? size - 1 : 0]) + 64) {  // a bit set is smaller
+			bits = new BitSet();
+			for (int j = 0; j < size; j++) {
+				bits.set(members[j]);
+			}
+			bits.set(i);
+			members = null;
+			size = 0;
+			return;
+		}
+		if (size == members.length) {
+			members = Arrays.copyOf(members, size * 2);
+		}
+		System.arraycopy(members, p, members, p + 1, size - p);
+		members[p] = i;
+		size++;
+	}
+	
+	/**
+	 * Remove a member.
+	 *
+	 * @param i  A non-negative integer.
+	 */
+	public void clear(int i) {
+		if (bits != null) {
+			bits.clear(i);
+			return;
+		}
+		int p = Arrays.binarySearch(members, 0, size, i);
+		if (p >= 0) {
+			System.arraycopy(members, p + 1, members, p, size - p - 1);
+			size--;
+		}
+	}
+	
+	/**
+	 * @return  Whether the set has no members.
+	 */
+	public boolean isEmpty() {
+		return bits != null ? bits.isEmpty() : size == 0;
+	}
+	
+	/**
+	 * Add the members of this set to a bit set (OR).
+	 *
+	 * @param target  The bit set.
+	 */
+	public void orInto(BitSet target) {
+		if (bits != null) {
+			target.or(bits);
+		} else {
+			for (int j = 0; j < size; j++) {
+				target.set(members[j]);
+			}
+		}
+	}
+	
+	/**
+	 * @return  A new bit set with the members of this set.
+	 */
+	public BitSet toBitSet() {
+		BitSet result = new BitSet();
+		orInto(result);
+		return result;
+	}
+}
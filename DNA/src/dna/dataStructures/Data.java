@@ -2,33 +2,41 @@ package dna.dataStructures;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 
 import dna.Dna;
 
 public class Data {
-	public ArrayList<Statement> statements;
-	public ArrayList<Document> documents;
-	public ArrayList<Coder> coders;
+	public IndexedList<Statement> statements;
+	public IndexedList<Document> documents;
+	public IndexedList<Coder> coders;
 	public ArrayList<Regex> regexes;
-	public ArrayList<StatementType> statementTypes;
-	public ArrayList<CoderRelation> coderRelations;
+	public IndexedList<StatementType> statementTypes;
+	public IndexedList<CoderRelation> coderRelations;
 	public HashMap<String, String> settings;
-	public ArrayList<StatementLink> statementLinks;
-	public ArrayList<AttributeVector> attributes;
+	public IndexedList<StatementLink> statementLinks;
+	public IndexedList<AttributeVector> attributes;
+	public StatementIndex statementIndex;  // bitmap indexes over the statements
+	public TextIndex textIndex;  // inverted index over the document texts
+	
+	private static final int STATEMENT_TYPE_LABEL = 1;  // number of the label index in the statement type list
+	private static final int STATEMENT_DOCUMENT = 0;  // number of the document group in the statement list
+	private static final int ATTRIBUTE_VALUE = 1;  // number of the (statement type, variable, value) index in the attribute list
+	private static final int ATTRIBUTE_VARIABLE = 0;  // number of the (statement type, variable) group in the attribute list
 	
 	public Data() {
-		this.statements = new ArrayList<Statement>();
-		this.documents = new ArrayList<Document>();
-		this.coders = new ArrayList<Coder>();
+		setStatements(new ArrayList<Statement>());
+		setDocuments(new ArrayList<Document>());
+		setCoders(new ArrayList<Coder>());
 		this.regexes = new ArrayList<Regex>();
-		this.statementTypes = new ArrayList<StatementType>();
-		this.coderRelations = new ArrayList<CoderRelation>();
+		setStatementTypes(new ArrayList<StatementType>());
+		setCoderRelations(new ArrayList<CoderRelation>());
 		this.settings = new HashMap<String, String>();
-		this.statementLinks = new ArrayList<StatementLink>();
+		setStatementLinks(new ArrayList<StatementLink>());
 		settings.put("activeCoder", "1");
-		this.attributes = new ArrayList<AttributeVector>();
+		setAttributes(new ArrayList<AttributeVector>());
 	}
 	
 	/**
@@ -40,54 +48,37 @@ public class Data {
 	 * @return                 The ID of the attribute vector as an int; -1 if the attribute vector does not exist
 	 */
 	public int getAttributeId(String value, String variable, int statementTypeId) {
-		for (int i = 0; i < Dna.data.getAttributes().size(); i++) {
-			if (Dna.data.getAttributes().get(i).getValue().equals(value) && Dna.data.getAttributes().get(i).getVariable().equals(variable) 
-					&& Dna.data.getAttributes().get(i).getStatementTypeId() == statementTypeId) {
-				return Dna.data.getAttributes().get(i).getId();
-			}
+		AttributeVector av = getAttribute(value, variable, statementTypeId);
+		if (av == null) {
+			return -1;
 		}
-		return -1;
+		return av.getId();
 	}
 
 	/**
-	 * Check if an attribute value already exists in the the attributes array list. Return its row index if found and -1 otherwise.
+	 * Look up an attribute vector by its statement type, variable and value.
 	 * 
 	 * @param value            The attribute value as a string
 	 * @param variable         The variable name as a string
 	 * @param statementTypeId  The statement type ID as an int
-	 * @return                 The row index of the attribute vector as an int; -1 if the attribute vector does not exist
+	 * @return                 The attribute vector; null if the attribute vector does not exist
 	 */
-	public int getAttributeIndex(String value, String variable, int statementTypeId) {
-		for (int i = 0; i < Dna.data.getAttributes().size(); i++) {
-			if (Dna.data.getAttributes().get(i).getValue().equals(value) && Dna.data.getAttributes().get(i).getVariable().equals(variable) 
-					&& Dna.data.getAttributes().get(i).getStatementTypeId() == statementTypeId) {
-				return i;
-			}
-		}
-		return -1;
+	public AttributeVector getAttribute(String value, String variable, int statementTypeId) {
+		return attributes.getByKey(ATTRIBUTE_VALUE, Arrays.asList(statementTypeId, variable, value));
 	}
-	
+
 	/**
 	 * Retrieve an array of attribute vectors that have a certain statement type and variable.
 	 * 
 	 * @param variable         The variable name that should match
 	 * @param statementTypeId  The statementTypeId that should match
-	 * @return                 An array of AttributeVector objects
+	 * @return                 An array of AttributeVector objects, in the order in which they were added to the data
 	 */
 	public AttributeVector[] getAttributes(String variable, int statementTypeId) {
-		ArrayList<AttributeVector> al = new ArrayList<AttributeVector>();
-		for (int i = 0; i < Dna.data.getAttributes().size(); i++) {
-			if (Dna.data.getAttributes().get(i).getVariable().equals(variable) && Dna.data.getAttributes().get(i).getStatementTypeId() == statementTypeId) {
-				al.add(Dna.data.getAttributes().get(i));
-			}
-		}
-		AttributeVector[] array = new AttributeVector[al.size()];
-		for (int i = 0; i < al.size(); i++) {
-			array[i] = al.get(i);
-		}
-		return array;
+		ArrayList<AttributeVector> al = attributes.getGroup(ATTRIBUTE_VARIABLE, Arrays.asList(statementTypeId, variable));
+		return al.toArray(new AttributeVector[al.size()]);
 	}
-	
+
 	/**
 	 * Delete an attribute vector from the data in the GUI.
 	 * 
@@ -121,7 +112,10 @@ public class Data {
 	 * @param attributes the attributes to set
 	 */
 	public void setAttributes(ArrayList<AttributeVector> attributes) {
-		this.attributes = attributes;
+		this.attributes = new IndexedList<AttributeVector>(AttributeVector::getId);
+		this.attributes.addKey(av -> Arrays.asList(av.getStatementTypeId(), av.getVariable(), av.getValue()));
+		this.attributes.addGroupKey(av -> Arrays.asList(av.getStatementTypeId(), av.getVariable()));
+		this.attributes.addAll(attributes);
 	}
 
 	public void addRegex(Regex regex) {
@@ -224,7 +218,8 @@ public class Data {
 	 * @param statementLinks the statementLinks to set
 	 */
 	public void setStatementLinks(ArrayList<StatementLink> statementLinks) {
-		this.statementLinks = statementLinks;
+		this.statementLinks = new IndexedList<StatementLink>(StatementLink::getId);
+		this.statementLinks.addAll(statementLinks);
 	}
 	
 	/**
@@ -339,35 +334,37 @@ public class Data {
 	}
 	
 	public Statement getStatement(int id) {
-		for (int i = 0; i < statements.size(); i++) {
-			if (statements.get(i).getId() == id) {
-				return(statements.get(i));
-			}
-		}
-		return null;
+		return statements.getByKey(id);
+	}
+	
+	/**
+	 * @return  The bitmap indexes over the statements.
+	 */
+	public StatementIndex getStatementIndex() {
+		return statementIndex;
+	}
+	
+	/**
+	 * @return  The inverted index over the document texts.
+	 */
+	public TextIndex getTextIndex() {
+		return textIndex;
 	}
 	
 	public StatementType getStatementType(String label) {
-		for (int i = 0; i < statementTypes.size(); i++) {
-			if (statementTypes.get(i).getLabel().equals(label)) {
-				return(statementTypes.get(i));
-			}
-		}
-		return(null);
+		return statementTypes.getByKey(STATEMENT_TYPE_LABEL, label);
 	}
 	
 	public Color getStatementColor(int statementId) {
 		if (settings.get("statementColor").equals("statementType")) {
-			for (int i = 0; i < statementTypes.size(); i++) {
-				if (statementTypes.get(i).getId() == this.getStatement(statementId).getStatementTypeId()) {
-					return statementTypes.get(i).getColor();
-				}
+			StatementType statementType = getStatementTypeById(this.getStatement(statementId).getStatementTypeId());
+			if (statementType != null) {
+				return statementType.getColor();
 			}
 		} else if (settings.get("statementColor").equals("coder")) {
-			for (int i = 0; i < coders.size(); i++) {
-				if (coders.get(i).getId() == this.getStatement(statementId).getCoder()) {
-					return coders.get(i).getColor();
-				}
+			Coder coder = getCoderById(this.getStatement(statementId).getCoder());
+			if (coder != null) {
+				return coder.getColor();
 			}
 		}
 		return null;
@@ -384,82 +381,39 @@ public class Data {
 	}
 
 	public Coder getCoderById(int id) {
-		for (int i = 0; i < coders.size(); i++) {
-			if (coders.get(i).getId() == id) {
-				return coders.get(i);
-			}
-		}
-		return(null);
+		return coders.getByKey(id);
 	}
 
 	public StatementType getStatementTypeById(int id) {
-		for (int i = 0; i < statementTypes.size(); i++) {
-			if (statementTypes.get(i).getId() == id) {
-				return statementTypes.get(i);
-			}
-		}
-		return(null);
+		return statementTypes.getByKey(id);
 	}
 	
+	/**
+	 * Find the smallest positive ID that is not used yet in one of the lists. The lists keep track of 
+	 * their IDs, so this takes constant time.
+	 * 
+	 * @param arrayList  Name of the list, for example "statements" or "documents".
+	 * @return           An unused ID.
+	 */
 	public int generateNewId(String arrayList) {
-		ArrayList<Integer> ids = new ArrayList<Integer>();
 		if (arrayList.equals("statements")) {
-			for (int i = 0; i < statements.size(); i++) {
-				ids.add(statements.get(i).getId());
-			}
+			return statements.nextFreeId();
 		} else if (arrayList.equals("documents")) {
-			for (int i = 0; i < documents.size(); i++) {
-				ids.add(documents.get(i).getId());
-			}
+			return documents.nextFreeId();
 		} else if (arrayList.equals("coders")) {
-			for (int i = 0; i < coders.size(); i++) {
-				ids.add(coders.get(i).getId());
-			}
+			return coders.nextFreeId();
 		} else if (arrayList.equals("statementLinks")) {
-			for (int i = 0; i < statementLinks.size(); i++) {
-				ids.add(statementLinks.get(i).getId());
-			}
+			return statementLinks.nextFreeId();
 		} else if (arrayList.equals("statementTypes")) {
-			for (int i = 0; i < statementTypes.size(); i++) {
-				ids.add(statementTypes.get(i).getId());
-			}
+			return statementTypes.nextFreeId();
 		} else if (arrayList.equals("coderRelations")) {
-			for (int i = 0; i < coderRelations.size(); i++) {
-				ids.add(coderRelations.get(i).getId());
-			}
+			return coderRelations.nextFreeId();
 		} else if (arrayList.equals("attributes")) {
-			for (int i = 0; i < attributes.size(); i++) {
-				ids.add(attributes.get(i).getId());
-			}
-		}
-		Collections.sort(ids);
-		int unused = 1;
-		while (ids.contains(unused)) {
-			unused++;
-		}
-		return unused;
-		
-		/*
-		int unused = 1;
-		boolean accept = false;
-		while (accept == false) {
-			boolean used = false;
-			for (int i = 0; i < ids.size(); i++) {
-				if (unused == ids.get(i)) {
-					used = true;
-				}
-			}
-			if (used == true) {
-				accept = false;
-				unused++;
-			} else {
-				accept = true;
-			}
+			return attributes.nextFreeId();
 		}
-		return unused;
-		*/
+		return 1;
 	}
-	
+
 	public void removeStatement(int id) {
 		for (int i = statements.size() - 1; i > -1; i--) {
 			if (statements.get(i).getId() == id) {
@@ -483,7 +437,11 @@ public class Data {
 	 * @param statements the statements to set
 	 */
 	public void setStatements(ArrayList<Statement> statements) {
-		this.statements = statements;
+		this.statements = new IndexedList<Statement>(Statement::getId);
+		this.statements.addGroupKey(Statement::getDocumentId);
+		this.statements.addAll(statements);
+		this.statementIndex = new StatementIndex(this);
+		this.statements.addListener(statementIndex);
 	}
 
 	/**
@@ -497,16 +455,14 @@ public class Data {
 	 * @param documents the documents to set
 	 */
 	public void setDocuments(ArrayList<Document> documents) {
-		this.documents = documents;
+		this.documents = new IndexedList<Document>(Document::getId);
+		this.documents.addAll(documents);
+		this.textIndex = new TextIndex(this.documents);
+		this.documents.addListener(textIndex);
 	}
 
 	public Document getDocument(int id) {
-		for (int i = 0; i < documents.size(); i++) {
-			if (documents.get(i).getId() == id) {
-				return(documents.get(i));
-			}
-		}
-		return null;
+		return documents.getByKey(id);
 	}
 	
 	public void removeDocument(int documentId) {
@@ -565,7 +521,8 @@ public class Data {
 	 * @param coders the coders to set
 	 */
 	public void setCoders(ArrayList<Coder> coders) {
-		this.coders = coders;
+		this.coders = new IndexedList<Coder>(Coder::getId);
+		this.coders.addAll(coders);
 	}
 	
 	/**
@@ -576,10 +533,12 @@ public class Data {
 	}
 
 	/**
-	 * @param statementTypes the statementTypes to set
+	 * @param statementTypes the statementTypes to set; they are indexed by ID and label
 	 */
 	public void setStatementTypes(ArrayList<StatementType> statementTypes) {
-		this.statementTypes = statementTypes;
+		this.statementTypes = new IndexedList<StatementType>(StatementType::getId);
+		this.statementTypes.addKey(StatementType::getLabel);
+		this.statementTypes.addAll(statementTypes);
 	}
 
 	/**
@@ -593,7 +552,8 @@ public class Data {
 	 * @param coderRelations the coderRelations to set
 	 */
 	public void setCoderRelations(ArrayList<CoderRelation> coderRelations) {
-		this.coderRelations = coderRelations;
+		this.coderRelations = new IndexedList<CoderRelation>(CoderRelation::getId);
+		this.coderRelations.addAll(coderRelations);
 	}
 
 	/**
@@ -615,12 +575,37 @@ public class Data {
 	 * @return number of statements with the document ID that is handed over
 	 */
 	public int countStatementsPerDocument(int documentId) {
-		int count = 0;
-		for (int i = 0; i < statements.size(); i++) {
-			if (statements.get(i).getDocumentId() == documentId) {
-				count++;
+		return statements.countGroup(STATEMENT_DOCUMENT, documentId);
+	}
+	
+	/**
+	 * Retrieve the statements in a document, ordered by their position in the text.
+	 * 
+	 * @param documentId  The ID of the document
+	 * @return            An array list of statements
+	 */
+	public ArrayList<Statement> getStatementsByDocumentId(int documentId) {
+		ArrayList<Statement> s = statements.getGroup(STATEMENT_DOCUMENT, documentId);
+		Collections.sort(s);
+		return s;
+	}
+	
+	/**
+	 * Retrieve the statements in a document that cover a certain position in the text, ordered by their 
+	 * position.
+	 * 
+	 * @param documentId  The ID of the document
+	 * @param position    The character offset in the document text
+	 * @return            An array list of statements with start < position < stop
+	 */
+	public ArrayList<Statement> getStatementsAt(int documentId, int position) {
+		ArrayList<Statement> s = getStatementsByDocumentId(documentId);
+		ArrayList<Statement> covering = new ArrayList<Statement>();
+		for (int i = 0; i < s.size(); i++) {
+			if (s.get(i).getStart() < position && s.get(i).getStop() > position) {
+				covering.add(s.get(i));
 			}
 		}
-		return count;
+		return covering;
 	}
 }
@@ -13,6 +13,7 @@ public class Document implements Comparable<Document> {
 	String notes;
 	String type;
 	Date date;
+	TextCache textCache;  // loads the text on demand if it is not kept in memory
 	
 	public Document(int id, String title, String text, int coder, String author, String source, 
 			String section, String notes, String type, Date date) {
@@ -28,6 +29,17 @@ public class Document implements Comparable<Document> {
 		this.date = date;
 	}
 	
+	/**
+	 * @return  A copy of the document, which can be handed over to another thread. A text that is loaded on 
+	 *          demand is loaded by the copy.
+	 */
+	public Document copy() {
+		Document d = new Document(id, title, text, coder, author, source, section, notes, type, 
+				date == null ? null : new Date(date.getTime()));
+		d.textCache = textCache;
+		return d;
+	}
+	
 	/**
 	 * Retrieve the coder of the document.
 	 * 
@@ -137,21 +149,37 @@ public class Document implements Comparable<Document> {
 	}
 
 	/**
-	 * Retrieve the document text.
+	 * Retrieve the document text. If the text is loaded on demand, it is read from the text cache.
 	 * 
 	 * @return  The text.
 	 */
 	public String getText() {
+		if (text == null && textCache != null) {
+			return textCache.get(id);
+		}
 		return text;
 	}
 
 	/**
-	 * Set the document text.
+	 * Set the document text. The text is kept in memory from now on.
 	 * 
 	 * @param text  The text to set.
 	 */
 	public void setText(String text) {
 		this.text = text;
+		if (textCache != null) {
+			textCache.remove(id);
+		}
+	}
+	
+	/**
+	 * Load the text of the document on demand instead of keeping it in memory. The text must not have been
+	 * set.
+	 * 
+	 * @param textCache  The cache from which the text is loaded.
+	 */
+	public void setTextCache(TextCache textCache) {
+		this.textCache = textCache;
 	}
 
 	public int getId(){ return id; }
@@ -0,0 +1,64 @@
+package dna.dataStructures;
+
+import java.util.BitSet;
+
+/**
+ * Keeps track of the IDs in use for one kind of entity (statements, documents etc.) and hands out the
+ * smallest positive ID that is not in use yet. Used IDs are stored in a bit set, and the lowest free ID
+ * is cached, so that allocating, adding and removing IDs take constant amortized time instead of sorting
+ * and scanning all existing IDs.
+ */
+public class IdAllocator {
+	private BitSet used = new BitSet();
+	private int lowestFree = 1;
+
+	/**
+	 * @return  The smallest positive ID that is not in use. The ID is not reserved; it counts as used once
+	 *          it has been added with {@link #add(int)}.
+	 */
+	public int next() {
+		return lowestFree;
+	}
+
+	/**
+	 * @param id  An ID that is now in use.
+	 */
+	public void add(int id) {
+		if (id < 1) {
+			return;  // only positive IDs are allocated
+		}
+		used.set(id);
+		if (id == lowestFree) {
+			lowestFree = used.nextClearBit(id);
+		}
+	}
+
+	/**
+	 * @param id  An ID that is no longer in use.
+	 */
+	public void remove(int id) {
+		if (id < 1) {
+			return;
+		}
+		used.clear(id);
+		if (id < lowestFree) {
+			lowestFree = id;
+		}
+	}
+
+	/**
+	 * @param id  An ID.
+	 * @return    Whether the ID is in use.
+	 */
+	public boolean contains(int id) {
+		return id > 0 && used.get(id);
+	}
+
+	/**
+	 * Forget all IDs.
+	 */
+	public void clear() {
+		used.clear();
+		lowestFree = 1;
+	}
+}
@@ -0,0 +1,407 @@
+package dna.dataStructures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * An array list that keeps one or more hash indexes from keys (such as the ID or label of an element) to
+ * its elements. The indexes are updated on every add, remove and set operation, so look-ups by key take
+ * constant time instead of a scan over the whole list. Sorting does not affect the indexes. If several
+ * elements share a key, the index points to the one that was added first. Group indexes map a key to all
+ * elements that share it, for example all attribute vectors of a variable. If the primary key is an integer
+ * ID, the list also keeps an {@link IdAllocator} for handing out unused IDs. Further indexes that are not 
+ * simple key maps, such as bitmap indexes, can follow the changes of the list as a {@link Listener}.
+ *
+ * @param <T>  The element type.
+ */
+public class IndexedList<T> extends ArrayList<T> {
+	private static final long serialVersionUID = 1L;
+	private ArrayList<Function<? super T, ?>> keys = new ArrayList<Function<? super T, ?>>();
+	private ArrayList<HashMap<Object, T>> indexes = new ArrayList<HashMap<Object, T>>();
+	private ArrayList<Boolean> duplicates = new ArrayList<Boolean>();  // does an index have keys shared by elements?
+	private ArrayList<Function<? super T, ?>> groupKeys = new ArrayList<Function<? super T, ?>>();
+	private ArrayList<HashMap<Object, ArrayList<T>>> groups = new ArrayList<HashMap<Object, ArrayList<T>>>();
+	private IdAllocator ids = new IdAllocator();  // integer primary keys in use
+	private ArrayList<Listener<? super T>> listeners = new ArrayList<Listener<? super T>>();
+	
+	/**
+	 * Is told about every element that is indexed or unindexed by the list.
+	 *
+	 * @param <T>  The element type.
+	 */
+	public interface Listener<T> {
+		
+		/**
+		 * @param element  An element that was added to the list or whose change is complete.
+		 */
+		void added(T element);
+		
+		/**
+		 * @param element  An element that was removed from the list or is about to be changed.
+		 */
+		void removed(T element);
+		
+		/**
+		 * All elements were removed from the list.
+		 */
+		void cleared();
+	}
+
+	/**
+	 * @param key  Function that extracts the primary key from an element, for example its ID.
+	 */
+	public IndexedList(Function<? super T, ?> key) {
+		super();
+		addKey(key);
+	}
+
+	/**
+	 * Add a further index, for example by label. Existing elements are indexed immediately.
+	 *
+	 * @param key  Function that extracts the key from an element.
+	 * @return     The number of the new index, to be used with {@link #getByKey(int, Object)}.
+	 */
+	public int addKey(Function<? super T, ?> key) {
+		keys.add(key);
+		indexes.add(new HashMap<Object, T>());
+		duplicates.add(false);
+		int i = indexes.size() - 1;
+		for (int j = 0; j < size(); j++) {
+			indexElement(i, get(j));
+		}
+		return i;
+	}
+
+	/**
+	 * Add a group index, which keeps all elements with the same key together. Existing elements are indexed 
+	 * immediately.
+	 *
+	 * @param key  Function that extracts the group key from an element.
+	 * @return     The number of the new group index, to be used with {@link #getGroup(int, Object)}.
+	 */
+	public int addGroupKey(Function<? super T, ?> key) {
+		groupKeys.add(key);
+		groups.add(new HashMap<Object, ArrayList<T>>());
+		int i = groups.size() - 1;
+		for (int j = 0; j < size(); j++) {
+			groupElement(i, get(j));
+		}
+		return i;
+	}
+
+	/**
+	 * Add a listener that follows all changes of the list. It is told about the existing elements immediately.
+	 *
+	 * @param listener  The listener.
+	 */
+	public void addListener(Listener<? super T> listener) {
+		listeners.add(listener);
+		for (int j = 0; j < size(); j++) {
+			listener.added(get(j));
+		}
+	}
+	
+	/**
+	 * @param group  The number of the group index, as returned by {@link #addGroupKey(Function)}.
+	 * @param key    The group key.
+	 * @return       A new list of the elements with this key, in the order in which they were added.
+	 */
+	public ArrayList<T> getGroup(int group, Object key) {
+		ArrayList<T> members = groups.get(group).get(key);
+		if (members == null) {
+			return new ArrayList<T>();
+		}
+		return new ArrayList<T>(members);
+	}
+
+	/**
+	 * @param group  The number of the group index, as returned by {@link #addGroupKey(Function)}.
+	 * @param key    The group key.
+	 * @return       The number of elements with this key.
+	 */
+	public int countGroup(int group, Object key) {
+		ArrayList<T> members = groups.get(group).get(key);
+		return members == null ? 0 : members.size();
+	}
+
+	/**
+	 * Change an element in a way that may affect its keys, for example its label or value, and update the 
+	 * indexes accordingly.
+	 *
+	 * @param element  An element of the list.
+	 * @param change   The change to apply to the element.
+	 */
+	public void update(T element, Runnable change) {
+		unindexElement(element);
+		change.run();
+		indexElement(element);
+	}
+
+	/**
+	 * @param key  The primary key.
+	 * @return     The element with this key, or {@code null} if there is none.
+	 */
+	public T getByKey(Object key) {
+		return indexes.get(0).get(key);
+	}
+
+	/**
+	 * @param index  The number of the index, as returned by {@link #addKey(Function)}; 0 is the primary key.
+	 * @param key    The key.
+	 * @return       The element with this key, or {@code null} if there is none.
+	 */
+	public T getByKey(int index, Object key) {
+		return indexes.get(index).get(key);
+	}
+
+	/**
+	 * @param key  The primary key.
+	 * @return     Whether an element with this key exists.
+	 */
+	public boolean containsKey(Object key) {
+		return indexes.get(0).containsKey(key);
+	}
+
+	/**
+	 * @return  The smallest positive integer that is not used as a primary key by any element.
+	 */
+	public int nextFreeId() {
+		return ids.next();
+	}
+
+	/**
+	 * Rebuild all indexes from scratch. Necessary only if the key of an element was changed in place.
+	 */
+	public void reindex() {
+		ids.clear();
+		for (int i = 0; i < indexes.size(); i++) {
+			indexes.get(i).clear();
+			duplicates.set(i, false);
+		}
+		for (int i = 0; i < groups.size(); i++) {
+			groups.get(i).clear();
+		}
+		for (int i = 0; i < listeners.size(); i++) {
+			listeners.get(i).cleared();
+		}
+		for (int i = 0; i < size(); i++) {
+			indexElement(get(i));
+		}
+	}
+
+	private void indexElement(T element) {
+		for (int i = 0; i < keys.size(); i++) {
+			indexElement(i, element);
+		}
+		for (int i = 0; i < groupKeys.size(); i++) {
+			groupElement(i, element);
+		}
+		for (int i = 0; i < listeners.size(); i++) {
+			listeners.get(i).added(element);
+		}
+	}
+
+	private void groupElement(int i, T element) {
+		Object key = groupKeys.get(i).apply(element);
+		ArrayList<T> members = groups.get(i).get(key);
+		if (members == null) {
+			members = new ArrayList<T>();
+			groups.get(i).put(key, members);
+		}
+		members.add(element);
+	}
+
+	private void ungroupElement(int i, T element) {
+		HashMap<Object, ArrayList<T>> group = groups.get(i);
+		Object key = groupKeys.get(i).apply(element);
+		if (removeIdentical(group.get(key), element)) {
+			if (group.get(key).isEmpty()) {
+				group.remove(key);
+			}
+			return;
+		}
+		Iterator<Map.Entry<Object, ArrayList<T>>> it = group.entrySet().iterator();  // the key may have been changed in place
+		while (it.hasNext()) {
+			ArrayList<T> members = it.next().getValue();
+			if (removeIdentical(members, element)) {
+				if (members.isEmpty()) {
+					it.remove();
+				}
+				return;
+			}
+		}
+	}
+
+	private static <T> boolean removeIdentical(ArrayList<T> members, T element) {
+		if (members != null) {
+			for (int j = 0; j < members.size(); j++) {
+				if (members.get(j) == element) {
+					members.remove(j);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void indexElement(int i, T element) {
+		Object key = keys.get(i).apply(element);
+		T previous = indexes.get(i).putIfAbsent(key, element);
+		if (previous != null && previous != element) {
+			duplicates.set(i, true);
+		}
+		if (i == 0 && key instanceof Integer) {
+			ids.add((Integer) key);
+		}
+	}
+
+	private void unindexElement(T element) {
+		for (int i = 0; i < keys.size(); i++) {
+			Object key = keys.get(i).apply(element);
+			HashMap<Object, T> index = indexes.get(i);
+			if (index.get(key) == element) {
+				index.remove(key);
+				if (duplicates.get(i)) {
+					for (int j = 0; j < size(); j++) {  // another element with the same key takes over
+						if (get(j) != element && key.equals(keys.get(i).apply(get(j)))) {
+							index.put(key, get(j));
+							break;
+						}
+					}
+				}
+			} else {  // the key may have been changed in place; remove a stale entry pointing to the element
+				Iterator<Map.Entry<Object, T>> it = index.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<Object, T> entry = it.next();
+					if (entry.getValue() == element) {
+						key = entry.getKey();
+						it.remove();
+						break;
+					}
+				}
+			}
+			if (i == 0 && key instanceof Integer && !index.containsKey(key)) {
+				ids.remove((Integer) key);
+			}
+		}
+		for (int i = 0; i < groupKeys.size(); i++) {
+			ungroupElement(i, element);
+		}
+		for (int i = 0; i < listeners.size(); i++) {
+			listeners.get(i).removed(element);
+		}
+	}
+
+	@Override
+	public boolean add(T element) {
+		boolean added = super.add(element);
+		indexElement(element);
+		return added;
+	}
+
+	@Override
+	public void add(int position, T element) {
+		super.add(position, element);
+		indexElement(element);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		boolean added = super.addAll(c);
+		Iterator<? extends T> it = c.iterator();
+		while (it.hasNext()) {
+			indexElement(it.next());
+		}
+		return added;
+	}
+
+	@Override
+	public boolean addAll(int position, Collection<? extends T> c) {
+		boolean added = super.addAll(position, c);
+		Iterator<? extends T> it = c.iterator();
+		while (it.hasNext()) {
+			indexElement(it.next());
+		}
+		return added;
+	}
+
+	@Override
+	public T set(int position, T element) {
+		T old = super.set(position, element);
+		unindexElement(old);
+		indexElement(element);
+		return old;
+	}
+
+	@Override
+	public T remove(int position) {
+		T old = super.remove(position);
+		unindexElement(old);
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int position = indexOf(o);
+		if (position < 0) {
+			return false;
+		}
+		unindexElement(super.remove(position));
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		ids.clear();
+		for (int i = 0; i < indexes.size(); i++) {
+			indexes.get(i).clear();
+			duplicates.set(i, false);
+		}
+		for (int i = 0; i < groups.size(); i++) {
+			groups.get(i).clear();
+		}
+		for (int i = 0; i < listeners.size(); i++) {
+			listeners.get(i).cleared();
+		}
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		boolean changed = super.removeAll(c);
+		reindex();
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		boolean changed = super.retainAll(c);
+		reindex();
+		return changed;
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		boolean changed = super.removeIf(filter);
+		reindex();
+		return changed;
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<T> operator) {
+		super.replaceAll(operator);
+		reindex();
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		super.removeRange(fromIndex, toIndex);
+		reindex();
+	}
+}
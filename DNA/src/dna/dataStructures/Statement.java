@@ -36,6 +36,14 @@ public class Statement implements Comparable<Statement> {
 		this.values = values;
 	}
 	
+	/**
+	 * @return  A copy of the statement with its own map of values, which can be handed over to another thread.
+	 */
+	public Statement copy() {
+		return new Statement(id, documentId, start, stop, date == null ? null : new Date(date.getTime()), statementTypeId, 
+				coder, new LinkedHashMap<String, Object>(values));
+	}
+	
 	/**
 	 * @return the values
 	 */
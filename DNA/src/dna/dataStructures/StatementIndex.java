@@ -0,0 +1,163 @@
+package dna.dataStructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Bitmap indexes over the statements. For each statement type, document, and each value of a short text, 
+ * boolean or integer variable, a {@link CompactBitSet} records the IDs of the statements with this 
+ * property. Questions like "statements of type T that are not in documents by author A and do not mention 
+ * concept C" then become a few AND and AND NOT operations on bit sets instead of a scan over all statements. 
+ * Document metadata (author, source, section, type) is resolved through the per-document bit sets at 
+ * query time, so editing a document does not require any index maintenance.
+ *
+ * The index follows the statement list as an {@link IndexedList.Listener}, so it is kept up to date when 
+ * statements are added or removed and when they are changed through {@link IndexedList#update}. Statement 
+ * IDs are used as bit positions because, unlike list positions, they do not shift when statements are 
+ * removed. Bit sets returned by the query methods are copies and may be modified by the caller.
+ */
+public class StatementIndex implements IndexedList.Listener<Statement> {
+	Data data;
+	HashMap<List<Object>, CompactBitSet> bitmaps = new HashMap<List<Object>, CompactBitSet>();
+	HashMap<Integer, ArrayList<List<Object>>> keysOf = new HashMap<Integer, ArrayList<List<Object>>>();  // statement ID -> its keys
+	HashMap<List<Object>, HashSet<Object>> values = new HashMap<List<Object>, HashSet<Object>>();  // (type, variable) -> values
+	
+	/**
+	 * @param data  The data whose statement types determine which variables are indexed.
+	 */
+	public StatementIndex(Data data) {
+		this.data = data;
+	}
+	
+	/**
+	 * Collect the keys under which a statement is indexed.
+	 */
+	private ArrayList<List<Object>> keys(Statement s) {
+		ArrayList<List<Object>> keys = new ArrayList<List<Object>>();
+		keys.add(Arrays.asList("type", s.getStatementTypeId()));
+		keys.add(Arrays.asList("document", s.getDocumentId()));
+		StatementType st = data.statementTypes == null ? null : data.getStatementTypeById(s.getStatementTypeId());
+		Iterator<Map.Entry<String, Object>> it = s.getValues().entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Object> entry = it.next();
+			String type = st == null ? null : st.getVariables().get(entry.getKey());
+			if (type == null || !type.equals("long text")) {
+				keys.add(Arrays.asList("value", s.getStatementTypeId(), entry.getKey(), entry.getValue()));
+			}
+		}
+		return keys;
+	}
+	
+	@Override
+	public synchronized void added(Statement s) {
+		if (keysOf.containsKey(s.getId())) {
+			removed(s);  // the statement was changed without telling the index
+		}
+		ArrayList<List<Object>> keys = keys(s);
+		for (int i = 0; i < keys.size(); i++) {
+			CompactBitSet bitmap = bitmaps.get(keys.get(i));
+			if (bitmap == null) {
+				bitmap = new CompactBitSet();
+				bitmaps.put(keys.get(i), bitmap);
+			}
+			bitmap.set(s.getId());
+			if (keys.get(i).get(0).equals("value")) {
+				List<Object> variable = keys.get(i).subList(1, 3);
+				HashSet<Object> set = values.get(variable);
+				if (set == null) {
+					set = new HashSet<Object>();
+					values.put(new ArrayList<Object>(variable), set);
+				}
+				set.add(keys.get(i).get(3));
+			}
+		}
+		keysOf.put(s.getId(), keys);
+	}
+	
+	@Override
+	public synchronized void removed(Statement s) {
+		ArrayList<List<Object>> keys = keysOf.remove(s.getId());  // the keys at indexing time, even if s was changed since
+		if (keys == null) {
+			return;
+		}
+		for (int i = 0; i < keys.size(); i++) {
+			CompactBitSet bitmap = bitmaps.get(keys.get(i));
+			bitmap.clear(s.getId());
+			if (bitmap.isEmpty()) {
+				bitmaps.remove(keys.get(i));
+				if (keys.get(i).get(0).equals("value")) {
+					List<Object> variable = keys.get(i).subList(1, 3);
+					values.get(variable).remove(keys.get(i).get(3));
+					if (values.get(variable).isEmpty()) {
+						values.remove(variable);
+					}
+				}
+			}
+		}
+	}
+	
+	@Override
+	public synchronized void cleared() {
+		bitmaps.clear();
+		keysOf.clear();
+		values.clear();
+	}
+	
+	private synchronized BitSet get(List<Object> key) {
+		CompactBitSet bitmap = bitmaps.get(key);
+		return bitmap == null ? new BitSet() : bitmap.toBitSet();
+	}
+	
+	/**
+	 * @param statementTypeId  The ID of a statement type.
+	 * @return                 The IDs of the statements of this type.
+	 */
+	public BitSet getStatementType(int statementTypeId) {
+		return get(Arrays.asList("type", statementTypeId));
+	}
+	
+	/**
+	 * @param documentIds  IDs of documents.
+	 * @return             The IDs of the statements in any of these documents.
+	 */
+	public synchronized BitSet getDocuments(Collection<Integer> documentIds) {
+		BitSet result = new BitSet();
+		Iterator<Integer> it = documentIds.iterator();
+		while (it.hasNext()) {
+			CompactBitSet bitmap = bitmaps.get(Arrays.asList("document", it.next()));
+			if (bitmap != null) {
+				bitmap.orInto(result);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @param statementTypeId  The ID of a statement type.
+	 * @param variable         A short text, boolean or integer variable of the statement type.
+	 * @param condition        A condition on the values of the variable.
+	 * @return                 The IDs of the statements of this type whose value meets the condition.
+	 */
+	public synchronized BitSet getValues(int statementTypeId, String variable, Predicate<Object> condition) {
+		BitSet result = new BitSet();
+		HashSet<Object> set = values.get(Arrays.asList(statementTypeId, variable));
+		if (set != null) {
+			Iterator<Object> it = set.iterator();
+			while (it.hasNext()) {
+				Object value = it.next();
+				if (condition.test(value)) {
+					bitmaps.get(Arrays.asList("value", statementTypeId, variable, value)).orInto(result);
+				}
+			}
+		}
+		return result;
+	}
+}
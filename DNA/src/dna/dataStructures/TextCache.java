@@ -0,0 +1,236 @@
+package dna.dataStructures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the texts of documents that are loaded on demand. When a large database is opened, the documents
+ * are created with their metadata only, and {@link Document#getText()} asks this cache for the text. The
+ * cache keeps the most recently used texts up to a total number of characters and reads missing texts
+ * from the database through a {@link Loader}, several at a time where possible. The texts are read 
+ * without holding the lock of the cache, so that a thread that prefetches texts in the background does not 
+ * block the event dispatch thread while it takes a text from the cache.
+ */
+public class TextCache {
+	public static final int BATCH = 100;  // maximal number of texts read from the database at once
+	Loader loader;
+	long capacity;  // maximal number of characters in the cache
+	long size = 0;  // current number of characters in the cache
+	long removals = 0;  // number of calls of remove(int), to discard texts that were read before a removal
+	LinkedHashMap<Integer, String> texts = new LinkedHashMap<Integer, String>(16, 0.75f, true);  // in access order
+
+	/**
+	 * Reads document texts from the database.
+	 */
+	public interface Loader {
+
+		/**
+		 * @param documentIds  The IDs of the documents, at most {@link TextCache#BATCH}.
+		 * @return             The texts of the documents, by document ID.
+		 */
+		HashMap<Integer, String> loadTexts(List<Integer> documentIds);
+	}
+
+	/**
+	 * @param loader    Reads the texts that are not in the cache.
+	 * @param capacity  The maximal number of characters kept in the cache.
+	 */
+	public TextCache(Loader loader, long capacity) {
+		this.loader = loader;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @param documentId  The ID of a document.
+	 * @return            Its text, from the cache or from the database.
+	 */
+	public String get(int documentId) {
+		long version;
+		synchronized (this) {
+			String text = texts.get(documentId);
+			if (text != null) {
+				return text;
+			}
+			version = removals;
+		}
+		String text = loader.loadTexts(Collections.singletonList(documentId)).get(documentId);
+		synchronized (this) {
+			if (removals == version) {
+				put(documentId, text);
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * Read the texts of several documents into the cache, for example of the documents that are likely to
+	 * be opened next.
+	 *
+	 * @param documentIds  The IDs of the documents.
+	 */
+	public void prefetch(Collection<Integer> documentIds) {
+		ArrayList<Integer> missing = new ArrayList<Integer>();
+		long version;
+		synchronized (this) {
+			Iterator<Integer> it = documentIds.iterator();
+			while (it.hasNext()) {
+				Integer id = it.next();
+				if (!texts.containsKey(id)) {
+					missing.add(id);
+				}
+			}
+			version = removals;
+		}
+		if (missing.isEmpty()) {
+			return;
+		}
+		HashMap<Integer, String> loaded = load(missing);
+		synchronized (this) {
+			if (removals != version) {
+				return;  // a text may have changed while it was read
+			}
+			Iterator<Map.Entry<Integer, String>> entries = loaded.entrySet().iterator();
+			while (entries.hasNext()) {
+				Map.Entry<Integer, String> entry = entries.next();
+				if (!texts.containsKey(entry.getKey())) {  // not read by another thread in the meantime
+					put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the texts of many documents without keeping them in the cache, for example to search or export
+	 * all documents without pushing the texts the user is working with out of the cache.
+	 *
+	 * @param documentIds  The IDs of the documents.
+	 * @return             Their texts, by document ID.
+	 */
+	public HashMap<Integer, String> read(Collection<Integer> documentIds) {
+		HashMap<Integer, String> result = new HashMap<Integer, String>();
+		ArrayList<Integer> missing = new ArrayList<Integer>();
+		synchronized (this) {
+			Iterator<Integer> it = documentIds.iterator();
+			while (it.hasNext()) {
+				Integer id = it.next();
+				String text = texts.get(id);
+				if (text == null) {
+					missing.add(id);
+				} else {
+					result.put(id, text);
+				}
+			}
+		}
+		result.putAll(load(missing));
+		return result;
+	}
+
+	/**
+	 * Load texts from the database in batches, in the order of the document IDs.
+	 */
+	private HashMap<Integer, String> load(ArrayList<Integer> documentIds) {
+		Collections.sort(documentIds);
+		HashMap<Integer, String> result = new HashMap<Integer, String>();
+		for (int i = 0; i < documentIds.size(); i += BATCH) {
+			result.putAll(loader.loadTexts(documentIds.subList(i, Math.min(i + BATCH, documentIds.size()))));
+		}
+		return result;
+	}
+
+	private void put(int documentId, String text) {
+		if (text == null) {
+			return;
+		}
+		String old = texts.put(documentId, text);
+		if (old != null) {
+			size = size - old.length();
+		}
+		size = size + text.length();
+		Iterator<String> it = texts.values().iterator();
+		while (size > capacity && texts.size() > 1) {  // drop the least recently used texts, but keep the new one
+			size = size - it.next().length();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Forget the text of a document, for example after it was changed or deleted.
+	 *
+	 * @param documentId  The ID of the document.
+	 */
+	public synchronized void remove(int documentId) {
+		removals++;
+		String old = texts.remove(documentId);
+		if (old != null) {
+			size = size - old.length();
+		}
+	}
+
+	/**
+	 * @return  The number of characters in the cache.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the texts of several documents, whether their texts are in memory or loaded on demand. The texts
+	 * loaded on demand are read in batches and not added to the cache.
+	 *
+	 * @param documents  The documents.
+	 * @return           Their texts, by document ID.
+	 */
+	public static HashMap<Integer, String> getTexts(List<Document> documents) {
+		HashMap<Integer, String> result = new HashMap<Integer, String>();
+		for (int i = 0; i < documents.size(); i++) {
+			Document d = documents.get(i);
+			if (d.text != null || d.textCache == null) {
+				result.put(d.getId(), d.text);
+			}
+		}
+		Iterator<Map.Entry<TextCache, ArrayList<Integer>>> it = lazyDocuments(documents).entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<TextCache, ArrayList<Integer>> entry = it.next();
+			result.putAll(entry.getKey().read(entry.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Read the texts of documents that are loaded on demand into their caches.
+	 *
+	 * @param documents  The documents.
+	 */
+	public static void prefetch(List<Document> documents) {
+		Iterator<Map.Entry<TextCache, ArrayList<Integer>>> it = lazyDocuments(documents).entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<TextCache, ArrayList<Integer>> entry = it.next();
+			entry.getKey().prefetch(entry.getValue());
+		}
+	}
+
+	/**
+	 * @return  The IDs of the documents whose texts are loaded on demand, by cache.
+	 */
+	private static HashMap<TextCache, ArrayList<Integer>> lazyDocuments(List<Document> documents) {
+		HashMap<TextCache, ArrayList<Integer>> lazy = new HashMap<TextCache, ArrayList<Integer>>();
+		for (int i = 0; i < documents.size(); i++) {
+			Document d = documents.get(i);
+			if (d.text == null && d.textCache != null) {
+				ArrayList<Integer> ids = lazy.get(d.textCache);
+				if (ids == null) {
+					ids = new ArrayList<Integer>();
+					lazy.put(d.textCache, ids);
+				}
+				ids.add(d.getId());
+			}
+		}
+		return lazy;
+	}
+}
@@ -0,0 +1,323 @@
+package dna.dataStructures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index over the document texts. The texts are split into terms, which are the maximal runs
+ * of letters and digits, in lower case. For each term, the index records the documents that contain it
+ * and the character offsets of its occurrences. Keyword and phrase queries of the search window are
+ * answered from the index directly; for regular expressions, the index finds the candidate documents that
+ * contain the literal words of the expression, so that only these documents have to be searched.
+ *
+ * The index is built from all documents the first time it is queried. From then on, it follows the
+ * document list as an {@link IndexedList.Listener}, so it is kept up to date when documents are added or
+ * removed and when their text is changed through {@link IndexedList#update}.
+ */
+public class TextIndex implements IndexedList.Listener<Document> {
+	IndexedList<Document> documents;
+	boolean built = false;
+	HashMap<String, HashMap<Integer, int[]>> postings = new HashMap<String, HashMap<Integer, int[]>>();  // term -> document ID -> offsets
+	HashMap<Integer, String[]> termsOf = new HashMap<Integer, String[]>();  // document ID -> its terms at indexing time
+
+	/**
+	 * @param documents  The document list to index.
+	 */
+	public TextIndex(IndexedList<Document> documents) {
+		this.documents = documents;
+	}
+
+	private void build() {
+		if (built == false) {
+			built = true;
+			for (int i = 0; i < documents.size(); i += TextCache.BATCH) {  // texts loaded on demand are read in batches
+				List<Document> batch = documents.subList(i, Math.min(i + TextCache.BATCH, documents.size()));
+				HashMap<Integer, String> texts = TextCache.getTexts(batch);
+				for (int j = 0; j < batch.size(); j++) {
+					index(batch.get(j), texts.get(batch.get(j).getId()));
+				}
+			}
+		}
+	}
+
+	private void index(Document d, String text) {
+		if (termsOf.containsKey(d.getId())) {
+			unindex(d);  // the text was changed without telling the index
+		}
+		if (text == null) {
+			text = "";
+		}
+		HashMap<String, ArrayList<Integer>> occurrences = new HashMap<String, ArrayList<Integer>>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (part == true && start < 0) {
+				start = i;
+			} else if (part == false && start >= 0) {
+				String term = text.substring(start, i).toLowerCase(Locale.ROOT);
+				ArrayList<Integer> offsets = occurrences.get(term);
+				if (offsets == null) {
+					offsets = new ArrayList<Integer>();
+					occurrences.put(term, offsets);
+				}
+				offsets.add(start);
+				start = -1;
+			}
+		}
+		String[] terms = new String[occurrences.size()];
+		int t = 0;
+		Iterator<Map.Entry<String, ArrayList<Integer>>> it = occurrences.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, ArrayList<Integer>> entry = it.next();
+			int[] offsets = new int[entry.getValue().size()];
+			for (int j = 0; j < offsets.length; j++) {
+				offsets[j] = entry.getValue().get(j);
+			}
+			HashMap<Integer, int[]> postingList = postings.get(entry.getKey());
+			if (postingList == null) {
+				postingList = new HashMap<Integer, int[]>();
+				postings.put(entry.getKey(), postingList);
+			}
+			postingList.put(d.getId(), offsets);
+			terms[t] = entry.getKey();
+			t++;
+		}
+		termsOf.put(d.getId(), terms);
+	}
+
+	private void unindex(Document d) {
+		String[] terms = termsOf.remove(d.getId());  // the terms at indexing time, even if the text was changed since
+		if (terms == null) {
+			return;
+		}
+		for (int i = 0; i < terms.length; i++) {
+			HashMap<Integer, int[]> postingList = postings.get(terms[i]);
+			postingList.remove(d.getId());
+			if (postingList.isEmpty()) {
+				postings.remove(terms[i]);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void added(Document d) {
+		if (built == true) {
+			index(d, d.getText());
+		}
+	}
+
+	@Override
+	public synchronized void removed(Document d) {
+		if (built == true) {
+			unindex(d);
+		}
+	}
+
+	@Override
+	public synchronized void cleared() {
+		postings.clear();
+		termsOf.clear();
+		built = false;
+	}
+
+	/**
+	 * Split a query into terms in the same way as the document texts.
+	 */
+	static ArrayList<String> terms(String query) {
+		ArrayList<String> terms = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= query.length(); i++) {
+			boolean part = i < query.length() && Character.isLetterOrDigit(query.charAt(i));
+			if (part == true && start < 0) {
+				start = i;
+			} else if (part == false && start >= 0) {
+				terms.add(query.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Create a regular expression that matches a keyword or phrase like {@link #findPhrase(String)}, for
+	 * searching texts that are not in the index.
+	 *
+	 * @param phrase  One or more words.
+	 * @return        The pattern, or {@code null} if the phrase has no words.
+	 */
+	public static Pattern phrasePattern(String phrase) {
+		ArrayList<String> terms = terms(phrase);
+		if (terms.isEmpty()) {
+			return null;
+		}
+		StringBuilder regex = new StringBuilder("(?<![\\p{L}\\p{Nd}])");
+		for (int i = 0; i < terms.size(); i++) {
+			if (i > 0) {
+				regex.append("[^\\p{L}\\p{Nd}]+");
+			}
+			regex.append(Pattern.quote(terms.get(i)));
+		}
+		regex.append("(?![\\p{L}\\p{Nd}])");
+		return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+	}
+
+	/**
+	 * @param term  A single word; the case is ignored.
+	 * @return      The IDs of the documents that contain the word, in ascending order.
+	 */
+	public synchronized TreeSet<Integer> getDocuments(String term) {
+		build();
+		HashMap<Integer, int[]> postingList = postings.get(term.toLowerCase(Locale.ROOT));
+		return postingList == null ? new TreeSet<Integer>() : new TreeSet<Integer>(postingList.keySet());
+	}
+
+	/**
+	 * Find the occurrences of a keyword or phrase. A phrase matches a sequence of whole words, ignoring the
+	 * case and anything between the words, such as spaces and punctuation.
+	 *
+	 * @param phrase  One or more words.
+	 * @return        The matches as arrays {document ID, start offset, end offset}, ordered by document ID and
+	 *                position.
+	 */
+	public synchronized ArrayList<int[]> findPhrase(String phrase) {
+		build();
+		ArrayList<int[]> matches = new ArrayList<int[]>();
+		ArrayList<String> terms = terms(phrase);
+		if (terms.isEmpty()) {
+			return matches;
+		}
+		TreeSet<Integer> candidates = getDocuments(terms.get(0));
+		for (int i = 1; i < terms.size() && !candidates.isEmpty(); i++) {
+			candidates.retainAll(getDocuments(terms.get(i)));
+		}
+		Iterator<Integer> it = candidates.iterator();
+		while (it.hasNext()) {
+			int documentId = it.next();
+			String text = documents.getByKey(documentId).getText();
+			int[] offsets = postings.get(terms.get(0)).get(documentId);
+			for (int j = 0; j < offsets.length; j++) {
+				int end = followedBy(text, offsets[j], terms);
+				if (end >= 0) {
+					matches.add(new int[] {documentId, offsets[j], end});
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Check whether the words of a phrase follow a position in a text.
+	 *
+	 * @return  The end offset of the phrase, or -1 if the text does not continue with the phrase.
+	 */
+	private static int followedBy(String text, int position, ArrayList<String> terms) {
+		if (position > text.length()) {
+			return -1;  // the text was changed without telling the index
+		}
+		for (int t = 0; t < terms.size(); t++) {
+			while (position < text.length() && !Character.isLetterOrDigit(text.charAt(position))) {
+				position++;
+			}
+			int start = position;
+			while (position < text.length() && Character.isLetterOrDigit(text.charAt(position))) {
+				position++;
+			}
+			if (!text.substring(start, position).toLowerCase(Locale.ROOT).equals(terms.get(t))) {
+				return -1;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Find the documents that may contain a match of a case-insensitive regular expression. Runs of ASCII
+	 * letters and digits in the expression that every match must contain are looked up in the terms of the
+	 * index: a document can only match if, for each run, it has a term that contains the run. Expressions
+	 * with alternatives, groups or escapes whose meaning is not obvious are not analysed.
+	 *
+	 * @param regex  The regular expression, as used with {@link java.util.regex.Pattern#CASE_INSENSITIVE}.
+	 * @return       The IDs of the candidate documents, or {@code null} if every document is a candidate.
+	 */
+	public synchronized HashSet<Integer> getCandidates(String regex) {
+		ArrayList<String> literals = literals(regex);
+		if (literals == null || literals.isEmpty()) {
+			return null;
+		}
+		build();
+		HashSet<Integer> candidates = null;
+		for (int i = 0; i < literals.size(); i++) {
+			HashSet<Integer> containing = new HashSet<Integer>();
+			Iterator<Map.Entry<String, HashMap<Integer, int[]>>> it = postings.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, HashMap<Integer, int[]>> entry = it.next();
+				if (entry.getKey().contains(literals.get(i))) {
+					containing.addAll(entry.getValue().keySet());
+				}
+			}
+			if (candidates == null) {
+				candidates = containing;
+			} else {
+				candidates.retainAll(containing);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Collect the runs of ASCII letters and digits that every match of a regular expression contains.
+	 *
+	 * @return  The runs in lower case, or {@code null} if the expression cannot be analysed.
+	 */
+	static ArrayList<String> literals(String regex) {
+		if (regex.indexOf('|') >= 0 || regex.indexOf('(') >= 0) {
+			return null;  // alternatives, optional groups and flags
+		}
+		ArrayList<String> literals = new ArrayList<String>();
+		StringBuilder run = new StringBuilder();
+		boolean inClass = false;
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			boolean literal = false;
+			if (c == '\\') {
+				if (i + 1 < regex.length() && "QEpPxuc0Nk".indexOf(regex.charAt(i + 1)) >= 0) {
+					return null;
+				}
+				i++;  // an escaped character, e.g. \b or \., is not part of a run
+			} else if (inClass == true) {
+				if (c == ']') {
+					inClass = false;
+				}
+			} else if (c == '[') {
+				inClass = true;
+			} else if (c == '{') {
+				int close = regex.indexOf('}', i);
+				i = close < 0 ? regex.length() : close;  // skip the numbers of a repetition
+			} else if (c < 128 && Character.isLetterOrDigit(c)) {
+				literal = true;
+			}
+			if (literal == true) {
+				char next = i + 1 < regex.length() ? regex.charAt(i + 1) : ' ';
+				if (next == '?' || next == '*' || next == '{') {
+					literal = false;  // the character is optional or repeated
+				} else {
+					run.append(Character.toLowerCase(c));
+				}
+			}
+			if (literal == false && run.length() > 0) {
+				literals.add(run.toString());
+				run.setLength(0);
+			}
+		}
+		if (run.length() > 0) {
+			literals.add(run.toString());
+		}
+		return literals;
+	}
+}
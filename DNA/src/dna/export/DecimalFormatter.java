@@ -0,0 +1,93 @@
+package dna.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes numbers with six decimal places, exactly as {@code String.format(Locale.ENGLISH, "%.6f", value)} 
+ * would, but without creating a formatter and a string for every number. The digits are computed with 
+ * integer arithmetic into a reusable character buffer. The few numbers where this could round differently 
+ * from the formatter (values that are very close to a rounding tie, very large values, infinity and NaN) 
+ * are passed on to {@code String.format}. A formatter is not thread-safe; every export uses its own.
+ */
+class DecimalFormatter {
+	private static final char[] ZERO = "0.000000".toCharArray();
+	private char[] buffer = new char[32];
+	
+	/**
+	 * Write a number to a writer.
+	 * 
+	 * @param out    The writer.
+	 * @param value  The number.
+	 * @throws IOException  If the writer fails.
+	 */
+	public void write(Writer out, double value) throws IOException {
+		if (value == 0 && 1 / value > 0) {  // positive zero, which is most cells of a matrix
+			out.write(ZERO);
+			return;
+		}
+		int length = format(value);
+		if (length < 0) {
+			out.write(String.format(Locale.ENGLISH, "%.6f", value));
+		} else {
+			out.write(buffer, 0, length);
+		}
+	}
+	
+	/**
+	 * Write a number that was stored as a {@code float}. The number is first rounded to the shortest decimal 
+	 * that identifies the float, so that 266.3f is written as 266.300000 and not as the 266.299988 of the 
+	 * widened double.
+	 * 
+	 * @param out    The writer.
+	 * @param value  The number, widened from a float.
+	 * @throws IOException  If the writer fails.
+	 */
+	public void writeFloat(Writer out, double value) throws IOException {
+		if (value == 0) {
+			write(out, value);
+		} else {
+			write(out, Double.parseDouble(Float.toString((float) value)));
+		}
+	}
+	
+	/**
+	 * Format a number into the buffer.
+	 * 
+	 * @param value  The number.
+	 * @return       The number of characters written, or -1 if the number must be formatted by 
+	 *               {@code String.format}.
+	 */
+	private int format(double value) {
+		double a = Math.abs(value);
+		if (!(a < 1e9)) {  // also infinity and NaN
+			return -1;
+		}
+		double scaled = a * 1e6;
+		double floor = Math.floor(scaled);
+		double fraction = scaled - floor;
+		if (Math.abs(fraction - 0.5) <= 2 * Math.ulp(scaled)) {  // too close to a tie to tell how to round
+			return -1;
+		}
+		long units = (long) floor + (fraction > 0.5 ? 1 : 0);
+		
+		// write the digits from right to left
+		int p = buffer.length;
+		for (int i = 0; i < 6; i++) {
+			buffer[--p] = (char) ('0' + units % 10);
+			units = units / 10;
+		}
+		buffer[--p] = '.';
+		do {
+			buffer[--p] = (char) ('0' + units % 10);
+			units = units / 10;
+		} while (units > 0);
+		if (value < 0 || (value == 0 && 1 / value < 0)) {
+			buffer[--p] = '-';
+		}
+		int length = buffer.length - p;
+		System.arraycopy(buffer, p, buffer, 0, length);
+		return length;
+	}
+}
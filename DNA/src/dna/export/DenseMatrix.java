@@ -0,0 +1,230 @@
+package dna.export;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A dense matrix stored row by row in a single array. This is the counterpart of {@link SparseMatrix} for
+ * the cases in which dense matrices cannot be avoided, for example small and dense networks or matrices
+ * handed over from R as two-dimensional arrays. The operations are cache-blocked: the product is computed
+ * in tiles of {@value #BLOCK} x {@value #BLOCK} cells, so that the tiles of both factors stay in the cache
+ * while they are used, and the product with the own transpose, A * A^T, never creates the transpose and
+ * computes only one triangle of the symmetric result. Large operations are distributed over
+ * all processor cores by splitting the rows of the result into blocks.
+ *
+ * Each cell of a product is summed up in the same order as in the naive triple loop, so the results do not
+ * depend on the block size or the number of threads. DenseMatrix objects are immutable once they are
+ * returned by an operation.
+ */
+public class DenseMatrix {
+	static final int BLOCK = 64;  // tile size in rows and columns; 64 x 64 doubles take 32 KB
+	static final long PARALLEL = 1L << 18;  // minimal number of multiply-adds before threads are used
+	int rows, cols;
+	double[] values;  // cell (i, j) is at position i * cols + j
+
+	DenseMatrix(int rows, int cols, double[] values) {
+		this.rows = rows;
+		this.cols = cols;
+		this.values = values;
+	}
+
+	/**
+	 * Create a matrix of zeros.
+	 *
+	 * @param rows  Number of rows.
+	 * @param cols  Number of columns.
+	 */
+	public DenseMatrix(int rows, int cols) {
+		this(rows, cols, new double[rows * cols]);
+	}
+
+	/**
+	 * Convert a two-dimensional array into a dense matrix.
+	 *
+	 * @param mat  Two-dimensional array.
+	 * @return     The dense matrix.
+	 */
+	public static DenseMatrix fromArray(double[][] mat) {
+		int cols = mat.length > 0 ? mat[0].length : 0;
+		DenseMatrix result = new DenseMatrix(mat.length, cols);
+		for (int i = 0; i < mat.length; i++) {
+			System.arraycopy(mat[i], 0, result.values, i * cols, cols);
+		}
+		return result;
+	}
+
+	/**
+	 * @return  The matrix as a two-dimensional array.
+	 */
+	public double[][] toArray() {
+		double[][] mat = new double[rows][cols];
+		for (int i = 0; i < rows; i++) {
+			System.arraycopy(values, i * cols, mat[i], 0, cols);
+		}
+		return mat;
+	}
+
+	/**
+	 * @return  The number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return  The number of columns.
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Compute the matrix product with another matrix.
+	 *
+	 * @param other  The right factor.
+	 * @return       The product.
+	 */
+	public DenseMatrix multiply(final DenseMatrix other) {
+		if (cols != other.rows) {
+			throw new IllegalArgumentException("A:Rows: " + cols + " did not match B:Columns " + other.rows + ".");
+		}
+		final DenseMatrix result = new DenseMatrix(rows, other.cols);
+		final int n = other.cols;
+		run(rows, (long) rows * cols * n, new RowKernel() {
+			public void compute(int from, int to) {
+				for (int kk = 0; kk < cols; kk += BLOCK) {
+					int kEnd = Math.min(kk + BLOCK, cols);
+					for (int jj = 0; jj < n; jj += BLOCK) {
+						int jEnd = Math.min(jj + BLOCK, n);
+						for (int i = from; i < to; i++) {
+							int c = i * n;
+							for (int k = kk; k < kEnd; k++) {
+								double a = values[i * cols + k];
+								if (a == 0) {
+									continue;
+								}
+								int b = k * n;
+								for (int j = jj; j < jEnd; j++) {
+									result.values[c + j] += a * other.values[b + j];
+								}
+							}
+						}
+					}
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Compute the product of this matrix with its own transpose, A * A^T, for example to convert a two-mode
+	 * network into a one-mode network over the rows. Cell (i, j) is the dot product of rows i and j, so the
+	 * transpose is not needed; only the upper triangle is computed and then mirrored.
+	 *
+	 * @return  The symmetric product with as many rows and columns as this matrix has rows.
+	 */
+	public DenseMatrix multiplyTranspose() {
+		final DenseMatrix result = new DenseMatrix(rows, rows);
+		run(rows, (long) rows * rows * cols / 2, new RowKernel() {
+			public void compute(int from, int to) {
+				for (int jj = from - from % BLOCK; jj < rows; jj += BLOCK) {
+					int jEnd = Math.min(jj + BLOCK, rows);
+					for (int i = from; i < to; i++) {
+						int a = i * cols;
+						for (int j = Math.max(i, jj); j < jEnd; j++) {
+							int b = j * cols;
+							double sum = 0;
+							for (int k = 0; k < cols; k++) {
+								sum += values[a + k] * values[b + k];
+							}
+							result.values[i * rows + j] = sum;
+						}
+					}
+				}
+			}
+		});
+		result.mirror();
+		return result;
+	}
+
+	/**
+	 * Copy the upper triangle of a square matrix into the lower triangle.
+	 */
+	private void mirror() {
+		for (int i = 0; i < rows; i++) {
+			for (int j = i + 1; j < cols; j++) {
+				values[j * cols + i] = values[i * cols + j];
+			}
+		}
+	}
+
+	/**
+	 * @return  The transpose of the matrix.
+	 */
+	public DenseMatrix transpose() {
+		final DenseMatrix result = new DenseMatrix(cols, rows);
+		run(cols, (long) rows * cols, new RowKernel() {
+			public void compute(int from, int to) {
+				for (int jj = 0; jj < rows; jj += BLOCK) {  // copy tile by tile
+					int jEnd = Math.min(jj + BLOCK, rows);
+					for (int i = from; i < to; i++) {
+						for (int j = jj; j < jEnd; j++) {
+							result.values[i * rows + j] = values[j * cols + i];
+						}
+					}
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Computes a range of rows of a result.
+	 */
+	interface RowKernel {
+		void compute(int from, int to);
+	}
+
+	/**
+	 * Apply a kernel to all rows of a result, in parallel if there is enough work.
+	 *
+	 * @param rows    The number of rows of the result.
+	 * @param work    The approximate number of operations.
+	 * @param kernel  The kernel.
+	 */
+	static void run(int rows, long work, RowKernel kernel) {
+		if (work < PARALLEL || rows <= BLOCK) {
+			kernel.compute(0, rows);
+		} else {
+			ForkJoinPool.commonPool().invoke(new RowTask(kernel, 0, rows));
+		}
+	}
+
+	/**
+	 * Splits a range of rows in half until single blocks of rows are left.
+	 */
+	static class RowTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		RowKernel kernel;
+		int from, to;
+
+		RowTask(RowKernel kernel, int from, int to) {
+			this.kernel = kernel;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > BLOCK) {
+				int middle = from + ((to - from) / BLOCK / 2) * BLOCK;  // split at a block boundary
+				if (middle == from) {
+					middle = from + BLOCK;
+				}
+				invokeAll(new RowTask(kernel, from, middle), new RowTask(kernel, middle, to));
+			} else {
+				kernel.compute(from, to);
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package dna.export;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import dna.dataStructures.Data;
+import dna.dataStructures.Statement;
+
+/**
+ * Intermediate results that several exports of the same data have in common: the filtered statements per 
+ * statement type, date range and exclusion lists, the label lists and dictionaries per statement list and 
+ * variable, and the two-mode networks per statement list and pair of variables. Each result is computed 
+ * once, by the first export that needs it, and shared by all later exports. The cache can be used by 
+ * several threads at the same time; a thread that asks for a result that is being computed by another 
+ * thread waits for it instead of computing it again.
+ * 
+ * Cached lists and matrices are shared and must not be modified.
+ */
+class ExportCache {
+	Data data;
+	ConcurrentHashMap<Object, FutureTask<Object>> results = new ConcurrentHashMap<Object, FutureTask<Object>>();
+	
+	/**
+	 * @param data  The data from which all cached results are computed.
+	 */
+	public ExportCache(Data data) {
+		this.data = data;
+	}
+	
+	/**
+	 * Return a cached result or compute it.
+	 * 
+	 * @param key      The key of the result.
+	 * @param compute  The computation of the result if it is not in the cache yet.
+	 * @return         The result.
+	 */
+	@SuppressWarnings("unchecked")
+	private <V> V get(Object key, Callable<V> compute) {
+		FutureTask<Object> task = results.get(key);
+		if (task == null) {
+			FutureTask<Object> newTask = new FutureTask<Object>((Callable<Object>) compute);
+			task = results.putIfAbsent(key, newTask);
+			if (task == null) {  // this thread computes the result
+				task = newTask;
+				newTask.run();
+			}
+		}
+		try {
+			return (V) task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a cached export result.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
+	/**
+	 * @param exportSetting  The export settings.
+	 * @return               The statements that pass the filter of the export settings, i.e., the statement 
+	 *                       type, date range and excluded values.
+	 */
+	public ArrayList<Statement> filter(ExportSetting exportSetting) {
+		Object key = Arrays.asList("filter", exportSetting.getStatementType().getId(), exportSetting.getStartDate(), 
+				exportSetting.getStopDate(), exportSetting.getAuthorExclude(), exportSetting.getSourceExclude(), 
+				exportSetting.getSectionExclude(), exportSetting.getTypeExclude(), exportSetting.getExcludeValues());
+		return get(key, () -> new NetworkCreator(exportSetting, data).filter());
+	}
+	
+	/**
+	 * @param statementTypeId  The ID of a statement type.
+	 * @return                 All statements of the statement type, regardless of the filter.
+	 */
+	public ArrayList<Statement> getStatementsByStatementTypeId(int statementTypeId) {
+		return get(Arrays.asList("type", statementTypeId), () -> data.getStatementsByStatementTypeId(statementTypeId));
+	}
+	
+	/**
+	 * @param statements  A list of statements obtained from this cache.
+	 * @param variable    A variable.
+	 * @return            The sorted unique values of the variable in the statements.
+	 */
+	public ArrayList<String> labels(ArrayList<Statement> statements, String variable) {
+		return get(Arrays.asList("labels", new Identity(statements), variable), () -> NetworkCreator.labels(statements, variable));
+	}
+	
+	/**
+	 * @param names  A list of labels obtained from this cache.
+	 * @return       The dictionary from labels to their positions in the list.
+	 */
+	public HashMap<String, Integer> dictionary(ArrayList<String> names) {
+		return get(Arrays.asList("dictionary", new Identity(names)), () -> NetworkCreator.dictionary(names));
+	}
+	
+	/**
+	 * @param statements       A list of statements obtained from this cache.
+	 * @param var1             The variable of the rows.
+	 * @param var2             The variable of the columns.
+	 * @param rows             A dictionary of row labels obtained from this cache.
+	 * @param cols             A dictionary of column labels obtained from this cache.
+	 * @param countDuplicates  Whether duplicate statements in the same document are counted.
+	 * @return                 The two-mode network of the statements.
+	 */
+	public SparseMatrix affiliation(ArrayList<Statement> statements, String var1, String var2, HashMap<String, Integer> rows, 
+			HashMap<String, Integer> cols, boolean countDuplicates) {
+		Object key = Arrays.asList("affiliation", new Identity(statements), var1, var2, new Identity(rows), new Identity(cols), 
+				countDuplicates);
+		return get(key, () -> NetworkCreator.affiliation(statements, var1, var2, rows, cols, countDuplicates));
+	}
+	
+	/**
+	 * Compares an object by identity. Cached lists are shared objects, so a list can be recognized by 
+	 * identity without comparing its contents.
+	 */
+	private static class Identity {
+		Object object;
+		
+		Identity(Object object) {
+			this.object = object;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Identity && ((Identity) o).object == object;
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(object);
+		}
+	}
+}
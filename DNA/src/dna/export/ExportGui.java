@@ -25,6 +25,7 @@ import javax.swing.ButtonGroup;
 import javax.swing.DefaultListModel;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
@@ -410,6 +411,7 @@ public class ExportGui extends JDialog {
 					ignoreButton.setEnabled(false);
 					agreeButtonLabel.setEnabled(false);
 					allAggButton.setSelected(true);
+					exportSetting.setAggregationRule("across date range");
 					docAggButton.setEnabled(false);
 					yearAggButton.setEnabled(false);
 					windowAggButton.setEnabled(false);
@@ -446,6 +448,7 @@ public class ExportGui extends JDialog {
 					ignoreButton.setEnabled(false);
 					agreeButtonLabel.setEnabled(false);
 					allAggButton.setSelected(true);
+					exportSetting.setAggregationRule("across date range");
 					docAggButton.setEnabled(false);
 					yearAggButton.setEnabled(false);
 					windowAggButton.setEnabled(false);
@@ -966,6 +969,11 @@ public class ExportGui extends JDialog {
 		SpinnerNumberModel dayModel = new SpinnerNumberModel(exportSetting.getWindowSize(), 1, 999, 1);
 		windowDays = new JSpinner(dayModel);
 		windowDays.setEnabled(false);
+		windowDays.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent e) {
+				exportSetting.setWindowSize((Integer) windowDays.getValue());
+			}
+		});
 		datePanel.add(windowDays, dategbc);
 		dategbc.gridx = 3;
 		daysLabel = new JLabel(" days");
@@ -1170,6 +1178,15 @@ public class ExportGui extends JDialog {
 		csvFormatButton.setSelected(true);
 		
 		outputgbc.gridy = 4;
+		JCheckBox compressBox = new JCheckBox("gzip-compressed file (.gz)");
+		compressBox.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				exportSetting.setCompress(compressBox.isSelected());
+			}
+		});
+		outputPanel.add(compressBox, outputgbc);
+		
+		outputgbc.gridy = 5;
 		outputgbc.gridwidth = 1;
 		outputgbc.insets = new Insets(10, 0, 0, 10);
 		ImageIcon fileIcon = new ImageIcon(getClass().getResource("/icons/folder.png"));
@@ -1188,10 +1205,10 @@ public class ExportGui extends JDialog {
 				JFileChooser fc = new JFileChooser();
 				fc.setFileFilter(new FileFilter() {
 					public boolean accept(File f) {
-						return f.getName().toLowerCase().endsWith(exportSetting.getExportFormat()) || f.isDirectory();
+						return f.getName().toLowerCase().endsWith(exportSetting.getFileExtension()) || f.isDirectory();
 					}
 					public String getDescription() {
-						return "Network File (*" + exportSetting.getExportFormat() + ")";
+						return "Network File (*" + exportSetting.getFileExtension() + ")";
 					}
 				});
 				
@@ -1199,8 +1216,8 @@ public class ExportGui extends JDialog {
 				if (returnVal == JFileChooser.APPROVE_OPTION) {
 					File file = fc.getSelectedFile();
 					String fileName = file.getPath();
-					if (!fileName.endsWith(exportSetting.getExportFormat())) {
-						fileName = fileName + exportSetting.getExportFormat();
+					if (!fileName.endsWith(exportSetting.getFileExtension())) {
+						fileName = fileName + exportSetting.getFileExtension();
 					}
 					fileLabel.setText(fileName);
 					export.setEnabled(true);
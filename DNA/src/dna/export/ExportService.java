@@ -0,0 +1,305 @@
+package dna.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import dna.Dna;
+import dna.SqlConnection;
+import dna.dataStructures.Data;
+import dna.dataStructures.Statement;
+import dna.dataStructures.StatementType;
+
+/**
+ * Creates networks without the graphical user interface, for example in a batch job on a server or from R
+ * via rJava. The database is read once when the service is created; any number of export settings can
+ * then be applied to the data.
+ *
+ * Export settings can be created in code with {@link #createSetting(String, String, String, String)} or
+ * read from a properties file with {@link #readSetting(File)}. The following keys are recognized in a
+ * properties file; all except statementType, var1, var2 and fileName are optional:
+ *
+ * <pre>
+ * networkType      = oneMode | twoMode | eventList                 (default: oneMode)
+ * statementType    = label of the statement type, e.g. DNA Statement
+ * var1, var2       = variables for the rows and columns, e.g. organization and concept
+ * qualifier        = qualifier variable, e.g. agreement
+ * agreementPattern = ignore | congruence | conflict | subtract      (default: ignore)
+ * startDate        = yyyy-MM-dd                                     (default: first statement)
+ * stopDate         = yyyy-MM-dd                                     (default: last statement)
+ * aggregationRule  = all | document | year | window                (default: all)
+ * windowSize       = number of days of a time window                (default: 30)
+ * normalization    = cooccurrence | average | jaccard | cosine      (default: cooccurrence)
+ * exportFormat     = csv | dl | graphml                             (default: csv)
+ * compress         = true | false, gzip-compress the output files    (default: false)
+ * countDuplicates  = true | false                                   (default: false)
+ * includeIsolates  = true | false                                   (default: false)
+ * excludeAuthors, excludeSources, excludeSections, excludeTypes = document values separated by |
+ * exclude.VARIABLE = values of the variable separated by |
+ * fileName         = output file
+ * </pre>
+ */
+public class ExportService {
+	Data data;
+
+	/**
+	 * Read all data from a DNA database.
+	 *
+	 * @param dbtype    The type of database: "sqlite" or "mysql".
+	 * @param dbfile    The file name of an SQLite database or the address of a MySQL database.
+	 * @param login     The user name for MySQL; empty for SQLite.
+	 * @param password  The password for MySQL; empty for SQLite.
+	 */
+	public ExportService(String dbtype, String dbfile, String login, String password) {
+		SqlConnection sql = new SqlConnection(dbtype, dbfile, login, password);
+		this.data = sql.getAllData();
+		sql.closeConnection();
+		Dna.data = data;  // some look-ups in the data structures go through the global data object
+	}
+
+	/**
+	 * Read all data from an SQLite database file.
+	 *
+	 * @param dbfile  The file name of the .dna database.
+	 */
+	public ExportService(String dbfile) {
+		this("sqlite", dbfile, "", "");
+	}
+
+	/**
+	 * Export from data that are already in memory, for example the data currently loaded in DNA.
+	 *
+	 * @param data  The data.
+	 */
+	public ExportService(Data data) {
+		this.data = data;
+	}
+
+	/**
+	 * @return  The data read from the database.
+	 */
+	public Data getData() {
+		return data;
+	}
+
+	/**
+	 * Create export settings with the default options for the whole date range of the data.
+	 *
+	 * @param networkType    "oneMode", "twoMode" or "eventList".
+	 * @param statementType  The label of the statement type.
+	 * @param var1           The first variable, e.g., "organization".
+	 * @param var2           The second variable, e.g., "concept".
+	 * @return               The export settings.
+	 */
+	public ExportSetting createSetting(String networkType, String statementType, String var1, String var2) {
+		StatementType type = data.getStatementType(statementType);
+		if (type == null) {
+			throw new IllegalArgumentException("Statement type \"" + statementType + "\" does not exist.");
+		}
+		Date start = null;
+		Date stop = null;
+		for (int i = 0; i < data.getStatements().size(); i++) {
+			Date d = data.getStatements().get(i).getDate();
+			if (start == null || d.before(start)) {
+				start = d;
+			}
+			if (stop == null || d.after(stop)) {
+				stop = d;
+			}
+		}
+		if (start == null) {
+			start = new Date();
+			stop = start;
+		}
+		return new ExportSetting(networkType, type, start, stop, var1, var2);
+	}
+
+	/**
+	 * Read export settings from a properties file. See the class description for the keys.
+	 *
+	 * @param file  The properties file.
+	 * @return      The export settings.
+	 * @throws IOException  If the file cannot be read or contains invalid values.
+	 */
+	public ExportSetting readSetting(File file) throws IOException {
+		Properties p = new Properties();
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try {
+			p.load(reader);
+		} finally {
+			reader.close();
+		}
+		ExportSetting exportSetting;
+		try {
+			exportSetting = createSetting(p.getProperty("networkType", "oneMode"), required(p, "statementType"),
+					required(p, "var1"), required(p, "var2"));
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + ": " + e.getMessage());
+		}
+		exportSetting.setFileName(required(p, "fileName"));
+		exportSetting.setQualifier(p.getProperty("qualifier"));
+		exportSetting.setAgreementPattern(p.getProperty("agreementPattern", "ignore"));
+		exportSetting.setNormalization(p.getProperty("normalization", "cooccurrence"));
+		exportSetting.setCountDuplicates(Boolean.parseBoolean(p.getProperty("countDuplicates", "false")));
+		exportSetting.setIncludeIsolates(Boolean.parseBoolean(p.getProperty("includeIsolates", "false")));
+		exportSetting.setWindowSize(Integer.parseInt(p.getProperty("windowSize", "30")));
+		String format = p.getProperty("exportFormat", "csv");
+		exportSetting.setExportFormat(format.startsWith(".") ? format : "." + format);
+		exportSetting.setCompress(Boolean.parseBoolean(p.getProperty("compress", "false")));
+		String rule = p.getProperty("aggregationRule", "all");
+		if (rule.equals("all")) {
+			rule = "across date range";
+		} else if (rule.equals("document")) {
+			rule = "per document";
+		} else if (rule.equals("year")) {
+			rule = "per calendar year";
+		} else if (rule.equals("window")) {
+			rule = "per time window:";
+		}
+		exportSetting.setAggregationRule(rule);
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		try {
+			if (p.getProperty("startDate") != null) {
+				exportSetting.setStartDate(dateFormat.parse(p.getProperty("startDate")));
+			}
+			if (p.getProperty("stopDate") != null) {  // include the whole stop day
+				exportSetting.setStopDate(new Date(dateFormat.parse(p.getProperty("stopDate")).getTime() + 86399999L));
+			}
+		} catch (ParseException e) {
+			throw new IOException(file + ": dates must have the format yyyy-MM-dd.");
+		}
+		exportSetting.setAuthorExclude(values(p.getProperty("excludeAuthors")));
+		exportSetting.setSourceExclude(values(p.getProperty("excludeSources")));
+		exportSetting.setSectionExclude(values(p.getProperty("excludeSections")));
+		exportSetting.setTypeExclude(values(p.getProperty("excludeTypes")));
+		Iterator<String> keyIterator = exportSetting.getExcludeValues().keySet().iterator();
+		while (keyIterator.hasNext()) {
+			String key = keyIterator.next();
+			exportSetting.getExcludeValues().put(key, values(p.getProperty("exclude." + key)));
+		}
+		return exportSetting;
+	}
+
+	private static String required(Properties p, String key) throws IOException {
+		String value = p.getProperty(key);
+		if (value == null || value.trim().equals("")) {
+			throw new IOException("The export setting \"" + key + "\" is missing.");
+		}
+		return value.trim();
+	}
+
+	private static ArrayList<String> values(String list) {
+		if (list == null || list.equals("")) {
+			return new ArrayList<String>();
+		}
+		return new ArrayList<String>(Arrays.asList(list.split("\\|")));
+	}
+
+	/**
+	 * Filter the statements and write the network(s) or event list to the file(s) of the export settings.
+	 *
+	 * @param exportSetting  The export settings.
+	 * @return               The number of files written.
+	 */
+	public int export(ExportSetting exportSetting) {
+		NetworkCreator networkCreator = new NetworkCreator(exportSetting, data);
+		ArrayList<Statement> statements = networkCreator.filter();
+		return networkCreator.write(statements);
+	}
+
+	/**
+	 * Export several networks from the same data in parallel. See {@link #exportBatch(ArrayList)}.
+	 *
+	 * @param exportSettings  The export settings, one per network or network sequence.
+	 * @return                The number of files written.
+	 */
+	public int export(ArrayList<ExportSetting> exportSettings) {
+		int[] counts = exportBatch(exportSettings);
+		int count = 0;
+		for (int i = 0; i < counts.length; i++) {
+			count = count + counts[i];
+		}
+		return count;
+	}
+
+	/**
+	 * Export several networks from the same data in parallel. Intermediate results that several exports 
+	 * have in common, such as the filtered statements, the labels and the two-mode networks, are computed 
+	 * only once. The exports are distributed over all processor cores. If an export fails, the error is 
+	 * printed and the other exports go ahead.
+	 *
+	 * @param exportSettings  The export settings, one per network or network sequence.
+	 * @return                The number of files written for each of the export settings; 0 if it failed.
+	 */
+	public int[] exportBatch(ArrayList<ExportSetting> exportSettings) {
+		int[] counts = new int[exportSettings.size()];
+		ExportCache cache = new ExportCache(data);
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			pool.invoke(new ExportTask(exportSettings, 0, exportSettings.size(), cache, counts));
+		} finally {
+			pool.shutdown();
+		}
+		return counts;
+	}
+
+	/**
+	 * Exports a range of the export settings of a batch, splitting it in half until single exports are left.
+	 */
+	class ExportTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		ArrayList<ExportSetting> exportSettings;
+		int from, to;
+		ExportCache cache;
+		int[] counts;
+
+		ExportTask(ArrayList<ExportSetting> exportSettings, int from, int to, ExportCache cache, int[] counts) {
+			this.exportSettings = exportSettings;
+			this.from = from;
+			this.to = to;
+			this.cache = cache;
+			this.counts = counts;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) / 2;
+				invokeAll(new ExportTask(exportSettings, from, middle, cache, counts), 
+						new ExportTask(exportSettings, middle, to, cache, counts));
+			} else if (to > from) {
+				ExportSetting exportSetting = exportSettings.get(from);
+				try {
+					NetworkCreator networkCreator = new NetworkCreator(exportSetting, data, cache);
+					counts[from] = networkCreator.write(cache.filter(exportSetting));
+				} catch (RuntimeException e) {
+					System.err.println("Export to \"" + exportSetting.getFileName() + "\" failed.");
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create a network across the whole date range without writing it to a file, for example to hand the
+	 * matrix and its labels over to R.
+	 *
+	 * @param exportSetting  The export settings; the network type must be "oneMode" or "twoMode".
+	 * @return               The network matrix with row and column labels.
+	 */
+	public Matrix getMatrix(ExportSetting exportSetting) {
+		NetworkCreator networkCreator = new NetworkCreator(exportSetting, data);
+		return networkCreator.network(networkCreator.filter()).getMatrix();
+	}
+}
@@ -25,6 +25,7 @@ public class ExportSetting {
 	String normalization;  // [coocurrence, average, jaccard, cosine]
 	boolean countDuplicates;
 	boolean includeIsolates;
+	boolean compress;  // gzip-compress the output file(s)
 	int windowSize;
 	String fileName;
 	
@@ -40,15 +41,16 @@ public class ExportSetting {
 			excludeValues.put(key, new ArrayList<String>());
 		}
 		authorExclude = new ArrayList<String>();
-		sourceExclude = authorExclude;
-		sectionExclude = authorExclude;
-		typeExclude = authorExclude;
+		sourceExclude = new ArrayList<String>();
+		sectionExclude = new ArrayList<String>();
+		typeExclude = new ArrayList<String>();
 		
 		aggregationRule = "across date range";
 		exportFormat = ".csv";
 		normalization = "cooccurrence";
 		countDuplicates = false;
 		includeIsolates = false;
+		compress = false;
 		this.windowSize = 30;
 		
 		this.statementType = statementType;
@@ -339,4 +341,26 @@ public class ExportSetting {
 	public void setIncludeIsolates(boolean includeIsolates) {
 		this.includeIsolates = includeIsolates;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * @return whether the output file(s) are gzip-compressed
+	 */
+	public boolean isCompress() {
+		return compress;
+	}
+
+	/**
+	 * @param compress whether the output file(s) should be gzip-compressed
+	 */
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
+	/**
+	 * @return the file name extension of the output file(s): the export format, followed by ".gz" if the
+	 *         files are compressed
+	 */
+	public String getFileExtension() {
+		return compress ? exportFormat + ".gz" : exportFormat;
+	}
+}
@@ -0,0 +1,281 @@
+package dna.export;
+
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a network as a GraphML file for visone. The file is streamed with StAX: edges are written from 
+ * the non-zero cells of the matrix, without building an XML document tree or an edge list in memory 
+ * first. As in the edge list of the network, only nodes with at least one edge are written: the rows in 
+ * their order, followed in two-mode networks by the columns in the order of their first edge.
+ */
+class GraphMLWriter {
+	private static final String GRAPHML = "http://graphml.graphdrawing.org/xmlns";
+	private static final String VISONE = "http://visone.info/xmlns";
+	private static final String XSI = "http://www.w3.org/2001/XMLSchema-instance";
+	private static final String Y = "http://www.yworks.com/xml/graphml";
+	
+	XMLStreamWriter xml;
+	int depth = 0;
+	
+	/**
+	 * @param out  The stream to write to; it is not closed by the writer.
+	 * @throws XMLStreamException  If the XML writer cannot be created.
+	 */
+	public GraphMLWriter(OutputStream out) throws XMLStreamException {
+		xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+	}
+	
+	/**
+	 * Write a network.
+	 * 
+	 * @param network  The network.
+	 * @throws XMLStreamException  If writing fails.
+	 */
+	public void write(Network network) throws XMLStreamException {
+		String[] rn = network.getMatrix().getRownames();
+		String[] cn = network.getMatrix().getColnames();
+		Matrix matrix = network.getMatrix();
+		SparseMatrix mat = matrix.isSymmetric() ? null : matrix.getSparse();  // packed matrices are read row by row
+		double[] row = new double[cn.length];
+		boolean integer = mat != null || matrix.getSymmetric().isInteger();
+		int modes = network.getModes();
+		boolean[] rowUsed = new boolean[rn.length];
+		boolean[] colUsed = new boolean[cn.length];
+		int[] colOrder = new int[cn.length];  // columns with an edge, in the order of their first edge
+		int numCols = 0;
+		int numVertices = 0;
+		int numEdges = 0;
+		for (int i = 0; i < rn.length; i++) {
+			int start = numEdges;
+			if (mat == null) {
+				matrix.getRow(i, row);
+				for (int j = 0; j < cn.length; j++) {
+					if (row[j] != 0 && j != i) {  // no self-loops in one-mode networks
+						numEdges++;
+						if (!colUsed[j]) {
+							colUsed[j] = true;
+							colOrder[numCols++] = j;
+						}
+					}
+				}
+			} else {
+				for (int p = mat.rowStart(i); p < mat.rowEnd(i); p++) {
+					int j = mat.columnAt(p);
+					if (modes == 2 || j != i) {
+						numEdges++;
+						if (!colUsed[j]) {
+							colUsed[j] = true;
+							colOrder[numCols++] = j;
+						}
+					}
+				}
+			}
+			if (numEdges > start) {
+				rowUsed[i] = true;
+				numVertices++;
+			}
+		}
+		if (modes == 2) {
+			numVertices = numVertices + numCols;
+		}
+		
+		xml.writeStartDocument("UTF-8", "1.0");
+		start("graphml");
+		xml.writeDefaultNamespace(GRAPHML);
+		xml.writeNamespace("visone", VISONE);
+		xml.writeNamespace("xsi", XSI);
+		xml.writeNamespace("y", Y);
+		xml.writeAttribute("xsi", XSI, "schemaLocation", 
+				"http://graphml.graphdrawing.org/xmlns/graphml http://www.yworks.com/xml/schema/graphml/1.0/ygraphml.xsd ");
+		comment(" data schema ");
+		key("d0", "node", "yfiles.type", "nodegraphics", null);
+		key("e0", "edge", "yfiles.type", "edgegraphics", null);
+		key("prop", "graph", "visone.type", "properties", null);
+		key("id", "node", "attr.name", "id", "string");
+		key("class", "node", "attr.name", "class", "string");
+		key("weight", "edge", "attr.name", "weight", "double");
+		
+		start("graph");
+		xml.writeAttribute("edgedefault", "undirected");
+		xml.writeAttribute("id", "G");
+		xml.writeAttribute("parse.edges", String.valueOf(numEdges));
+		xml.writeAttribute("parse.nodes", String.valueOf(numVertices));
+		xml.writeAttribute("parse.order", "free");
+		start("data");
+		xml.writeAttribute("key", "prop");
+		empty(VISONE, "labelAttribute");
+		xml.writeAttribute("edgeLabel", "weight");
+		xml.writeAttribute("nodeLabel", "id");
+		end();
+		
+		comment(" nodes ");
+		for (int i = 0; i < rn.length; i++) {
+			if (rowUsed[i]) {
+				node(rn[i], "mode1", "#3399FF", "roundrectangle");  // light blue
+			}
+		}
+		if (modes == 2) {
+			for (int k = 0; k < numCols; k++) {
+				node(cn[colOrder[k]], "mode2", "#00FF00", "ellipse");  // green
+			}
+		}
+		
+		comment(" edges ");
+		for (int i = 0; i < rn.length; i++) {
+			if (mat == null) {
+				matrix.getRow(i, row);
+				for (int j = 0; j < cn.length; j++) {
+					if (row[j] != 0 && j != i) {  // float values are written with float precision
+						edge(rn[i], cn[j], row[j], integer ? String.valueOf(row[j]) : String.valueOf((float) row[j]));
+					}
+				}
+			} else {
+				for (int p = mat.rowStart(i); p < mat.rowEnd(i); p++) {
+					int j = mat.columnAt(p);
+					if (modes == 2 || j != i) {
+						edge(rn[i], cn[j], mat.valueAt(p), String.valueOf(mat.valueAt(p)));
+					}
+				}
+			}
+		}
+		end();  // graph
+		end();  // graphml
+		newLine();
+		xml.writeEndDocument();
+		xml.flush();
+	}
+	
+	private void key(String id, String forWhat, String name, String value, String type) throws XMLStreamException {
+		empty(GRAPHML, "key");
+		xml.writeAttribute("id", id);
+		xml.writeAttribute("for", forWhat);
+		xml.writeAttribute(name, value);
+		if (type != null) {
+			xml.writeAttribute("attr.type", type);
+		}
+	}
+	
+	private void node(String label, String type, String hex, String shapeString) throws XMLStreamException {
+		start("node");
+		xml.writeAttribute("id", label);
+		data("id", label);
+		data("class", type);
+		start("data");
+		xml.writeAttribute("key", "d0");
+		start(VISONE, "shapeNode");
+		start(Y, "ShapeNode");
+		empty(Y, "Geometry");
+		xml.writeAttribute("height", "20.0");
+		xml.writeAttribute("width", "20.0");
+		xml.writeAttribute("x", String.valueOf(Math.random() * 800));
+		xml.writeAttribute("y", String.valueOf(Math.random() * 600));
+		empty(Y, "Fill");
+		xml.writeAttribute("color", hex);
+		xml.writeAttribute("transparent", "false");
+		empty(Y, "BorderStyle");
+		xml.writeAttribute("color", "#000000");
+		xml.writeAttribute("type", "line");
+		xml.writeAttribute("width", "1.0");
+		newLine();
+		xml.writeStartElement("y", "NodeLabel", Y);
+		xml.writeAttribute("alignment", "center");
+		xml.writeAttribute("autoSizePolicy", "content");
+		xml.writeAttribute("backgroundColor", "#FFFFFF");
+		xml.writeAttribute("fontFamily", "Dialog");
+		xml.writeAttribute("fontSize", "12");
+		xml.writeAttribute("fontStyle", "plain");
+		xml.writeAttribute("hasLineColor", "false");
+		xml.writeAttribute("height", "19.0");
+		xml.writeAttribute("modelName", "eight_pos");
+		xml.writeAttribute("modelPosition", "n");
+		xml.writeAttribute("textColor", "#000000");
+		xml.writeAttribute("visible", "true");
+		xml.writeCharacters(label);
+		xml.writeEndElement();
+		empty(Y, "Shape");
+		xml.writeAttribute("type", shapeString);
+		end();  // ShapeNode
+		end();  // shapeNode
+		end();  // data
+		end();  // node
+	}
+	
+	private void edge(String source, String target, double weight, String text) throws XMLStreamException {
+		start("edge");
+		xml.writeAttribute("source", source);
+		xml.writeAttribute("target", target);
+		data("weight", text);
+		start("data");
+		xml.writeAttribute("key", "e0");
+		start(VISONE, "polyLineEdge");
+		start(Y, "PolyLineEdge");
+		empty(Y, "LineStyle");
+		xml.writeAttribute("color", weight > 0 ? "#00ff00" : weight < 0 ? "#ff0000" : "#000000");
+		xml.writeAttribute("type", "line");
+		xml.writeAttribute("width", "2.0");
+		end();  // PolyLineEdge
+		end();  // polyLineEdge
+		end();  // data
+		end();  // edge
+	}
+	
+	/**
+	 * Write a data element with text content on a single line.
+	 */
+	private void data(String key, String text) throws XMLStreamException {
+		newLine();
+		xml.writeStartElement(GRAPHML, "data");
+		xml.writeAttribute("key", key);
+		xml.writeCharacters(text);
+		xml.writeEndElement();
+	}
+	
+	private void comment(String text) throws XMLStreamException {
+		newLine();
+		xml.writeComment(text);
+	}
+	
+	// elements are indented by two spaces per level, like the pretty format of JDOM
+	
+	private void start(String name) throws XMLStreamException {
+		start(GRAPHML, name);
+	}
+	
+	private void start(String namespace, String name) throws XMLStreamException {
+		newLine();
+		xml.writeStartElement(prefix(namespace), name, namespace);
+		depth++;
+	}
+	
+	private void empty(String namespace, String name) throws XMLStreamException {
+		newLine();
+		xml.writeEmptyElement(prefix(namespace), name, namespace);
+	}
+	
+	private void end() throws XMLStreamException {
+		depth--;
+		newLine();
+		xml.writeEndElement();
+	}
+	
+	private void newLine() throws XMLStreamException {
+		xml.writeCharacters("\n");
+		for (int i = 0; i < depth; i++) {
+			xml.writeCharacters("  ");
+		}
+	}
+	
+	private static String prefix(String namespace) {
+		if (namespace.equals(VISONE)) {
+			return "visone";
+		} else if (namespace.equals(Y)) {
+			return "y";
+		} else {
+			return "";
+		}
+	}
+}
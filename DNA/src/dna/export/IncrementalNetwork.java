@@ -0,0 +1,275 @@
+package dna.export;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import dna.dataStructures.Statement;
+
+/**
+ * A network that is updated statement by statement. Statements can be added and removed in any order, and
+ * the two-mode network and the congruence, conflict and ignore projections are updated in place: adding a
+ * statement by actor i about concept c only touches the actors who also refer to c. This is used for
+ * time-window and other aggregated exports, where a sliding window adds the statements entering the window
+ * and removes the ones leaving it instead of rebuilding the network for every window.
+ *
+ * The results are the same as those of {@link NetworkCreator#twoMode} and {@link NetworkCreator#oneMode}
+ * for the statements currently in the network.
+ */
+class IncrementalNetwork {
+	String var1, var2, qualifier, agreementPattern, normalization;
+	boolean countDuplicates;
+	String[] rownames, colnames;
+	HashMap<String, Integer> rows, cols;
+	int size = 0;  // number of statements currently in the network
+
+	// number of statements in the network with the same (document, var1, var2) and (document, var1, var2, qualifier)
+	HashMap<List<Object>, Integer> duplicates = new HashMap<List<Object>, Integer>();
+	HashMap<List<Object>, Integer> qualifiedDuplicates = new HashMap<List<Object>, Integer>();
+
+	// concept -> actor -> count, and concept -> qualifier level -> actor -> count
+	HashMap<Integer, HashMap<Integer, Integer>> affiliation = new HashMap<Integer, HashMap<Integer, Integer>>();
+	HashMap<Integer, HashMap<Object, HashMap<Integer, Integer>>> levels = new HashMap<Integer, HashMap<Object, HashMap<Integer, Integer>>>();
+
+	// non-zero cells of the projections, keyed by row * number of rows + column
+	HashMap<Long, Double> congruence = new HashMap<Long, Double>();
+	HashMap<Long, Double> conflict = new HashMap<Long, Double>();
+	HashMap<Long, Double> ignore = new HashMap<Long, Double>();
+
+	/**
+	 * @param exportSetting  The export settings; the variables, agreement pattern, normalization and the
+	 *                       treatment of duplicates are taken from here.
+	 * @param rownames       The labels of the rows, i.e., the values of the first variable.
+	 * @param colnames       The labels of the columns, i.e., the values of the second variable.
+	 */
+	public IncrementalNetwork(ExportSetting exportSetting, String[] rownames, String[] colnames) {
+		this.var1 = exportSetting.getVar1();
+		this.var2 = exportSetting.getVar2();
+		this.qualifier = exportSetting.getQualifier();
+		this.agreementPattern = exportSetting.getAgreementPattern();
+		this.normalization = exportSetting.getNormalization();
+		this.countDuplicates = exportSetting.isCountDuplicates();
+		this.rownames = rownames;
+		this.colnames = colnames;
+		this.rows = NetworkCreator.dictionary(new ArrayList<String>(Arrays.asList(rownames)));
+		this.cols = NetworkCreator.dictionary(new ArrayList<String>(Arrays.asList(colnames)));
+	}
+
+	/**
+	 * @return  The number of statements currently in the network.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Add a statement to the network.
+	 *
+	 * @param s  The statement.
+	 */
+	public void add(Statement s) {
+		update(s, 1);
+	}
+
+	/**
+	 * Remove a statement that was added before from the network.
+	 *
+	 * @param s  The statement.
+	 */
+	public void remove(Statement s) {
+		update(s, -1);
+	}
+
+	private void update(Statement s, int sign) {
+		size = size + sign;
+		String n1 = (String) s.getValues().get(var1);
+		String n2 = (String) s.getValues().get(var2);
+		Object q = qualifier == null ? null : s.getValues().get(qualifier);
+		int i = rows.get(n1);
+		int c = cols.get(n2);
+
+		// two-mode network and ignore projection: duplicates are (document, var1, var2)
+		if (countDuplicates == true || first(duplicates, Arrays.asList(s.getDocumentId(), n1, n2), sign)) {
+			HashMap<Integer, Integer> actors = affiliation.get(c);
+			if (actors == null) {
+				actors = new HashMap<Integer, Integer>();
+				affiliation.put(c, actors);
+			}
+			if (agreementPattern.equals("ignore")) {
+				project(ignore, actors, i, sign);
+			}
+			count(actors, i, sign);
+			if (actors.isEmpty()) {
+				affiliation.remove(c);
+			}
+		}
+
+		// congruence and conflict: duplicates are (document, var1, var2, qualifier)
+		if (qualifier != null && !agreementPattern.equals("ignore")
+				&& (countDuplicates == true || first(qualifiedDuplicates, Arrays.asList(s.getDocumentId(), n1, n2, q), sign))) {
+			HashMap<Object, HashMap<Integer, Integer>> concept = levels.get(c);
+			if (concept == null) {
+				concept = new HashMap<Object, HashMap<Integer, Integer>>();
+				levels.put(c, concept);
+			}
+			HashMap<Integer, Integer> actors = concept.get(q);
+			if (actors == null) {
+				actors = new HashMap<Integer, Integer>();
+				concept.put(q, actors);
+			}
+			if (agreementPattern.equals("congruence") || agreementPattern.equals("subtract")) {
+				project(congruence, actors, i, sign);
+			}
+			if (agreementPattern.equals("conflict") || agreementPattern.equals("subtract")) {
+				Iterator<Map.Entry<Object, HashMap<Integer, Integer>>> it = concept.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<Object, HashMap<Integer, Integer>> level = it.next();
+					double difference = difference(q, level.getKey());
+					if (difference == 0) {
+						continue;
+					}
+					Iterator<Map.Entry<Integer, Integer>> others = level.getValue().entrySet().iterator();
+					while (others.hasNext()) {
+						Map.Entry<Integer, Integer> other = others.next();
+						if (other.getKey() != i) {
+							increment(conflict, i, other.getKey(), sign * difference * other.getValue());
+							increment(conflict, other.getKey(), i, sign * difference * other.getValue());
+						}
+					}
+				}
+			}
+			count(actors, i, sign);
+			if (actors.isEmpty()) {
+				concept.remove(q);
+				if (concept.isEmpty()) {
+					levels.remove(c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Update the multiplicity of a duplicate key.
+	 *
+	 * @return  Whether the statement is the first one with this key (when adding) or the last one (when
+	 *          removing), i.e., whether it changes the network.
+	 */
+	private static boolean first(HashMap<List<Object>, Integer> multiplicity, List<Object> key, int sign) {
+		Integer count = multiplicity.get(key);
+		int updated = (count == null ? 0 : count) + sign;
+		if (updated == 0) {
+			multiplicity.remove(key);
+		} else {
+			multiplicity.put(key, updated);
+		}
+		return (sign > 0 && updated == 1) || (sign < 0 && updated == 0);
+	}
+
+	private static void count(HashMap<Integer, Integer> actors, int i, int sign) {
+		Integer count = actors.get(i);
+		int updated = (count == null ? 0 : count) + sign;
+		if (updated == 0) {
+			actors.remove(i);
+		} else {
+			actors.put(i, updated);
+		}
+	}
+
+	/**
+	 * Update the product a * a^T of an actor vector a when its entry i changes by one. Adding one to a_i
+	 * changes row and column i by a (before the change) and the diagonal cell by one more; removing is the
+	 * reverse, with a after the change. The vector itself is updated by the caller.
+	 */
+	private void project(HashMap<Long, Double> projection, HashMap<Integer, Integer> actors, int i, int sign) {
+		Integer own = actors.get(i);
+		int self = own == null ? 0 : own;
+		if (sign < 0) {
+			self = self - 1;  // a_i after removal
+		}
+		Iterator<Map.Entry<Integer, Integer>> it = actors.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Integer, Integer> entry = it.next();
+			int k = entry.getKey();
+			double value = k == i ? self : entry.getValue();
+			if (value != 0) {
+				increment(projection, i, k, sign * value);
+				increment(projection, k, i, sign * value);
+			}
+		}
+		increment(projection, i, i, sign);
+	}
+
+	private static double difference(Object q1, Object q2) {
+		if (q1 instanceof Integer && q2 instanceof Integer) {
+			return Math.abs((Integer) q1 - (Integer) q2);
+		} else if (q1 == null ? q2 == null : q1.equals(q2)) {
+			return 0;
+		} else {
+			return 1;
+		}
+	}
+
+	private void increment(HashMap<Long, Double> projection, int i, int j, double value) {
+		long key = (long) i * rownames.length + j;
+		Double old = projection.get(key);
+		double updated = (old == null ? 0 : old) + value;
+		if (updated == 0) {
+			projection.remove(key);
+		} else {
+			projection.put(key, updated);
+		}
+	}
+
+	private SparseMatrix toMatrix(HashMap<Long, Double> projection) {
+		SparseMatrix.Builder builder = new SparseMatrix.Builder(rownames.length, rownames.length);
+		Iterator<Map.Entry<Long, Double>> it = projection.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Long, Double> entry = it.next();
+			builder.add((int) (entry.getKey() / rownames.length), (int) (entry.getKey() % rownames.length), entry.getValue());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return  The two-mode network of the statements currently in the network.
+	 */
+	public SparseMatrix getAffiliation() {
+		SparseMatrix.Builder builder = new SparseMatrix.Builder(rownames.length, colnames.length);
+		Iterator<Map.Entry<Integer, HashMap<Integer, Integer>>> it = affiliation.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Integer, HashMap<Integer, Integer>> concept = it.next();
+			Iterator<Map.Entry<Integer, Integer>> actors = concept.getValue().entrySet().iterator();
+			while (actors.hasNext()) {
+				Map.Entry<Integer, Integer> actor = actors.next();
+				builder.add(actor.getKey(), concept.getKey(), actor.getValue());
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param modes  1 for the one-mode projection with the agreement pattern and normalization of the
+	 *               export settings, 2 for the two-mode network.
+	 * @return       A snapshot of the network of the statements currently in the network.
+	 */
+	public Network getNetwork(int modes) {
+		if (modes == 2) {
+			return new Network(new Matrix(getAffiliation(), rownames, colnames), 2);
+		}
+		SparseMatrix result = new SparseMatrix(rownames.length, rownames.length);
+		if (agreementPattern.equals("congruence")) {
+			result = toMatrix(congruence);
+		} else if (agreementPattern.equals("conflict")) {
+			result = toMatrix(conflict);
+		} else if (agreementPattern.equals("ignore")) {
+			result = toMatrix(ignore);
+		} else if (agreementPattern.equals("subtract")) {
+			result = toMatrix(congruence).subtract(toMatrix(conflict));
+		}
+		SparseMatrix affiliation = normalization.equals("cooccurrence") ? null : getAffiliation();
+		return new Network(NetworkCreator.oneModeMatrix(result, affiliation, normalization, rownames), 1);
+	}
+}
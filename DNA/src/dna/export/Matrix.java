@@ -1,16 +1,23 @@
 package dna.export;
 
+import java.util.Arrays;
+
 /**
  * @author Philip Leifeld
  *
  * A class for Matrix objects. As two-dimensional arrays do not store the row and column labels, 
  * this class stores both the two-dimensional array and its labels. Matrix objects are created 
  * by the different network algorithms. Some of the file export functions take Matrix objects as 
- * input data.
+ * input data. Large networks are stored as a {@link SparseMatrix}, or as a {@link SymmetricMatrix} if they 
+ * are one-mode networks that are too dense for sparse storage; the two-dimensional array is then only 
+ * created if {@link #getMatrix()} is called. Exporters read the matrix row by row with 
+ * {@link #getRow(int, double[])}, which works with any of the storage forms.
  *
  */
 public class Matrix {
 	double[][] matrix;
+	SparseMatrix sparse;
+	SymmetricMatrix symmetric;
 	String[] rownames, colnames;
 	
 	public Matrix(double[][] matrix, String[] rownames, String[] colnames) {
@@ -18,11 +25,26 @@ public class Matrix {
 		this.rownames = rownames;
 		this.colnames = colnames;
 	}
+	
+	public Matrix(SparseMatrix sparse, String[] rownames, String[] colnames) {
+		this.sparse = sparse;
+		this.rownames = rownames;
+		this.colnames = colnames;
+	}
+	
+	public Matrix(SymmetricMatrix symmetric, String[] names) {
+		this.symmetric = symmetric;
+		this.rownames = names;
+		this.colnames = names;
+	}
 
 	/**
-	 * @return the matrix
+	 * @return the matrix as a two-dimensional array
 	 */
 	public double[][] getMatrix() {
+		if (matrix == null) {
+			matrix = sparse != null ? sparse.toDense() : symmetric.toDense();
+		}
 		return matrix;
 	}
 
@@ -31,6 +53,58 @@ public class Matrix {
 	 */
 	public void setMatrix(double[][] matrix) {
 		this.matrix = matrix;
+		this.sparse = null;
+		this.symmetric = null;
+	}
+	
+	/**
+	 * @return the matrix in sparse form
+	 */
+	public SparseMatrix getSparse() {
+		if (sparse == null) {
+			sparse = matrix != null ? SparseMatrix.fromDense(matrix) : symmetric.toSparse();
+		}
+		return sparse;
+	}
+	
+	/**
+	 * @return whether the matrix is stored in sparse form
+	 */
+	public boolean isSparse() {
+		return sparse != null && matrix == null;
+	}
+	
+	/**
+	 * @return whether the matrix is stored as a packed symmetric matrix
+	 */
+	public boolean isSymmetric() {
+		return symmetric != null;
+	}
+	
+	/**
+	 * @return the matrix in packed symmetric form, or null if it is stored differently
+	 */
+	public SymmetricMatrix getSymmetric() {
+		return symmetric;
+	}
+	
+	/**
+	 * Write a row of the matrix into an array, without creating the two-dimensional array.
+	 * 
+	 * @param row     Row index.
+	 * @param result  An array with at least as many elements as the matrix has columns.
+	 */
+	public void getRow(int row, double[] result) {
+		if (matrix != null) {
+			System.arraycopy(matrix[row], 0, result, 0, matrix[row].length);
+		} else if (symmetric != null) {
+			symmetric.getRow(row, result);
+		} else {
+			Arrays.fill(result, 0, sparse.getCols(), 0.0);
+			for (int p = sparse.rowStart(row); p < sparse.rowEnd(row); p++) {
+				result[sparse.columnAt(p)] = sparse.valueAt(p);
+			}
+		}
 	}
 
 	/**
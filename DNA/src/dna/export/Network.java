@@ -11,27 +11,15 @@ import java.util.ArrayList;
  * this is going to be a Network object that contains either the matrix or the edge list or both.
  * 
  */
-class Network {
+public class Network {
 	Matrix matrix;
 	Edgelist edgelist;
 	int modes;
 	
-	// constructor when only the matrix has been computed: also convert to edge list
+	// constructor when only the matrix has been computed: the edge list is created when it is needed
 	public Network(Matrix matrix, int modes) {
 		this.matrix = matrix;
 		this.modes = modes;
-		double[][] m = matrix.getMatrix();
-		String[] r = matrix.getRownames();
-		String[] c = matrix.getColnames();
-		ArrayList<Edge> el = new ArrayList<Edge>();
-		for (int i = 0; i < m.length; i++) {
-			for (int j = 0; j < m[0].length; j++) {
-				if (i != j && m[i][j] != 0) {
-					el.add(new Edge(r[i], c[j], m[i][j]));
-				}
-			}
-		}
-		this.edgelist = new Edgelist(el);
 	}
 	
 	// constructor when only the edge list has been computed: also convert to matrix
@@ -67,6 +55,40 @@ class Network {
 		this.modes = modes;
 	}
 
+	/**
+	 * Convert a matrix into an edge list with one edge per non-zero cell outside the diagonal.
+	 * 
+	 * @param matrix  The matrix.
+	 * @return        The edge list.
+	 */
+	static Edgelist toEdgelist(Matrix matrix) {
+		String[] r = matrix.getRownames();
+		String[] c = matrix.getColnames();
+		ArrayList<Edge> el = new ArrayList<Edge>();
+		if (matrix.isSymmetric()) {  // read packed matrices row by row instead of converting them
+			double[] row = new double[c.length];
+			for (int i = 0; i < r.length; i++) {
+				matrix.getRow(i, row);
+				for (int j = 0; j < c.length; j++) {
+					if (i != j && row[j] != 0) {
+						el.add(new Edge(r[i], c[j], row[j]));
+					}
+				}
+			}
+			return new Edgelist(el);
+		}
+		SparseMatrix m = matrix.getSparse();  // only visit the non-zero cells
+		for (int i = 0; i < m.getRows(); i++) {
+			for (int p = m.rowStart(i); p < m.rowEnd(i); p++) {
+				int j = m.columnAt(p);
+				if (i != j) {
+					el.add(new Edge(r[i], c[j], m.valueAt(p)));
+				}
+			}
+		}
+		return new Edgelist(el);
+	}
+
 	/**
 	 * @return the matrix
 	 */
@@ -85,6 +107,9 @@ class Network {
 	 * @return the edgelist
 	 */
 	public Edgelist getEdgelist() {
+		if (edgelist == null) {
+			edgelist = toEdgelist(matrix);
+		}
 		return edgelist;
 	}
 
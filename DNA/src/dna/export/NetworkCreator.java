@@ -1,154 +1,267 @@
 package dna.export;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Locale;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import javax.swing.JOptionPane;
-
-import org.jdom.Attribute;
-import org.jdom.Comment;
-import org.jdom.Element;
-import org.jdom.Namespace;
-import org.jdom.output.Format;
-import org.jdom.output.XMLOutputter;
-import org.jdom.Document;
+import javax.xml.stream.XMLStreamException;
 
 import dna.Dna;
+import dna.dataStructures.Data;
 import dna.dataStructures.Statement;
+import dna.dataStructures.TextCache;
 
 public class NetworkCreator {
 	ExportSetting exportSetting;
+	Data data;
+	ExportCache cache;  // shared intermediate results of a batch export; null if not part of a batch
 	
-	public NetworkCreator(ExportSetting exportSetting) {
+	/**
+	 * Create a network exporter that works on the given data and does not need the GUI.
+	 * 
+	 * @param exportSetting  The export settings.
+	 * @param data           The data from which networks are created.
+	 */
+	public NetworkCreator(ExportSetting exportSetting, Data data) {
 		this.exportSetting = exportSetting;
-		ArrayList<Statement> statements = filter();
+		this.data = data;
+	}
+	
+	/**
+	 * Create a network exporter that is part of a batch export and shares intermediate results with the 
+	 * other exports of the batch.
+	 * 
+	 * @param exportSetting  The export settings.
+	 * @param data           The data from which networks are created.
+	 * @param cache          The intermediate results shared by the batch.
+	 */
+	NetworkCreator(ExportSetting exportSetting, Data data, ExportCache cache) {
+		this(exportSetting, data);
+		this.cache = cache;
+	}
+	
+	/**
+	 * Export the statements currently loaded in DNA with the given settings and tell the user when done.
+	 * 
+	 * @param exportSetting  The export settings.
+	 */
+	public NetworkCreator(ExportSetting exportSetting) {
+		this(exportSetting, Dna.data);
+		int count = write(filter());
+		if (count == 1) {
+			JOptionPane.showMessageDialog(Dna.dna.gui, "File has been exported to \"" + exportSetting.getFileName() + "\".");
+		} else if (count > 1) {
+			JOptionPane.showMessageDialog(Dna.dna.gui, count + " files have been exported to \"" + sequenceFileName("*") + "\".");
+		}
+	}
+	
+	/**
+	 * Create the network or event list for a list of statements and write it to the file(s) given in the 
+	 * export settings.
+	 * 
+	 * @param statements  The filtered statements.
+	 * @return            The number of files written.
+	 */
+	public int write(ArrayList<Statement> statements) {
 		if (exportSetting.getNetworkType().equals("eventList")) {
 			releventCSV(statements, exportSetting.getFileName());
-			JOptionPane.showMessageDialog(Dna.dna.gui, "File has been exported to \"" + exportSetting.getFileName() + "\".");
-		} else if (exportSetting.getNetworkType().equals("twoMode")) {
-			Network network = twoMode(statements, exportSetting.getVar1(), exportSetting.getVar2(), exportSetting.isCountDuplicates(), 
+			return 1;
+		} else if (!exportSetting.getNetworkType().equals("twoMode") && !exportSetting.getNetworkType().equals("oneMode")) {
+			System.err.println("Unknown network type: " + exportSetting.getNetworkType());
+			return 0;
+		} else if (!exportSetting.getAggregationRule().equals("across date range")) {
+			return exportSequence(statements);
+		} else {
+			export(network(statements), exportSetting.getFileName());
+			return 1;
+		}
+	}
+	
+	/**
+	 * Create a one-mode or two-mode network across the whole date range, depending on the network type of 
+	 * the export settings.
+	 * 
+	 * @param statements  The filtered statements.
+	 * @return            The network.
+	 */
+	public Network network(ArrayList<Statement> statements) {
+		if (exportSetting.getNetworkType().equals("twoMode")) {
+			return twoMode(statements, exportSetting.getVar1(), exportSetting.getVar2(), exportSetting.isCountDuplicates(), 
 					exportSetting.isIncludeIsolates());
-			if (exportSetting.getExportFormat().equals(".csv")) {
-				exportCSV(network, exportSetting.getFileName());
-			} else if (exportSetting.getExportFormat().equals(".dl")) {
-				exportDL(network, exportSetting.getFileName());
-			} else if (exportSetting.getExportFormat().equals(".graphml")) {
-				exportGraphML(network, exportSetting.getFileName());
-			}
-			JOptionPane.showMessageDialog(Dna.dna.gui, "File has been exported to \"" + exportSetting.getFileName() + "\".");
-		} else if (exportSetting.getNetworkType().equals("oneMode")){
-			Network network = oneMode(statements, exportSetting.getVar1(), exportSetting.getVar2(), exportSetting.getQualifier(), 
-					exportSetting.isCountDuplicates(), exportSetting.isIncludeIsolates());
-			if (exportSetting.getExportFormat().equals(".csv")) {
-				exportCSV(network, exportSetting.getFileName());
-			} else if (exportSetting.getExportFormat().equals(".dl")) {
-				exportDL(network, exportSetting.getFileName());
-			} else if (exportSetting.getExportFormat().equals(".graphml")) {
-				exportGraphML(network, exportSetting.getFileName());
-			}
-			JOptionPane.showMessageDialog(Dna.dna.gui, "File has been exported to \"" + exportSetting.getFileName() + "\".");
 		} else {
-			System.err.println("Unknown network type: " + exportSetting.getNetworkType());
+			return oneMode(statements, exportSetting.getVar1(), exportSetting.getVar2(), exportSetting.getQualifier(), 
+					exportSetting.isCountDuplicates(), exportSetting.isIncludeIsolates());
 		}
 	}
 	
 	/**
-	 * Return a filtered list of {@link SidebarStatement}s based on the settings saved in the {@link NetworkExporterObject}.
+	 * Write a network to a file in the export format of the export settings.
 	 * 
-	 * @return	ArrayList of filtered {@link SidebarStatement}s
+	 * @param network   The network.
+	 * @param fileName  The file name.
 	 */
-	ArrayList<Statement> filter() {
-		ArrayList<Statement> al = new ArrayList<Statement>();
-		for (int i = 0; i < Dna.dna.gui.rightPanel.statementPanel.ssc.size(); i++) {
-			boolean select = true;
-			Statement s = Dna.dna.gui.rightPanel.statementPanel.ssc.get(i);
-			
-			// step 1: get all statement IDs corresponding to date range and statement type
-			if (s.getDate().before(exportSetting.getStartDate())) {
-				select = false;
-			} else if (s.getDate().after(exportSetting.getStopDate())) {
-				select = false;
-			} else if (s.getStatementTypeId() != exportSetting.getStatementType().getId()) {
-				select = false;
-			}
-			
-			// step 2: check against excluded values
-			if (exportSetting.getAuthorExclude().contains(Dna.data.getDocument(s.getDocumentId()).getAuthor())) {
-				select = false;
-			} else if (exportSetting.getSourceExclude().contains(Dna.data.getDocument(s.getDocumentId()).getSource())) {
-				select = false;
-			} else if (exportSetting.getSectionExclude().contains(Dna.data.getDocument(s.getDocumentId()).getSection())) {
-				select = false;
-			} else if (exportSetting.getTypeExclude().contains(Dna.data.getDocument(s.getDocumentId()).getType())) {
-				select = false;
+	void export(Network network, String fileName) {
+		if (exportSetting.getExportFormat().equals(".csv")) {
+			exportCSV(network, fileName);
+		} else if (exportSetting.getExportFormat().equals(".dl")) {
+			exportDL(network, fileName);
+		} else if (exportSetting.getExportFormat().equals(".graphml")) {
+			exportGraphML(network, fileName);
+		}
+	}
+	
+	/**
+	 * @param label  The label of a network in a sequence, for example a year.
+	 * @return       The file name of the export settings with the label appended before the extension.
+	 */
+	String sequenceFileName(String label) {
+		String fileName = exportSetting.getFileName();
+		String extension = exportSetting.getFileExtension();
+		if (fileName.endsWith(extension)) {
+			fileName = fileName.substring(0, fileName.length() - extension.length());
+		}
+		return fileName + "_" + label + extension;
+	}
+	
+	/**
+	 * Export a sequence of networks, one per document, per calendar year or per time window, depending on 
+	 * the aggregation rule of the export settings. Each network is written to its own file, named after 
+	 * the document ID, the year or the last day of the time window. The statements are sorted by date once, 
+	 * and a single {@link IncrementalNetwork} is updated as the window moves: statements entering the window 
+	 * are added and statements leaving it are removed. A time window covers the number of days set as the 
+	 * window size and moves forward one day at a time; a network is written whenever the window content 
+	 * has changed. All networks share the same row and column labels.
+	 * 
+	 * @param statements  The filtered statements.
+	 * @return            The number of files written.
+	 */
+	public int exportSequence(ArrayList<Statement> statements) {
+		int modes = exportSetting.getNetworkType().equals("twoMode") ? 2 : 1;
+		
+		// labels shared by all networks in the sequence
+		ArrayList<Statement> labelSource = labelSource(statements, exportSetting.isIncludeIsolates());
+		ArrayList<String> names1 = cachedLabels(labelSource, exportSetting.getVar1());
+		ArrayList<String> names2 = cachedLabels(labelSource, exportSetting.getVar2());
+		IncrementalNetwork network = new IncrementalNetwork(exportSetting, names1.toArray(new String[names1.size()]), 
+				names2.toArray(new String[names2.size()]));
+		
+		ArrayList<Statement> sorted = new ArrayList<Statement>(statements);
+		Collections.sort(sorted);  // by date, document and position
+		String rule = exportSetting.getAggregationRule();
+		int count = 0;
+		if (rule.equals("per document") || rule.equals("per calendar year")) {
+			SimpleDateFormat yearFormat = new SimpleDateFormat("yyyy");
+			if (rule.equals("per document")) {
+				Collections.sort(sorted, (s1, s2) -> s1.getDocumentId() != s2.getDocumentId() 
+						? Integer.compare(s1.getDocumentId(), s2.getDocumentId()) : s1.compareTo(s2));
 			}
-			Iterator<String> keyIterator = exportSetting.getExcludeValues().keySet().iterator();
-			while (keyIterator.hasNext()) {
-				String key = keyIterator.next();
-				String string = "";
-				if (exportSetting.getStatementType().getVariables().get(key).equals("boolean") || exportSetting.getStatementType().getVariables().get(key).equals("integer")) {
-					string = String.valueOf(s.getValues().get(key));
-				} else {
-					string = (String) s.getValues().get(key);
+			int i = 0;
+			while (i < sorted.size()) {  // each period is added, written and removed again
+				String label = rule.equals("per document") ? String.valueOf(sorted.get(i).getDocumentId()) 
+						: yearFormat.format(sorted.get(i).getDate());
+				int j = i;
+				while (j < sorted.size() && label.equals(rule.equals("per document") ? String.valueOf(sorted.get(j).getDocumentId()) 
+						: yearFormat.format(sorted.get(j).getDate()))) {
+					network.add(sorted.get(j));
+					j++;
 				}
-				if (exportSetting.getExcludeValues().get(key).contains(string)) {
-					select = false;
+				export(network.getNetwork(modes), sequenceFileName(label));
+				count++;
+				for (int k = i; k < j; k++) {
+					network.remove(sorted.get(k));
 				}
+				i = j;
 			}
-			
-			// step 3: check against statement type
-			if (s.getStatementTypeId() != exportSetting.getStatementType().getId()) {
-				select = false;
-			}
-			
-			if (select == true) {
-				al.add(s);
+		} else if (rule.equals("per time window:") && sorted.size() > 0) {
+			SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+			Calendar windowEnd = Calendar.getInstance();  // exclusive: midnight after the current day
+			windowEnd.setTime(sorted.get(0).getDate());
+			windowEnd.set(Calendar.HOUR_OF_DAY, 0);
+			windowEnd.set(Calendar.MINUTE, 0);
+			windowEnd.set(Calendar.SECOND, 0);
+			windowEnd.set(Calendar.MILLISECOND, 0);
+			int entering = 0;  // first statement that has not entered the window yet
+			int leaving = 0;   // first statement that has not left the window yet
+			while (entering < sorted.size()) {
+				Calendar day = (Calendar) windowEnd.clone();
+				windowEnd.add(Calendar.DAY_OF_MONTH, 1);
+				Calendar windowStart = (Calendar) windowEnd.clone();
+				windowStart.add(Calendar.DAY_OF_MONTH, -exportSetting.getWindowSize());
+				boolean changed = false;
+				while (entering < sorted.size() && sorted.get(entering).getDate().before(windowEnd.getTime())) {
+					network.add(sorted.get(entering));
+					entering++;
+					changed = true;
+				}
+				while (leaving < entering && sorted.get(leaving).getDate().before(windowStart.getTime())) {
+					network.remove(sorted.get(leaving));
+					leaving++;
+					changed = true;
+				}
+				if (changed == true && network.size() > 0) {
+					export(network.getNetwork(modes), sequenceFileName(dayFormat.format(day.getTime())));
+					count++;
+				}
 			}
+		} else if (!rule.equals("per time window:")) {
+			System.err.println("Unknown aggregation rule: " + rule);
 		}
-		return(al);
+		return count;
 	}
 	
 	/**
-	 * Compute the matrix product of two two-dimensional arrays.
+	 * Return a filtered list of {@link Statement}s based on the settings saved in the {@link ExportSetting}. 
+	 * The settings are compiled into a {@link StatementFilter}, which is applied to the statements in 
+	 * parallel; the statements keep their order.
+	 * 
+	 * @return	ArrayList of filtered {@link Statement}s
+	 */
+	public ArrayList<Statement> filter() {
+		StatementFilter statementFilter = new StatementFilter(exportSetting, data);
+		return data.getStatements().parallelStream()
+				.filter(statementFilter)
+				.collect(Collectors.toCollection(ArrayList::new));
+	}
+	
+	/**
+	 * Compute the matrix product of two two-dimensional arrays. The product is computed by a 
+	 * {@link DenseMatrix}, which is cache-blocked and multi-threaded.
 	 * 
 	 * @param mat1	Two-dimensional array with the first input matrix.
 	 * @param mat2	Two-dimensional array with the second input matrix.
 	 * @return		Two-dimensional array with the output matrix.
 	 */
 	public static double[][] multiply(double[][] mat1, double[][] mat2) {
-        int aRows = mat1.length;
-        int aColumns = mat1[0].length;
-        int bRows = mat2.length;
-        int bColumns = mat2[0].length;
-        
-        if (aColumns != bRows) {
-            throw new IllegalArgumentException("A:Rows: " + aColumns + " did not match B:Columns " + bRows + ".");
-        }
-        
-        double[][] mat3 = new double[aRows][bColumns];
-        
-        for (int i = 0; i < aRows; i++) { // aRow
-            for (int j = 0; j < bColumns; j++) { // bColumn
-                for (int k = 0; k < aColumns; k++) { // aColumn
-                    mat3[i][j] += mat1[i][k] * mat2[k][j];
-                }
-            }
-        }
-        
-        return mat3;
-    }
+		return DenseMatrix.fromArray(mat1).multiply(DenseMatrix.fromArray(mat2)).toArray();
+	}
+	
+	/**
+	 * Compute the product of a two-dimensional array with its own transpose, without creating the 
+	 * transpose. This is the same as {@code multiply(mat, transpose(mat))}.
+	 * 
+	 * @param mat	Two-dimensional array, e.g., a two-mode network.
+	 * @return		Two-dimensional array with the symmetric output matrix.
+	 */
+	public static double[][] multiplyTranspose(double[][] mat) {
+		return DenseMatrix.fromArray(mat).multiplyTranspose().toArray();
+	}
 	
 	/**
 	 * Transpose a two-dimensional array.
@@ -157,17 +270,7 @@ public class NetworkCreator {
 	 * @return		Transposed two-dimensional array.
 	 */
 	public static double[][] transpose(double[][] mat) {
-	    int m = mat.length;
-	    int n = mat[0].length;
-
-	    double[][] t = new double[n][m];
-
-	    for(int i = 0; i < n; i++) {
-	    	for(int j = 0; j < m; j++) {
-	            t[i][j] = mat[j][i];
-	        }
-	    }
-	    return t;
+		return DenseMatrix.fromArray(mat).transpose().toArray();
 	}
 
 	/**
@@ -178,28 +281,8 @@ public class NetworkCreator {
 	 * @return		Two-dimensional array with the output matrix.
 	 */
 	public static double[][] add(double[][] mat1, double[][] mat2) {
-        int aRows = mat1.length;
-        int aColumns = mat1[0].length;
-        int bRows = mat2.length;
-        int bColumns = mat2[0].length;
-
-        if (aRows != bRows) {
-            throw new IllegalArgumentException("Matrix dimensions do not match: " + aRows + " vs. " + bRows + " rows.");
-        }
-        if (aColumns != bColumns) {
-            throw new IllegalArgumentException("Matrix dimensions do not match: " + aColumns + " vs. " + bColumns + " columns.");
-        }
-        
-        double[][] mat3 = new double[aRows][aColumns];
-        
-        for (int i = 0; i < aRows; i++) {
-            for (int j = 0; j < aColumns; j++) {
-                mat3[i][j] = mat1[i][j] + mat2[i][j];
-            }
-        }
-        
-        return mat3;
-    }
+		return combine(mat1, mat2, 1.0);
+	}
 
 	/**
 	 * Subtract second from first two-dimensional array.
@@ -209,110 +292,207 @@ public class NetworkCreator {
 	 * @return		Two-dimensional array with the output matrix.
 	 */
 	public static double[][] subtract(double[][] mat1, double[][] mat2) {
-        int aRows = mat1.length;
-        int aColumns = mat1[0].length;
-        int bRows = mat2.length;
-        int bColumns = mat2[0].length;
-
-        if (aRows != bRows) {
-            throw new IllegalArgumentException("Matrix dimensions do not match: " + aRows + " vs. " + bRows + " rows.");
-        }
-        if (aColumns != bColumns) {
-            throw new IllegalArgumentException("Matrix dimensions do not match: " + aColumns + " vs. " + bColumns + " columns.");
-        }
-        
-        double[][] mat3 = new double[aRows][aColumns];
-        
-        for (int i = 0; i < aRows; i++) {
-            for (int j = 0; j < aColumns; j++) {
-                mat3[i][j] = mat1[i][j] - mat2[i][j];
-            }
-        }
-        
-        return mat3;
-    }
+		return combine(mat1, mat2, -1.0);
+	}
 	
-	public Network twoMode(ArrayList<Statement> statements, String var1, String var2, boolean countDuplicates, boolean includeIsolates) {
+	/**
+	 * Add or subtract two two-dimensional arrays cell by cell, in parallel for large arrays. The arrays are 
+	 * not copied into a {@link DenseMatrix} because each cell is used only once.
+	 */
+	private static double[][] combine(final double[][] mat1, final double[][] mat2, final double factor) {
+		final int aRows = mat1.length;
+		final int aColumns = mat1[0].length;
+		int bRows = mat2.length;
+		int bColumns = mat2[0].length;
 		
-		// step 1: get vectors with unique labels for rows and columns
-		ArrayList<String> names1 = new ArrayList<String>(); // unique row labels
-		ArrayList<String> names2 = new ArrayList<String>(); // unique column labels
-		if (includeIsolates == true) {  // take them from the main database 
-			for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-				if (Dna.data.getStatements().get(i).getStatementTypeId() == exportSetting.getStatementType().getId()) {
-					String n1 = (String) Dna.data.getStatements().get(i).getValues().get(var1);
-					String n2 = (String) Dna.data.getStatements().get(i).getValues().get(var2);
-					if (!names1.contains(n1)) {
-						names1.add(n1);
-					}
-					if (!names2.contains(n2)) {
-						names2.add(n2);
+		if (aRows != bRows) {
+			throw new IllegalArgumentException("Matrix dimensions do not match: " + aRows + " vs. " + bRows + " rows.");
+		}
+		if (aColumns != bColumns) {
+			throw new IllegalArgumentException("Matrix dimensions do not match: " + aColumns + " vs. " + bColumns + " columns.");
+		}
+		
+		final double[][] mat3 = new double[aRows][aColumns];
+		DenseMatrix.run(aRows, (long) aRows * aColumns, new DenseMatrix.RowKernel() {
+			public void compute(int from, int to) {
+				for (int i = from; i < to; i++) {
+					for (int j = 0; j < aColumns; j++) {
+						mat3[i][j] = mat1[i][j] + factor * mat2[i][j];
 					}
 				}
 			}
-		} else {  // no isolates: take them from the filtered results
-			for (int i = 0; i < statements.size(); i++) {
-				String n1 = (String) statements.get(i).getValues().get(var1);
-				String n2 = (String) statements.get(i).getValues().get(var2);
-				if (!names1.contains(n1)) {
-					names1.add(n1);
-				}
-				if (!names2.contains(n2)) {
-					names2.add(n2);
-				}
-			}
-		}
-		Collections.sort(names1);
-		Collections.sort(names2);
-		/*
-		for (int i = 0; i < names1.size(); i++) {
-			System.out.println(i + " " + names1.get(i));
+		});
+		return mat3;
+	}
+	
+	/**
+	 * Collect the unique values of a short text variable in a list of statements.
+	 * 
+	 * @param statements  The statements.
+	 * @param variable    The name of the variable.
+	 * @return            The unique values, sorted alphabetically.
+	 */
+	static ArrayList<String> labels(ArrayList<Statement> statements, String variable) {
+		HashSet<String> unique = new HashSet<String>();
+		for (int i = 0; i < statements.size(); i++) {
+			unique.add((String) statements.get(i).getValues().get(variable));
 		}
-		for (int i = 0; i < names2.size(); i++) {
-			System.out.println(i + " " + names2.get(i));
+		ArrayList<String> names = new ArrayList<String>(unique);
+		Collections.sort(names);
+		return names;
+	}
+	
+	/**
+	 * Create a dictionary from labels to their row or column index.
+	 * 
+	 * @param names  The labels in their matrix order.
+	 * @return       A hash map from each label to its index.
+	 */
+	static HashMap<String, Integer> dictionary(ArrayList<String> names) {
+		HashMap<String, Integer> index = new HashMap<String, Integer>(names.size() * 2);
+		for (int i = 0; i < names.size(); i++) {
+			index.put(names.get(i), i);
 		}
-		*/
-		
-		// step 2: create and populate matrix
-		double[][] mat = new double[names1.size()][names2.size()]; // the resulting affiliation matrix; 0 by default
+		return index;
+	}
+	
+	/**
+	 * Count how often the values of two variables co-occur in a list of statements. If duplicates are not 
+	 * counted, a combination of the two values is only counted once per document.
+	 * 
+	 * @param statements       The statements.
+	 * @param var1             The variable for the rows.
+	 * @param var2             The variable for the columns.
+	 * @param rows             Dictionary from row labels to row indices.
+	 * @param cols             Dictionary from column labels to column indices.
+	 * @param countDuplicates  Count repeated combinations within the same document?
+	 * @return                 The affiliation matrix.
+	 */
+	static SparseMatrix affiliation(ArrayList<Statement> statements, String var1, String var2, HashMap<String, Integer> rows, 
+			HashMap<String, Integer> cols, boolean countDuplicates) {
+		SparseMatrix.Builder mat = new SparseMatrix.Builder(rows.size(), cols.size());
+		HashSet<List<Object>> seen = new HashSet<List<Object>>();  // (document ID, var1, var2) combinations already counted
 		for (int i = 0; i < statements.size(); i++) {
 			String n1 = (String) statements.get(i).getValues().get(var1);
 			String n2 = (String) statements.get(i).getValues().get(var2);
-			
-			int row = -1;
-			for (int j = 0; j < names1.size(); j++) {
-				if (names1.get(j).equals(n1)) {
-					row = j;
-					break;
-				}
+			if (countDuplicates == true || seen.add(Arrays.asList(statements.get(i).getDocumentId(), n1, n2))) {
+				mat.add(rows.get(n1), cols.get(n2), 1.0);
 			}
-			int col = -1;
-			for (int j = 0; j < names2.size(); j++) {
-				if (names2.get(j).equals(n2)) {
-					col = j;
-					break;
-				}
+		}
+		return mat.build();
+	}
+	
+	/**
+	 * Compute a conflict network: two actors are tied if they refer to the same concept with different 
+	 * qualifier levels. With an integer qualifier, the tie weight is the absolute difference of the two 
+	 * levels; otherwise each disagreeing pair of statements counts as one. Statements are bucketed by 
+	 * concept, and only the actors within the same bucket are paired, so the cost depends on the number of 
+	 * co-occurring pairs rather than on the number of actors and statements.
+	 * 
+	 * @param statements       The statements.
+	 * @param var1             The variable for the actors.
+	 * @param var2             The variable for the concepts.
+	 * @param qualifier        The qualifier variable.
+	 * @param rows             Dictionary from actor labels to row indices.
+	 * @param countDuplicates  Count repeated statements within the same document?
+	 * @return                 The conflict matrix.
+	 */
+	static SparseMatrix conflict(ArrayList<Statement> statements, String var1, String var2, String qualifier, 
+			HashMap<String, Integer> rows, boolean countDuplicates) {
+		
+		// count how often each actor used each qualifier level per concept
+		HashMap<String, HashMap<List<Object>, Integer>> buckets = new HashMap<String, HashMap<List<Object>, Integer>>();
+		HashSet<List<Object>> seen = new HashSet<List<Object>>();  // (document ID, var1, var2, qualifier) combinations already counted
+		for (int i = 0; i < statements.size(); i++) {
+			Statement s = statements.get(i);
+			String n1 = (String) s.getValues().get(var1);
+			String n2 = (String) s.getValues().get(var2);
+			Object q = s.getValues().get(qualifier);
+			if (countDuplicates == false && !seen.add(Arrays.asList(s.getDocumentId(), n1, n2, q))) {
+				continue;
 			}
-			
-			if (countDuplicates == true) {
-				mat[row][col] = mat[row][col] + 1.0;
-			} else {
-				boolean duplicate = false;
-				if (i > 1) {
-					for (int j = i - 1; j > -1; j--) {  // go back to previous statements and check if duplicate; add if no duplicate
-						if (statements.get(j).getDocumentId() == statements.get(i).getDocumentId() && 
-								statements.get(j).getValues().get(var1).equals(statements.get(i).getValues().get(var1)) && 
-								statements.get(j).getValues().get(var2).equals(statements.get(i).getValues().get(var2))) {
-							duplicate = true;
-							break;
-						}
+			HashMap<List<Object>, Integer> bucket = buckets.get(n2);
+			if (bucket == null) {
+				bucket = new HashMap<List<Object>, Integer>();
+				buckets.put(n2, bucket);
+			}
+			List<Object> key = Arrays.asList(rows.get(n1), q);
+			Integer count = bucket.get(key);
+			bucket.put(key, count == null ? 1 : count + 1);
+		}
+		
+		// pair the actors within each concept bucket
+		SparseMatrix.Builder mat = new SparseMatrix.Builder(rows.size(), rows.size());
+		Iterator<HashMap<List<Object>, Integer>> bucketIterator = buckets.values().iterator();
+		while (bucketIterator.hasNext()) {
+			ArrayList<Map.Entry<List<Object>, Integer>> entries = 
+					new ArrayList<Map.Entry<List<Object>, Integer>>(bucketIterator.next().entrySet());
+			for (int k = 0; k < entries.size(); k++) {
+				int i = (Integer) entries.get(k).getKey().get(0);
+				Object q1 = entries.get(k).getKey().get(1);
+				for (int l = 0; l < entries.size(); l++) {
+					int j = (Integer) entries.get(l).getKey().get(0);
+					Object q2 = entries.get(l).getKey().get(1);
+					if (i == j) {
+						continue;
+					}
+					double difference;
+					if (q1 instanceof Integer && q2 instanceof Integer) {
+						difference = Math.abs((Integer) q1 - (Integer) q2);
+					} else if (q1.equals(q2)) {
+						difference = 0;
+					} else {
+						difference = 1;
+					}
+					if (difference != 0) {
+						mat.add(i, j, difference * entries.get(k).getValue() * entries.get(l).getValue());
 					}
-				}
-				if (duplicate == false) {
-					mat[row][col] = mat[row][col] + 1.0;
 				}
 			}
 		}
+		return mat.build();
+	}
+	
+	/**
+	 * @param statements       The filtered statements.
+	 * @param includeIsolates  Whether nodes that do not appear in the filtered statements are included.
+	 * @return                 The statements from which the row and column labels are taken.
+	 */
+	private ArrayList<Statement> labelSource(ArrayList<Statement> statements, boolean includeIsolates) {
+		if (includeIsolates == false) {  // no isolates: take them from the filtered results
+			return statements;
+		} else if (cache != null) {
+			return cache.getStatementsByStatementTypeId(exportSetting.getStatementType().getId());
+		} else {  // take them from the main database
+			return data.getStatementsByStatementTypeId(exportSetting.getStatementType().getId());
+		}
+	}
+	
+	private ArrayList<String> cachedLabels(ArrayList<Statement> statements, String variable) {
+		return cache == null ? labels(statements, variable) : cache.labels(statements, variable);
+	}
+	
+	private HashMap<String, Integer> cachedDictionary(ArrayList<String> names) {
+		return cache == null ? dictionary(names) : cache.dictionary(names);
+	}
+	
+	private SparseMatrix cachedAffiliation(ArrayList<Statement> statements, String var1, String var2, HashMap<String, Integer> rows, 
+			HashMap<String, Integer> cols, boolean countDuplicates) {
+		if (cache == null) {
+			return affiliation(statements, var1, var2, rows, cols, countDuplicates);
+		}
+		return cache.affiliation(statements, var1, var2, rows, cols, countDuplicates);
+	}
+	
+	public Network twoMode(ArrayList<Statement> statements, String var1, String var2, boolean countDuplicates, boolean includeIsolates) {
+		
+		// step 1: get vectors with unique labels for rows and columns
+		ArrayList<Statement> labelSource = labelSource(statements, includeIsolates);
+		ArrayList<String> names1 = cachedLabels(labelSource, var1); // unique row labels
+		ArrayList<String> names2 = cachedLabels(labelSource, var2); // unique column labels
+		
+		// step 2: create and populate matrix
+		SparseMatrix mat = cachedAffiliation(statements, var1, var2, cachedDictionary(names1), cachedDictionary(names2), countDuplicates);
 		
 		// step 3: create Network object and return
 		String[] rownames = new String[names1.size()]; // cast row names from array list to array
@@ -328,7 +508,7 @@ public class NetworkCreator {
 			boolean includeIsolates) {
 		
 		// step 1: collect values of the qualifier variable
-		String[] qualifierValues = Dna.data.getStringEntries(exportSetting.getStatementType().getId(), qualifier);
+		String[] qualifierValues = data.getStringEntries(exportSetting.getStatementType().getId(), qualifier);
 		boolean qualifierInt;
 		if (exportSetting.getStatementType().getVariables().get(qualifier).equals("long text") || 
 				exportSetting.getStatementType().getVariables().get(qualifier).equals("short text")) {
@@ -338,304 +518,174 @@ public class NetworkCreator {
 		}
 		
 		// step 2: get vectors with unique labels for rows and columns of a two-mode matrix
-		ArrayList<String> names1 = new ArrayList<String>(); // unique row labels
-		ArrayList<String> names2 = new ArrayList<String>(); // unique column labels
-		if (includeIsolates == true) {  // take them from the main database 
-			for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-				String n1 = (String) Dna.data.getStatements().get(i).getValues().get(var1);
-				String n2 = (String) Dna.data.getStatements().get(i).getValues().get(var2);
-				if (!names1.contains(n1)) {
-					names1.add(n1);
-				}
-				if (!names2.contains(n2)) {
-					names2.add(n2);
-				}
-			}
-		} else {  // no isolates: take them from the filtered results
-			for (int i = 0; i < statements.size(); i++) {
-				String n1 = (String) statements.get(i).getValues().get(var1);
-				String n2 = (String) statements.get(i).getValues().get(var2);
-				if (!names1.contains(n1)) {
-					names1.add(n1);
-				}
-				if (!names2.contains(n2)) {
-					names2.add(n2);
-				}
-			}
-		}
-		Collections.sort(names1);
-		Collections.sort(names2);
+		ArrayList<Statement> labelSource = labelSource(statements, includeIsolates);
+		ArrayList<String> names1 = cachedLabels(labelSource, var1); // unique row labels
+		ArrayList<String> names2 = cachedLabels(labelSource, var2); // unique column labels
+		HashMap<String, Integer> rows = cachedDictionary(names1);
+		HashMap<String, Integer> cols = cachedDictionary(names2);
 		
 		// step 3: create congruence network; go through each qualifier level, create two-mode network, project one-mode network, and add
-		double[][] congruence = new double[names1.size()][names1.size()];  // quadratic matrix!
+		SparseMatrix congruence = new SparseMatrix(names1.size(), names1.size());  // quadratic matrix!
 		if (exportSetting.getAgreementPattern().equals("congruence") || exportSetting.getAgreementPattern().equals("subtract")) {
+			
+			// sort statements into their qualifier levels in a single pass
+			HashMap<String, ArrayList<Statement>> levels = new HashMap<String, ArrayList<Statement>>();
+			for (int j = 0; j < statements.size(); j++) {
+				String currentQualifier = "";
+				if (qualifierInt == true) {
+					currentQualifier = String.valueOf(statements.get(j).getValues().get(qualifier));
+				} else {
+					currentQualifier = (String) statements.get(j).getValues().get(qualifier);
+				}
+				ArrayList<Statement> al = levels.get(currentQualifier);
+				if (al == null) {
+					al = new ArrayList<Statement>();
+					levels.put(currentQualifier, al);
+				}
+				al.add(statements.get(j));
+			}
+			
 			for (int i = 0; i < qualifierValues.length; i++) {
 				
 				// only retain statements with this qualifier level
-				ArrayList<Statement> al = new ArrayList<Statement>();
-				for (int j = 0; j < statements.size(); j++) {
-					String currentQualifier = "";
-					if (qualifierInt == true) {
-						currentQualifier = String.valueOf(statements.get(j).getValues().get(qualifier));
-					} else {
-						currentQualifier = (String) statements.get(j).getValues().get(qualifier);
-					}
-					if (qualifierValues[i].equals(currentQualifier)) {
-						al.add(statements.get(j));
-					}
+				ArrayList<Statement> al = levels.get(qualifierValues[i]);
+				if (al == null) {
+					continue;
 				}
 				
 				// create two-mode network at this qualifier level
-				double[][] mat = new double[names1.size()][names2.size()];  // rectangular matrix!
-				for (int k = 0; k < statements.size(); k++) {
-					String n1 = (String) statements.get(k).getValues().get(var1);
-					String n2 = (String) statements.get(k).getValues().get(var2);
-					
-					int row = -1;
-					for (int l = 0; l < names1.size(); l++) {
-						if (names1.get(l).equals(n1)) {
-							row = l;
-							break;
-						}
-					}
-					int col = -1;
-					for (int l = 0; l < names2.size(); l++) {
-						if (names2.get(l).equals(n2)) {
-							col = l;
-							break;
-						}
-					}
-					
-					if (countDuplicates == true) {
-						mat[row][col] = mat[row][col] + 1.0;
-					} else {
-						boolean duplicate = false;
-						if (k > 1) {
-							for (int l = k - 1; l > -1; l--) {  // go back to previous statements and check if duplicate; add if no duplicate
-								if (statements.get(l).getDocumentId() == statements.get(k).getDocumentId() && 
-										statements.get(l).getValues().get(var1).equals(statements.get(k).getValues().get(var1)) && 
-										statements.get(l).getValues().get(var2).equals(statements.get(k).getValues().get(var2))) {
-									duplicate = true;
-									break;
-								}
-							}
-						}
-						if (duplicate == false) {
-							mat[row][col] = mat[row][col] + 1.0;
-						}
-					}
-				}
+				SparseMatrix mat = affiliation(al, var1, var2, rows, cols, countDuplicates);  // rectangular matrix!
 				
 				// convert two-mode into one-mode network and add to congruence matrix
-				mat = multiply(mat, transpose(mat));
-				congruence = add(congruence, mat);
+				congruence = congruence.add(mat.multiplyTranspose());
 			}
 		}
 		
 		// step 4: create conflict network if necessary
-		double[][] conflict = new double[names1.size()][names1.size()];  // quadratic matrix!
+		SparseMatrix conflict = new SparseMatrix(names1.size(), names1.size());  // quadratic matrix!
 		if (exportSetting.getAgreementPattern().equals("conflict") || exportSetting.getAgreementPattern().equals("subtract")) {
-			for (int i = 0; i < names1.size(); i++) {
-				for (int j = 0; j < names1.size(); j++) {
-					for (int k = 0; k < statements.size(); k++) {
-						for (int l = 0; l < statements.size(); l++) {
-							if (i != j && names1.get(i).equals(statements.get(k).getValues().get(var1)) && 
-									names1.get(j).equals(statements.get(l).getValues().get(var1))) {
-								if (qualifierInt == false) {
-									if (!statements.get(k).getValues().get(qualifier).equals(statements.get(l).getValues().get(qualifier))) {
-										if (countDuplicates == true) {
-											conflict[i][j] = conflict[i][j] + 1;
-										} else {
-											boolean duplicate = false;
-											if (k > 1) {
-												for (int m = k - 1; m > -1; m--) {  // go back to previous statements and check if duplicate; add if no duplicate
-													if (statements.get(m).getDocumentId() == statements.get(k).getDocumentId() && 
-															statements.get(m).getValues().get(var1).equals(statements.get(k).getValues().get(var1)) && 
-															statements.get(m).getValues().get(var2).equals(statements.get(k).getValues().get(var2)) && 
-															statements.get(m).getValues().get(qualifier).equals(statements.get(k).getValues().get(qualifier))) {
-														duplicate = true;
-														break;
-													}
-												}
-											}
-											if (duplicate == false) {
-												conflict[i][j] = conflict[i][j] + 1;
-											}
-										}
-									}
-								} else {
-									int q1 = (int) statements.get(k).getValues().get(qualifier);
-									int q2 = (int) statements.get(l).getValues().get(qualifier);
-									int difference = Math.abs(q1 - q2);
-									
-									if (countDuplicates == true) {
-										conflict[i][j] = conflict[i][j] + difference;
-									} else {
-										boolean duplicate = false;
-										if (k > 1) {
-											for (int m = k - 1; m > -1; m--) {  // go back to previous statements and check if duplicate; add if no duplicate
-												if (statements.get(m).getDocumentId() == statements.get(k).getDocumentId() && 
-														statements.get(m).getValues().get(var1).equals(statements.get(k).getValues().get(var1)) && 
-														statements.get(m).getValues().get(var2).equals(statements.get(k).getValues().get(var2)) && 
-														statements.get(m).getValues().get(qualifier) == statements.get(k).getValues().get(qualifier)) {
-													duplicate = true;
-													break;
-												}
-											}
-										}
-										if (duplicate == false) {
-											conflict[i][j] = conflict[i][j] + difference;
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
+			conflict = conflict(statements, var1, var2, qualifier, rows, countDuplicates);
 		}
 		
 		// step 5: create ignore matrix if necessary
-		double[][] ignore = new double[names1.size()][names2.size()];  // rectangular matrix!
+		SparseMatrix ignore = new SparseMatrix(names1.size(), names1.size());  // quadratic matrix!
 		if (exportSetting.getAgreementPattern().equals("ignore")) {
-			for (int k = 0; k < statements.size(); k++) {
-				String n1 = (String) statements.get(k).getValues().get(var1);
-				String n2 = (String) statements.get(k).getValues().get(var2);
-				
-				int row = -1;
-				for (int l = 0; l < names1.size(); l++) {
-					if (names1.get(l).equals(n1)) {
-						row = l;
-						break;
-					}
-				}
-				int col = -1;
-				for (int l = 0; l < names2.size(); l++) {
-					if (names2.get(l).equals(n2)) {
-						col = l;
-						break;
-					}
-				}
-				
-				if (countDuplicates == true) {
-					ignore[row][col] = ignore[row][col] + 1.0;
-				} else {
-					boolean duplicate = false;
-					if (k > 1) {
-						for (int l = k - 1; l > -1; l--) {  // go back to previous statements and check if duplicate; add if no duplicate
-							if (statements.get(l).getDocumentId() == statements.get(k).getDocumentId() && 
-									statements.get(l).getValues().get(var1).equals(statements.get(k).getValues().get(var1)) && 
-									statements.get(l).getValues().get(var2).equals(statements.get(k).getValues().get(var2))) {
-								duplicate = true;
-								break;
-							}
-						}
-					}
-					if (duplicate == false) {
-						ignore[row][col] = ignore[row][col] + 1.0;
-					}
-				}
-			}
-			ignore = multiply(ignore, transpose(ignore));  // convert two-mode into one-mode network
+			ignore = cachedAffiliation(statements, var1, var2, rows, cols, countDuplicates).multiplyTranspose();  // convert two-mode into one-mode network
 		}
 		
 		// step 6: choose result matrix; subtract if necessary
-		double[][] resultmat = new double[names1.size()][names1.size()];  // quadratic matrix!
+		SparseMatrix result = new SparseMatrix(names1.size(), names1.size());  // quadratic matrix!
 		if (exportSetting.getAgreementPattern().equals("congruence")) {
-			resultmat = congruence;
+			result = congruence;
 		} else if (exportSetting.getAgreementPattern().equals("conflict")) {
-			resultmat = conflict;
+			result = conflict;
 		} else if (exportSetting.getAgreementPattern().equals("ignore")) {
-			resultmat = ignore;
+			result = ignore;
 		} else if (exportSetting.getAgreementPattern().equals("subtract")) {
-			resultmat = subtract(congruence, conflict);
+			result = congruence.subtract(conflict);
+		}
+		
+		// step 7: normalization; choose the storage form of the matrix
+		SparseMatrix tm = null;
+		if (!exportSetting.getNormalization().equals("cooccurrence")) {
+			tm = cachedAffiliation(statements, var1, var2, rows, cols, countDuplicates);
+		}
+		String[] rownames = new String[names1.size()]; // cast row/column names from array list to array
+		rownames = names1.toArray(rownames);
+		Matrix matrix = oneModeMatrix(result, tm, exportSetting.getNormalization(), rownames);
+		
+		// step 8: create Network object and return
+		Network network = new Network(matrix, 1);  // wrap matrix in a network object
+		return network;
+	}
+	
+	/**
+	 * Create the matrix of a one-mode network. Normalized networks are stored as a packed 
+	 * {@link SymmetricMatrix} with float values; unnormalized networks hold integer counts and are stored 
+	 * as a packed symmetric matrix with int values if that takes less memory than the sparse matrix.
+	 * 
+	 * @param result         The one-mode network matrix.
+	 * @param affiliation    The two-mode network matrix from which the one-mode network was projected.
+	 * @param normalization  One of "cooccurrence" (no normalization), "average", "jaccard" and "cosine".
+	 * @param names          The row and column labels.
+	 * @return               The matrix with labels.
+	 */
+	static Matrix oneModeMatrix(SparseMatrix result, SparseMatrix affiliation, String normalization, String[] names) {
+		if (!normalization.equals("cooccurrence")) {
+			return new Matrix(normalize(result, affiliation, normalization), names);
+		} else if (SymmetricMatrix.isSmaller(result)) {
+			return new Matrix(SymmetricMatrix.fromSparse(result), names);
+		} else {
+			return new Matrix(result, names, names);
+		}
+	}
+	
+	/**
+	 * Normalize a one-mode network by the activity of the nodes in the underlying two-mode network. The 
+	 * activity of each node and, if the normalization needs it, the overlap of each pair of nodes are 
+	 * computed once from the stored cells of the two-mode network, in a pass of their own after the 
+	 * projection, as the one-mode network may be the difference or a sum over qualifier levels of several 
+	 * projections; the normalization itself is a {@link Normalization} strategy. As the network is 
+	 * symmetric, only the upper triangle is computed.
+	 * 
+	 * @param result         The one-mode network matrix.
+	 * @param affiliation    The two-mode network matrix from which the one-mode network was projected.
+	 * @param normalization  The name of the normalization, e.g., "average", "jaccard" or "cosine".
+	 * @return               The normalized one-mode network matrix.
+	 */
+	static SymmetricMatrix normalize(SparseMatrix result, SparseMatrix affiliation, String normalization) {
+		int n = result.getRows();
+		SymmetricMatrix normalized = new SymmetricMatrix(n, false);
+		Normalization strategy = Normalization.forName(normalization);
+		if (affiliation.getRows() != n) {
+			System.err.println("Normalization: dimensions differ. Network is not normalized.");
+			strategy = null;
+		} else if (strategy == null) {
+			System.err.println("Normalization argument not recognized.");
 		}
 		
-		// step 7: normalization
-		if (exportSetting.getNormalization().equals("cooccurrence")) {
-			// do nothing
-		} else if (exportSetting.getNormalization().equals("average")) {
-			Network tm = twoMode(statements, var1, var2, countDuplicates, includeIsolates);
-			double[][] mat = tm.getMatrix().getMatrix();
-			int columns = tm.getMatrix().getColnames().length;
-			if (tm.getMatrix().getRownames().length != names1.size()) {
-				System.err.println("Normalization: dimensions differ. Network is not normalized.");
-			} else {
-				for (int i = 0; i < names1.size(); i++) {
-					for (int j = 0; j < names1.size(); j++) {
-						int activity_i = 0;
-						int activity_j = 0;
-						for (int k = 0; k < columns; k++) {
-							if (mat[i][k] > 0) {
-								activity_i++;
-							}
-							if (mat[j][k] > 0) {
-								activity_j++;
-							}
-						}
-						resultmat[i][j] = resultmat[i][j] / (activity_i + activity_j) / 2;
+		// activity: number of columns with a positive value in each row of the two-mode network
+		int[] activity = new int[n];
+		SparseMatrix.Builder positive = new SparseMatrix.Builder(n, affiliation.getCols());
+		if (strategy != null) {
+			for (int i = 0; i < n; i++) {
+				for (int p = affiliation.rowStart(i); p < affiliation.rowEnd(i); p++) {
+					if (affiliation.valueAt(p) > 0) {
+						activity[i]++;
+						positive.add(i, affiliation.columnAt(p), 1.0);
 					}
 				}
 			}
-		} else if (exportSetting.getNormalization().equals("jaccard")) {
-			System.out.println("Warning: Jaccard normalization is experimental and may return wrong results.");
-			Network tm = twoMode(statements, var1, var2, countDuplicates, includeIsolates);
-			double[][] mat = tm.getMatrix().getMatrix();
-			int columns = tm.getMatrix().getColnames().length;
-			if (tm.getMatrix().getRownames().length != names1.size()) {
-				System.err.println("Normalization: dimensions differ. Network is not normalized.");
-			} else {
-				for (int i = 0; i < names1.size(); i++) {
-					for (int j = 0; j < names1.size(); j++) {
-						int m01 = 0;
-						int m10 = 0;
-						int m11 = 0;
-						for (int k = 0; k < columns; k++) {
-							if (mat[i][k] > 0 && mat[j][k] > 0) {
-								m11++;
-							} else if (mat[i][k] > 0) {
-								m10++;
-							} else if (mat[j][k] > 0) {
-								m01++;
-							}
-						}
-						resultmat[i][j] = resultmat[i][j] / (m01 + m10 + m11);
-					}
-				}
+		}
+		
+		// overlap: number of columns in which both rows are positive, i.e., the projection of the positive cells
+		SparseMatrix overlap = new SparseMatrix(n, n);
+		if (strategy != null && strategy.usesOverlap()) {
+			overlap = positive.build().multiplyTranspose();
+		}
+		
+		double[] row = new double[n];
+		double[] shared = new double[n];
+		for (int i = 0; i < n; i++) {
+			Arrays.fill(row, 0.0);
+			for (int p = result.rowStart(i); p < result.rowEnd(i); p++) {
+				row[result.columnAt(p)] = result.valueAt(p);
 			}
-		} else if (exportSetting.getNormalization().equals("cosine")) {
-			Network tm = twoMode(statements, var1, var2, countDuplicates, includeIsolates);
-			double[][] mat = tm.getMatrix().getMatrix();
-			int columns = tm.getMatrix().getColnames().length;
-			if (tm.getMatrix().getRownames().length != names1.size()) {
-				System.err.println("Normalization: dimensions differ. Network is not normalized.");
-			} else {
-				for (int i = 0; i < names1.size(); i++) {
-					for (int j = 0; j < names1.size(); j++) {
-						int activity_i = 0;
-						int activity_j = 0;
-						for (int k = 0; k < columns; k++) {
-							if (mat[i][k] > 0) {
-								activity_i++;
-							}
-							if (mat[j][k] > 0) {
-								activity_j++;
-							}
-						}
-						resultmat[i][j] = resultmat[i][j] / Math.sqrt(activity_i * activity_j);
-					}
+			if (strategy == null) {
+				for (int j = i; j < n; j++) {
+					normalized.set(i, j, row[j]);
 				}
+				continue;
+			}
+			Arrays.fill(shared, 0.0);
+			for (int p = overlap.rowStart(i); p < overlap.rowEnd(i); p++) {
+				shared[overlap.columnAt(p)] = overlap.valueAt(p);
+			}
+			for (int j = i; j < n; j++) {
+				normalized.set(i, j, strategy.normalize(row[j], activity[i], activity[j], (int) shared[j]));
 			}
-		} else {
-			System.err.println("Normalization argument not recognized.");
 		}
-		
-		// step 8: create Network object and return
-		String[] rownames = new String[names1.size()]; // cast row/column names from array list to array
-		rownames = names1.toArray(rownames);
-		Matrix matrix = new Matrix(resultmat, rownames, rownames); // assemble the Matrix object with labels
-		Network network = new Network(matrix, 1);  // wrap matrix in a network object
-		return network;
+		return normalized;
 	}
 	
 	/**
@@ -658,10 +708,11 @@ public class NetworkCreator {
 				throw new IllegalArgumentException("More than one statement type was selected. Cannot export to a spreadsheet!");
 			}
 		}
-		HashMap<String, String> variables = Dna.data.getStatementTypeById(statementTypeId).getVariables();
+		HashMap<String, String> variables = data.getStatementTypeById(statementTypeId).getVariables();
+		HashMap<Integer, String> statementTexts = statementTexts(statements);
 		Iterator<String> keyIterator;
 		try {
-			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8"));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(openOutput(fileName), "UTF-8"));
 			keyIterator = variables.keySet().iterator();
 			out.write("\"statement ID\";\"time\";\"document ID\";\"document title\";\"author\";\"source\";\"section\";\"type\";\"text\"");
 			while (keyIterator.hasNext()){
@@ -675,23 +726,22 @@ public class NetworkCreator {
 				d = statements.get(i).getDate();
 				dateFormat = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
 				out.write(";" + dateFormat.format(d));
-				dna.dataStructures.Document doc = Dna.data.getDocument(Dna.data.getStatement(statementId).getDocumentId());
+				dna.dataStructures.Document doc = data.getDocument(data.getStatement(statementId).getDocumentId());
 				out.write(";" + doc.getId());
 				out.write(";\"" + doc.getTitle().replaceAll(";", ",").replaceAll("\"", "'") + "\"");
 				out.write(";\"" + doc.getAuthor().replaceAll(";", ",").replaceAll("\"", "'") + "\"");
 				out.write(";\"" + doc.getSource().replaceAll(";", ",").replaceAll("\"", "'") + "\"");
 				out.write(";\"" + doc.getSection().replaceAll(";", ",").replaceAll("\"", "'") + "\"");
 				out.write(";\"" + doc.getType().replaceAll(";", ",").replaceAll("\"", "'") + "\"");
-				out.write(";\"" + doc.getText().substring(Dna.data.getStatement(statementId).getStart(), 
-						Dna.data.getStatement(statementId).getStop()).replaceAll(";", ",").replaceAll("\"", "'") + "\"");
+				out.write(";\"" + statementTexts.get(statementId).replaceAll(";", ",").replaceAll("\"", "'") + "\"");
 				keyIterator = variables.keySet().iterator();
 				while (keyIterator.hasNext()){
 					key = keyIterator.next();
 					value = variables.get(key);
 					if (value.equals("short text") || value.equals("long text")) {
-						out.write(";\"" + ((String) Dna.data.getStatement(statementId).getValues().get(key)).replaceAll(";", ",").replaceAll("\"", "'") + "\"");
+						out.write(";\"" + ((String) data.getStatement(statementId).getValues().get(key)).replaceAll(";", ",").replaceAll("\"", "'") + "\"");
 					} else if (value.equals("boolean") || value.equals("integer")) {
-						out.write(";" + Dna.data.getStatement(statementId).getValues().get(key));
+						out.write(";" + data.getStatement(statementId).getValues().get(key));
 					}
 				}
 			}
@@ -703,7 +753,60 @@ public class NetworkCreator {
 	}
 
 	/**
-	 * Export network to a CSV matrix file.
+	 * Extract the text passages of statements from their documents. The documents are visited in the order 
+	 * of their IDs, and texts that are loaded on demand are read in batches, so that only the passages and 
+	 * not the complete texts are kept in memory.
+	 * 
+	 * @param statements  The statements.
+	 * @return            The text passages, by statement ID.
+	 */
+	HashMap<Integer, String> statementTexts(ArrayList<Statement> statements) {
+		HashMap<Integer, ArrayList<Statement>> byDocument = new HashMap<Integer, ArrayList<Statement>>();
+		for (int i = 0; i < statements.size(); i++) {
+			ArrayList<Statement> list = byDocument.get(statements.get(i).getDocumentId());
+			if (list == null) {
+				list = new ArrayList<Statement>();
+				byDocument.put(statements.get(i).getDocumentId(), list);
+			}
+			list.add(statements.get(i));
+		}
+		ArrayList<Integer> documentIds = new ArrayList<Integer>(byDocument.keySet());
+		Collections.sort(documentIds);
+		HashMap<Integer, String> statementTexts = new HashMap<Integer, String>();
+		for (int i = 0; i < documentIds.size(); i += TextCache.BATCH) {
+			ArrayList<dna.dataStructures.Document> batch = new ArrayList<dna.dataStructures.Document>();
+			for (int j = i; j < Math.min(i + TextCache.BATCH, documentIds.size()); j++) {
+				batch.add(data.getDocument(documentIds.get(j)));
+			}
+			HashMap<Integer, String> texts = TextCache.getTexts(batch);
+			for (int j = 0; j < batch.size(); j++) {
+				String text = texts.get(batch.get(j).getId());
+				ArrayList<Statement> list = byDocument.get(batch.get(j).getId());
+				for (int k = 0; k < list.size(); k++) {
+					statementTexts.put(list.get(k).getId(), text.substring(list.get(k).getStart(), list.get(k).getStop()));
+				}
+			}
+		}
+		return statementTexts;
+	}
+
+	/**
+	 * Open an output file; if the export settings ask for compression, the file is gzip-compressed.
+	 * 
+	 * @param outfile  The path and file name.
+	 * @return         A buffered stream to the file.
+	 * @throws IOException  If the file cannot be created.
+	 */
+	OutputStream openOutput(String outfile) throws IOException {
+		OutputStream out = new FileOutputStream(outfile);
+		if (exportSetting.isCompress()) {
+			out = new GZIPOutputStream(out, 65536);
+		}
+		return new BufferedOutputStream(out, 65536);
+	}
+
+	/**
+	 * Export network to a CSV matrix file. The file is written row by row from the matrix.
 	 * 
 	 * @param network  The input Network object.
 	 * @param outfile  The path and file name of the target CSV file.
@@ -713,9 +816,12 @@ public class NetworkCreator {
 		int nc = network.getMatrix().colnames.length;
 		String[] rn = network.getMatrix().rownames;
 		String[] cn = network.getMatrix().colnames;
-		double[][] mat = network.getMatrix().getMatrix();
+		Matrix mat = network.getMatrix();
+		boolean floats = mat.isSymmetric() && !mat.getSymmetric().isInteger();  // normalized values
+		double[] row = new double[nc];
+		DecimalFormatter formatter = new DecimalFormatter();
 		try {
-			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outfile), "UTF8"));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(openOutput(outfile), "UTF8"), 65536);
 			out.write("\"\"");
 			for (int i = 0; i < nc; i++) {
 				out.write(";\"" + cn[i] + "\"");
@@ -723,8 +829,14 @@ public class NetworkCreator {
 			for (int i = 0; i < nr; i++) {
 				out.newLine();
 				out.write("\"" + rn[i] + "\"");
+				mat.getRow(i, row);
 				for (int j = 0; j < nc; j++) {
-					out.write(";" + String.format(new Locale("en"), "%.6f", mat[i][j]));
+					out.write(';');
+					if (floats == true) {
+						formatter.writeFloat(out, row[j]);
+					} else {
+						formatter.write(out, row[j]);
+					}
 				}
 			}
 			out.close();
@@ -734,7 +846,8 @@ public class NetworkCreator {
 	}
 
 	/**
-	 * Export network to a DL fullmatrix file for the software Ucinet.
+	 * Export network to a DL fullmatrix file for the software Ucinet. The file is written row by row from 
+	 * the matrix.
 	 * 
 	 * @param network  The input Network object.
 	 * @param outfile  The path and file name of the target .dl file.
@@ -744,9 +857,12 @@ public class NetworkCreator {
 		int nc = network.getMatrix().colnames.length;
 		String[] rn = network.getMatrix().rownames;
 		String[] cn = network.getMatrix().colnames;
-		double[][] mat = network.getMatrix().getMatrix();
+		Matrix mat = network.getMatrix();
+		boolean floats = mat.isSymmetric() && !mat.getSymmetric().isInteger();  // normalized values
+		double[] row = new double[nc];
+		DecimalFormatter formatter = new DecimalFormatter();
 		try {
-			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outfile), "UTF8"));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(openOutput(outfile), "UTF8"), 65536);
 			out.write("DL");
 			out.newLine();
 			if (network.getModes() == 1) {
@@ -776,8 +892,14 @@ public class NetworkCreator {
 			out.write("DATA:");
 			for (int i = 0; i < nr; i++) {
 				out.newLine();
+				mat.getRow(i, row);
 				for (int j = 0; j < nc; j++) {
-					out.write(" " + String.format(new Locale("en"), "%.6f", mat[i][j]));
+					out.write(' ');
+					if (floats == true) {
+						formatter.writeFloat(out, row[j]);
+					} else {
+						formatter.write(out, row[j]);
+					}
 				}
 			}
 			out.close();
@@ -787,237 +909,24 @@ public class NetworkCreator {
 	}
 
 	/**
-	 * Export filter for graphML files.
+	 * Export filter for graphML files. The file is streamed by a {@link GraphMLWriter}.
 	 * 
 	 * @param network  The input Network object.
 	 * @param outfile  The path and file name of the target .graphML file.
 	 */
 	private void exportGraphML(Network network, String outfile) {
-		ArrayList<Edge> edges = network.getEdgelist().getEdgelist();
-		int modes = network.getModes();
-		String[] rn = network.getEdgelist().getSources();
-		String[] cn = network.getEdgelist().getTargets();
-		int nr = rn.length;
-		int nc = cn.length;
-		int numVertices = nr;
-		if (modes == 1) {
-			numVertices = nr;
-		} else if (modes == 2) {
-			numVertices = nr + nc;
-		}
-		int numEdges = edges.size();
-		String[] labels = null;
-		if (modes == 1) {
-			labels = rn;
-		} else if (modes == 2) {
-			labels = Stream.concat(Arrays.stream(rn), Arrays.stream(cn)).toArray(String[]::new);
-		}
-		
-		Namespace xmlns = Namespace.getNamespace("http://graphml.graphdrawing.org/xmlns");
-		Element graphml = new Element("graphml", xmlns);
-		Namespace visone = Namespace.getNamespace("visone", "http://visone.info/xmlns");
-		graphml.addNamespaceDeclaration(visone);
-		Namespace xsi = Namespace.getNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
-		graphml.addNamespaceDeclaration(xsi);
-		Namespace yNs = Namespace.getNamespace("y", "http://www.yworks.com/xml/graphml");
-		graphml.addNamespaceDeclaration(yNs);
-		Attribute attSchema = new Attribute("schemaLocation", "http://graphml.graphdrawing.org/xmlns/graphml http://www.yworks.com/xml/schema/graphml/1.0/ygraphml.xsd ", xsi);
-		graphml.setAttribute(attSchema);
-		Document document = new org.jdom.Document(graphml);
-		
-		Comment dataSchema = new Comment(" data schema ");
-		graphml.addContent(dataSchema);
-		
-		Element keyVisoneNode = new Element("key", xmlns);
-		keyVisoneNode.setAttribute(new Attribute("for", "node"));
-		keyVisoneNode.setAttribute(new Attribute("id", "d0"));
-		keyVisoneNode.setAttribute(new Attribute("yfiles.type", "nodegraphics"));
-		graphml.addContent(keyVisoneNode);
-
-		Element keyVisoneEdge = new Element("key", xmlns);
-		keyVisoneEdge.setAttribute(new Attribute("for", "edge"));
-		keyVisoneEdge.setAttribute(new Attribute("id", "e0"));
-		keyVisoneEdge.setAttribute(new Attribute("yfiles.type", "edgegraphics"));
-		graphml.addContent(keyVisoneEdge);
-
-		Element keyVisoneGraph = new Element("key", xmlns);
-		keyVisoneGraph.setAttribute(new Attribute("for", "graph"));
-		keyVisoneGraph.setAttribute(new Attribute("id", "prop"));
-		keyVisoneGraph.setAttribute(new Attribute("visone.type", "properties"));
-		graphml.addContent(keyVisoneGraph);
-		
-		Element keyId = new Element("key", xmlns);
-		keyId.setAttribute(new Attribute("id", "id"));
-		keyId.setAttribute(new Attribute("for", "node"));
-		keyId.setAttribute(new Attribute("attr.name", "id"));
-		keyId.setAttribute(new Attribute("attr.type", "string"));
-		graphml.addContent(keyId);
-		
-		Element keyClass = new Element("key", xmlns);
-		keyClass.setAttribute(new Attribute("id", "class"));
-		keyClass.setAttribute(new Attribute("for", "node"));
-		keyClass.setAttribute(new Attribute("attr.name", "class"));
-		keyClass.setAttribute(new Attribute("attr.type", "string"));
-		graphml.addContent(keyClass);
-		
-		/*
-		Element keyFrequency = new Element("key", xmlns);
-		keyFrequency.setAttribute(new Attribute("id", "statementFrequency"));
-		keyFrequency.setAttribute(new Attribute("for", "node"));
-		keyFrequency.setAttribute(new Attribute("attr.name", "statementFrequency"));
-		keyFrequency.setAttribute(new Attribute("attr.type", "int"));
-		graphml.addContent(keyFrequency);
-		*/
-		
-		Element keyWeight = new Element("key", xmlns);
-		keyWeight.setAttribute(new Attribute("id", "weight"));
-		keyWeight.setAttribute(new Attribute("for", "edge"));
-		keyWeight.setAttribute(new Attribute("attr.name", "weight"));
-		keyWeight.setAttribute(new Attribute("attr.type", "double"));
-		graphml.addContent(keyWeight);
-		
-		Element graphElement = new Element("graph", xmlns);
-		graphElement.setAttribute(new Attribute("edgedefault", "undirected"));
-		
-		graphElement.setAttribute(new Attribute("id", "G"));
-		graphElement.setAttribute(new Attribute("parse.edges", String.valueOf(numEdges)));
-		graphElement.setAttribute(new Attribute("parse.nodes", String.valueOf(numVertices)));
-		graphElement.setAttribute(new Attribute("parse.order", "free"));
-		Element properties = new Element("data", xmlns);
-		properties.setAttribute(new Attribute("key", "prop"));
-		Element labelAttribute = new Element("labelAttribute", visone);
-		labelAttribute.setAttribute("edgeLabel", "weight");
-		labelAttribute.setAttribute("nodeLabel", "id");
-		properties.addContent(labelAttribute);
-		graphElement.addContent(properties);
-		
-		Comment nodes = new Comment(" nodes ");
-		graphElement.addContent(nodes);
-		
-		for (int i = 0; i < labels.length; i++) {
-			Element node = new Element("node", xmlns);
-			node.setAttribute(new Attribute("id", labels[i]));
-			
-			Element id = new Element("data", xmlns);
-			id.setAttribute(new Attribute("key", "id"));
-			id.setText(labels[i]);
-			node.addContent(id);
-			
-			String hex;
-			String type;
-			String shapeString;
-			if (i > nr) {
-				hex = "#00FF00";  // green
-				type = "mode2";
-				shapeString = "ellipse";
-			} else {
-				hex = "#3399FF";  // light blue
-				type = "mode1";
-				shapeString = "roundrectangle";
+		try {
+			OutputStream out = openOutput(outfile);
+			try {
+				new GraphMLWriter(out).write(network);
+			} finally {
+				out.close();
 			}
-			
-			Element vClass = new Element("data", xmlns);
-			vClass.setAttribute(new Attribute("key", "class"));
-			vClass.setText(type);
-			node.addContent(vClass);
-			
-			Element vis = new Element("data", xmlns);
-			vis.setAttribute(new Attribute("key", "d0"));
-			Element visoneShapeNode = new Element("shapeNode", visone);
-			Element yShapeNode = new Element("ShapeNode", yNs);
-			Element geometry = new Element("Geometry", yNs);
-			geometry.setAttribute(new Attribute("height", "20.0"));
-			geometry.setAttribute(new Attribute("width", "20.0"));
-			geometry.setAttribute(new Attribute("x", String.valueOf(Math.random()*800)));
-			geometry.setAttribute(new Attribute("y", String.valueOf(Math.random()*600)));
-			yShapeNode.addContent(geometry);
-			Element fill = new Element("Fill", yNs);
-			fill.setAttribute(new Attribute("color", hex));
-			fill.setAttribute(new Attribute("transparent", "false"));
-			yShapeNode.addContent(fill);
-			Element borderStyle = new Element("BorderStyle", yNs);
-			borderStyle.setAttribute(new Attribute("color", "#000000"));
-			borderStyle.setAttribute(new Attribute("type", "line"));
-			borderStyle.setAttribute(new Attribute("width", "1.0"));
-			yShapeNode.addContent(borderStyle);
-			
-			Element nodeLabel = new Element("NodeLabel", yNs);
-			nodeLabel.setAttribute(new Attribute("alignment", "center"));
-			nodeLabel.setAttribute(new Attribute("autoSizePolicy", "content"));
-			nodeLabel.setAttribute(new Attribute("backgroundColor", "#FFFFFF"));
-			nodeLabel.setAttribute(new Attribute("fontFamily", "Dialog"));
-			nodeLabel.setAttribute(new Attribute("fontSize", "12"));
-			nodeLabel.setAttribute(new Attribute("fontStyle", "plain"));
-			nodeLabel.setAttribute(new Attribute("hasLineColor", "false"));
-			nodeLabel.setAttribute(new Attribute("height", "19.0"));
-			nodeLabel.setAttribute(new Attribute("modelName", "eight_pos"));
-			nodeLabel.setAttribute(new Attribute("modelPosition", "n"));
-			nodeLabel.setAttribute(new Attribute("textColor", "#000000"));
-			nodeLabel.setAttribute(new Attribute("visible", "true"));
-			nodeLabel.setText(labels[i]);
-			yShapeNode.addContent(nodeLabel);
-			
-			Element shape = new Element("Shape", yNs);
-			shape.setAttribute(new Attribute("type", shapeString));
-			yShapeNode.addContent(shape);
-			visoneShapeNode.addContent(yShapeNode);
-			vis.addContent(visoneShapeNode);
-			node.addContent(vis);
-			
-			graphElement.addContent(node);
-		}
-		
-		Comment edgesComment = new Comment(" edges ");
-		graphElement.addContent(edgesComment);
-		
-		for (int i = 0; i < edges.size(); i++) {
-			Element edge = new Element("edge", xmlns);
-			edge.setAttribute(new Attribute("source", edges.get(i).getSource()));
-			edge.setAttribute(new Attribute("target", edges.get(i).getTarget()));
-			Element weight = new Element("data", xmlns);
-			weight.setAttribute(new Attribute("key", "weight"));
-			weight.setText(String.valueOf(edges.get(i).getWeight()));
-			edge.addContent(weight);
-			
-			Element visEdge = new Element("data", xmlns);
-			visEdge.setAttribute("key", "e0");
-			Element visPolyLineEdge = new Element("polyLineEdge", visone);
-			Element yPolyLineEdge = new Element("PolyLineEdge", yNs);
-			Element yLineStyle = new Element("LineStyle", yNs);
-			String col;
-			if (edges.get(i).getWeight() > 0) {
-				col = "#00ff00";
-			} else if (edges.get(i).getWeight() < 0) {
-				col = "#ff0000";
-			} else {
-				col = "#000000";
+		} catch (IOException | XMLStreamException e) {
+			System.err.println("Cannot save \"" + outfile + "\":" + e.getMessage());
+			if (Dna.dna != null) {  // not in headless mode
+				JOptionPane.showMessageDialog(Dna.dna.gui, "Error while saving the file!\n" + e.getMessage());
 			}
-			yLineStyle.setAttribute("color", col);
-			yLineStyle.setAttribute(new Attribute("type", "line"));
-			yLineStyle.setAttribute(new Attribute("width", "2.0"));
-			yPolyLineEdge.addContent(yLineStyle);
-			visPolyLineEdge.addContent(yPolyLineEdge);
-			visEdge.addContent(visPolyLineEdge);
-			edge.addContent(visEdge);
-			
-			graphElement.addContent(edge);
-		}
-		
-		graphml.addContent(graphElement);
-		
-		File dnaFile = new File (outfile);
-		try {
-			FileOutputStream outStream = new FileOutputStream(dnaFile);
-			XMLOutputter outToFile = new XMLOutputter();
-			Format format = Format.getPrettyFormat();
-			format.setEncoding("utf-8");
-			outToFile.setFormat(format);
-			outToFile.output(document, outStream);
-			outStream.flush();
-			outStream.close();
-		} catch (IOException e) {
-			System.err.println("Cannot save \"" + dnaFile + "\":" + e.getMessage());
-			JOptionPane.showMessageDialog(Dna.dna.gui, "Error while saving the file!\n" + e.getStackTrace());
 		}
 	}
 }
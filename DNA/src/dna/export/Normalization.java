@@ -0,0 +1,93 @@
+package dna.export;
+
+/**
+ * A normalization of one-mode networks by the activity of the nodes in the underlying two-mode network.
+ * The activity of a node is the number of columns of the two-mode network in which it has a positive
+ * value, for example the number of concepts an organization refers to, and the overlap of two nodes is
+ * the number of columns in which both of them have a positive value. Both are computed once per network
+ * by {@link NetworkCreator}, so a normalization only has to combine them with the value of a cell.
+ *
+ * The built-in normalizations are "average", "jaccard" and "cosine". Further measures can be made
+ * available under a name with {@link #register(String, Normalization)}; the name can then be used as the
+ * normalization of the export settings.
+ */
+public interface Normalization {
+
+	/**
+	 * Normalize a cell of a one-mode network.
+	 *
+	 * @param value      The value of the cell (i, j).
+	 * @param activity1  The activity of node i.
+	 * @param activity2  The activity of node j.
+	 * @param overlap    The overlap of nodes i and j; 0 if {@link #usesOverlap()} is false.
+	 * @return           The normalized value.
+	 */
+	double normalize(double value, int activity1, int activity2, int overlap);
+
+	/**
+	 * @return  Whether the normalization needs the overlap of the nodes, which is not computed otherwise.
+	 */
+	default boolean usesOverlap() {
+		return false;
+	}
+
+	/**
+	 * Divide by the average activity of the two nodes.
+	 */
+	Normalization AVERAGE = new Normalization() {
+		public double normalize(double value, int activity1, int activity2, int overlap) {
+			return value / (activity1 + activity2) / 2;
+		}
+	};
+
+	/**
+	 * Jaccard similarity: divide by the number of columns in which at least one of the nodes is active.
+	 */
+	Normalization JACCARD = new Normalization() {
+		public double normalize(double value, int activity1, int activity2, int overlap) {
+			return value / (activity1 + activity2 - overlap);
+		}
+
+		public boolean usesOverlap() {
+			return true;
+		}
+	};
+
+	/**
+	 * Cosine similarity: divide by the geometric mean of the activities of the two nodes.
+	 */
+	Normalization COSINE = new Normalization() {
+		public double normalize(double value, int activity1, int activity2, int overlap) {
+			return value / Math.sqrt(activity1 * activity2);
+		}
+	};
+
+	/**
+	 * Make a further normalization available under a name. The names of the built-in normalizations 
+	 * cannot be used.
+	 *
+	 * @param name           The name, as used in the export settings.
+	 * @param normalization  The normalization.
+	 */
+	static void register(String name, Normalization normalization) {
+		if (name.equals("cooccurrence") || name.equals("average") || name.equals("jaccard") || name.equals("cosine")) {
+			throw new IllegalArgumentException("The normalization \"" + name + "\" is built in.");
+		}
+		NormalizationRegistry.put(name, normalization);
+	}
+
+	/**
+	 * @param name  The name of a normalization, for example "cosine".
+	 * @return      The normalization, or {@code null} if there is none with this name.
+	 */
+	static Normalization forName(String name) {
+		if (name.equals("average")) {
+			return AVERAGE;
+		} else if (name.equals("jaccard")) {
+			return JACCARD;
+		} else if (name.equals("cosine")) {
+			return COSINE;
+		}
+		return NormalizationRegistry.get(name);
+	}
+}
@@ -0,0 +1,31 @@
+package dna.export;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The normalizations that were registered under a name with {@link Normalization#register(String, Normalization)}
+ * in addition to the built-in ones. An interface cannot have private fields, so the map is kept here, where
+ * it can only be changed through the registration method.
+ */
+class NormalizationRegistry {
+	private static final ConcurrentHashMap<String, Normalization> registered = new ConcurrentHashMap<String, Normalization>();
+
+	private NormalizationRegistry() {
+	}
+
+	/**
+	 * @param name           The name, as used in the export settings.
+	 * @param normalization  The normalization.
+	 */
+	static void put(String name, Normalization normalization) {
+		registered.put(name, normalization);
+	}
+
+	/**
+	 * @param name  The name of a registered normalization.
+	 * @return      The normalization, or {@code null} if none was registered under this name.
+	 */
+	static Normalization get(String name) {
+		return registered.get(name);
+	}
+}
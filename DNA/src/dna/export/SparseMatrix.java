@@ -0,0 +1,344 @@
+package dna.export;
+
+import java.util.Arrays;
+
+/**
+ * A sparse matrix in compressed sparse row (CSR) format. Only the non-zero cells are stored: for each row,
+ * the column indices and values of its non-zero cells are kept in ascending column order. Network matrices
+ * are usually very sparse, so this needs far less memory than a two-dimensional array, and products can
+ * skip the zero cells. SparseMatrix objects are immutable; they are assembled with a {@link Builder}.
+ */
+public class SparseMatrix {
+	int rows, cols;
+	int[] rowPointers;  // row i occupies positions rowPointers[i] to rowPointers[i + 1] - 1
+	int[] columnIndices;
+	double[] values;
+
+	SparseMatrix(int rows, int cols, int[] rowPointers, int[] columnIndices, double[] values) {
+		this.rows = rows;
+		this.cols = cols;
+		this.rowPointers = rowPointers;
+		this.columnIndices = columnIndices;
+		this.values = values;
+	}
+
+	/**
+	 * Create an empty matrix.
+	 *
+	 * @param rows  Number of rows.
+	 * @param cols  Number of columns.
+	 */
+	public SparseMatrix(int rows, int cols) {
+		this(rows, cols, new int[rows + 1], new int[0], new double[0]);
+	}
+
+	/**
+	 * Convert a two-dimensional array into a sparse matrix.
+	 *
+	 * @param mat  Two-dimensional array.
+	 * @return     The sparse matrix.
+	 */
+	public static SparseMatrix fromDense(double[][] mat) {
+		int cols = mat.length > 0 ? mat[0].length : 0;
+		Builder builder = new Builder(mat.length, cols);
+		for (int i = 0; i < mat.length; i++) {
+			for (int j = 0; j < cols; j++) {
+				if (mat[i][j] != 0) {
+					builder.add(i, j, mat[i][j]);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return  The matrix as a two-dimensional array.
+	 */
+	public double[][] toDense() {
+		double[][] mat = new double[rows][cols];
+		for (int i = 0; i < rows; i++) {
+			for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+				mat[i][columnIndices[p]] = values[p];
+			}
+		}
+		return mat;
+	}
+
+	/**
+	 * @return  The number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return  The number of columns.
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * @return  The number of stored (non-zero) cells.
+	 */
+	public int getNonZeros() {
+		return rowPointers[rows];
+	}
+
+	/**
+	 * @param row  Row index.
+	 * @return     The position of the first stored cell of the row, for use with {@link #columnAt(int)}
+	 *             and {@link #valueAt(int)}.
+	 */
+	public int rowStart(int row) {
+		return rowPointers[row];
+	}
+
+	/**
+	 * @param row  Row index.
+	 * @return     The position after the last stored cell of the row.
+	 */
+	public int rowEnd(int row) {
+		return rowPointers[row + 1];
+	}
+
+	/**
+	 * @param position  Position of a stored cell.
+	 * @return          Its column index.
+	 */
+	public int columnAt(int position) {
+		return columnIndices[position];
+	}
+
+	/**
+	 * @param position  Position of a stored cell.
+	 * @return          Its value.
+	 */
+	public double valueAt(int position) {
+		return values[position];
+	}
+
+	/**
+	 * @param row  Row index.
+	 * @param col  Column index.
+	 * @return     The value of the cell; 0 if it is not stored.
+	 */
+	public double get(int row, int col) {
+		int p = Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], col);
+		if (p < 0) {
+			return 0;
+		}
+		return values[p];
+	}
+
+	/**
+	 * Compute the product of this matrix with its own transpose, for example to convert a two-mode
+	 * network into a one-mode network. The transpose is never created: the stored cells are indexed by
+	 * column once, and each row of the result is accumulated from the rows that share a column with it.
+	 *
+	 * @return  The square matrix A * A^T with as many rows and columns as this matrix has rows.
+	 */
+	public SparseMatrix multiplyTranspose() {
+
+		// index the stored cells by column: which rows have a non-zero value in column j?
+		int[] columnPointers = new int[cols + 1];
+		for (int p = 0; p < getNonZeros(); p++) {
+			columnPointers[columnIndices[p] + 1]++;
+		}
+		for (int j = 0; j < cols; j++) {
+			columnPointers[j + 1] += columnPointers[j];
+		}
+		int[] rowIndices = new int[getNonZeros()];
+		double[] columnValues = new double[getNonZeros()];
+		int[] next = Arrays.copyOf(columnPointers, cols);
+		for (int i = 0; i < rows; i++) {
+			for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+				int q = next[columnIndices[p]]++;
+				rowIndices[q] = i;
+				columnValues[q] = values[p];
+			}
+		}
+
+		// accumulate each row of the result in a dense work row, remembering which cells were touched
+		double[] work = new double[rows];
+		int[] touched = new int[rows];
+		boolean[] used = new boolean[rows];
+		Builder builder = new Builder(rows, rows);
+		for (int i = 0; i < rows; i++) {
+			int count = 0;
+			for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+				int j = columnIndices[p];
+				double v = values[p];
+				for (int q = columnPointers[j]; q < columnPointers[j + 1]; q++) {
+					int k = rowIndices[q];
+					if (used[k] == false) {
+						used[k] = true;
+						touched[count] = k;
+						count++;
+					}
+					work[k] += v * columnValues[q];
+				}
+			}
+			Arrays.sort(touched, 0, count);
+			for (int t = 0; t < count; t++) {
+				int k = touched[t];
+				if (work[k] != 0) {
+					builder.add(i, k, work[k]);
+				}
+				work[k] = 0;
+				used[k] = false;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Add another matrix of the same dimensions.
+	 *
+	 * @param other  The matrix to add.
+	 * @return       A new matrix with the sum.
+	 */
+	public SparseMatrix add(SparseMatrix other) {
+		return combine(other, 1.0);
+	}
+
+	/**
+	 * Subtract another matrix of the same dimensions.
+	 *
+	 * @param other  The matrix to subtract.
+	 * @return       A new matrix with the difference.
+	 */
+	public SparseMatrix subtract(SparseMatrix other) {
+		return combine(other, -1.0);
+	}
+
+	private SparseMatrix combine(SparseMatrix other, double factor) {
+		if (rows != other.rows || cols != other.cols) {
+			throw new IllegalArgumentException("Matrix dimensions do not match: " + rows + "x" + cols + " vs. "
+					+ other.rows + "x" + other.cols + ".");
+		}
+		Builder builder = new Builder(rows, cols);
+		for (int i = 0; i < rows; i++) {
+			int p = rowPointers[i];
+			int q = other.rowPointers[i];
+			while (p < rowPointers[i + 1] || q < other.rowPointers[i + 1]) {  // merge the two sorted rows
+				int a = p < rowPointers[i + 1] ? columnIndices[p] : Integer.MAX_VALUE;
+				int b = q < other.rowPointers[i + 1] ? other.columnIndices[q] : Integer.MAX_VALUE;
+				if (a < b) {
+					builder.add(i, a, values[p]);
+					p++;
+				} else if (b < a) {
+					builder.add(i, b, factor * other.values[q]);
+					q++;
+				} else {
+					builder.add(i, a, values[p] + factor * other.values[q]);
+					p++;
+					q++;
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Collects cells in any order, possibly with repeated coordinates, and assembles them into a
+	 * {@link SparseMatrix}. Values at the same coordinates are summed up; cells that end up as zero are
+	 * not stored.
+	 */
+	public static class Builder {
+		int rows, cols;
+		int size = 0;
+		int[] r = new int[16];
+		int[] c = new int[16];
+		double[] v = new double[16];
+
+		/**
+		 * @param rows  Number of rows of the matrix.
+		 * @param cols  Number of columns of the matrix.
+		 */
+		public Builder(int rows, int cols) {
+			this.rows = rows;
+			this.cols = cols;
+		}
+
+		/**
+		 * Add a value to a cell.
+		 *
+		 * @param row    Row index.
+		 * @param col    Column index.
+		 * @param value  The value to add.
+		 */
+		public void add(int row, int col, double value) {
+			if (row < 0 || row >= rows || col < 0 || col >= cols) {
+				throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside a " + rows + "x" + cols + " matrix.");
+			}
+			if (size == r.length) {
+				r = Arrays.copyOf(r, size * 2);
+				c = Arrays.copyOf(c, size * 2);
+				v = Arrays.copyOf(v, size * 2);
+			}
+			r[size] = row;
+			c[size] = col;
+			v[size] = value;
+			size++;
+		}
+
+		/**
+		 * @return  The assembled matrix.
+		 */
+		public SparseMatrix build() {
+
+			// bucket the cells by row (counting sort), keeping the order of insertion within each row
+			int[] rowPointers = new int[rows + 1];
+			for (int k = 0; k < size; k++) {
+				rowPointers[r[k] + 1]++;
+			}
+			for (int i = 0; i < rows; i++) {
+				rowPointers[i + 1] += rowPointers[i];
+			}
+			int[] next = Arrays.copyOf(rowPointers, rows);
+			int[] order = new int[size];
+			for (int k = 0; k < size; k++) {
+				order[next[r[k]]++] = k;
+			}
+
+			// sort each row by column and sum up repeated cells
+			int[] columnIndices = new int[size];
+			double[] values = new double[size];
+			int n = 0;
+			long[] keys = new long[0];
+			for (int i = 0; i < rows; i++) {
+				int start = rowPointers[i];
+				int length = rowPointers[i + 1] - start;
+				rowPointers[i] = n;
+				if (length == 0) {
+					continue;
+				}
+				if (keys.length < length) {
+					keys = new long[length];
+				}
+				for (int t = 0; t < length; t++) {  // column in the upper half, insertion number in the lower half
+					int k = order[start + t];
+					keys[t] = ((long) c[k] << 32) | k;
+				}
+				Arrays.sort(keys, 0, length);
+				int t = 0;
+				while (t < length) {
+					int col = (int) (keys[t] >>> 32);
+					double sum = 0;
+					while (t < length && (int) (keys[t] >>> 32) == col) {
+						sum += v[(int) keys[t]];
+						t++;
+					}
+					if (sum != 0) {
+						columnIndices[n] = col;
+						values[n] = sum;
+						n++;
+					}
+				}
+			}
+			rowPointers[rows] = n;
+			return new SparseMatrix(rows, cols, rowPointers, Arrays.copyOf(columnIndices, n), Arrays.copyOf(values, n));
+		}
+	}
+}
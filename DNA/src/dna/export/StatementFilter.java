@@ -0,0 +1,98 @@
+package dna.export;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import dna.dataStructures.Data;
+import dna.dataStructures.Document;
+import dna.dataStructures.Statement;
+import dna.dataStructures.StatementIndex;
+
+/**
+ * The statement filter of an {@link ExportSetting}, compiled into a predicate. Everything that does not 
+ * depend on the individual statement is worked out once when the filter is created, using the bitmap 
+ * indexes of the data ({@link StatementIndex}): the statements of the statement type are selected, and the 
+ * statements in documents with an excluded author, source, section or type and the statements with 
+ * excluded variable values are removed from the selection with AND NOT operations. Testing a statement then 
+ * only needs a bit look-up and a date comparison. Long text variables are not indexed; excluded values of 
+ * such variables are checked per statement with hash sets. The filter holds no mutable state, so it can be 
+ * applied to the statements by several threads at the same time.
+ */
+public class StatementFilter implements Predicate<Statement> {
+	long start, stop;
+	BitSet selected;  // IDs of the statements that pass all checks except the date range
+	ArrayList<String> variables = new ArrayList<String>();  // long text variables with excluded values
+	ArrayList<HashSet<String>> excludedValues = new ArrayList<HashSet<String>>();
+
+	/**
+	 * Compile the filter of the export settings.
+	 *
+	 * @param exportSetting  The export settings.
+	 * @param data           The data whose documents are checked against the excluded authors, sources etc.
+	 */
+	public StatementFilter(ExportSetting exportSetting, Data data) {
+		int statementTypeId = exportSetting.getStatementType().getId();
+		start = exportSetting.getStartDate().getTime();
+		stop = exportSetting.getStopDate().getTime();
+		StatementIndex index = data.getStatementIndex();
+		selected = index.getStatementType(statementTypeId);
+
+		HashSet<String> authors = new HashSet<String>(exportSetting.getAuthorExclude());
+		HashSet<String> sources = new HashSet<String>(exportSetting.getSourceExclude());
+		HashSet<String> sections = new HashSet<String>(exportSetting.getSectionExclude());
+		HashSet<String> types = new HashSet<String>(exportSetting.getTypeExclude());
+		if (!authors.isEmpty() || !sources.isEmpty() || !sections.isEmpty() || !types.isEmpty()) {
+			ArrayList<Integer> excludedDocuments = new ArrayList<Integer>();
+			for (int i = 0; i < data.getDocuments().size(); i++) {
+				Document d = data.getDocuments().get(i);
+				if (authors.contains(d.getAuthor()) || sources.contains(d.getSource()) 
+						|| sections.contains(d.getSection()) || types.contains(d.getType())) {
+					excludedDocuments.add(d.getId());
+				}
+			}
+			selected.andNot(index.getDocuments(excludedDocuments));
+		}
+
+		Iterator<String> keyIterator = exportSetting.getExcludeValues().keySet().iterator();
+		while (keyIterator.hasNext()) {
+			String key = keyIterator.next();
+			if (exportSetting.getExcludeValues().get(key).isEmpty()) {
+				continue;
+			}
+			String type = exportSetting.getStatementType().getVariables().get(key);
+			HashSet<String> excluded = new HashSet<String>(exportSetting.getExcludeValues().get(key));
+			if (type.equals("long text")) {
+				variables.add(key);
+				excludedValues.add(excluded);
+			} else {
+				boolean numeric = type.equals("boolean") || type.equals("integer");
+				selected.andNot(index.getValues(statementTypeId, key, 
+						value -> excluded.contains(numeric ? String.valueOf(value) : (String) value)));
+			}
+		}
+	}
+
+	/**
+	 * @param s  A statement.
+	 * @return   Whether the statement passes the filter.
+	 */
+	@Override
+	public boolean test(Statement s) {
+		if (!selected.get(s.getId())) {
+			return false;
+		}
+		long time = s.getDate().getTime();
+		if (time < start || time > stop) {
+			return false;
+		}
+		for (int i = 0; i < variables.size(); i++) {
+			if (excludedValues.get(i).contains((String) s.getValues().get(variables.get(i)))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,183 @@
+package dna.export;
+
+/**
+ * A symmetric square matrix of which only the upper triangle, including the diagonal, is stored, row by 
+ * row in a single array. One-mode networks are symmetric, so this needs half the cells of a full matrix. 
+ * Before normalization, one-mode networks hold integer counts, which are stored as {@code int}; other 
+ * values are stored as {@code float}. Either way, a cell takes a quarter of the memory of a cell in a 
+ * {@code double[n][n]} array. Large and dense one-mode networks, for which a {@link SparseMatrix} would 
+ * need more memory, are kept in this form. Float values have about seven significant digits, so the 
+ * exporters write them rounded to float precision.
+ *
+ * The packed upper triangle can be handed over as it is, for example to R: the cells of row i are the 
+ * columns i to n - 1 and start at position i * n - i * (i - 1) / 2.
+ */
+public class SymmetricMatrix {
+	int size;
+	int[] counts;    // used for integer values
+	float[] values;  // used otherwise
+	
+	/**
+	 * Create an empty matrix.
+	 * 
+	 * @param size     The number of rows and columns.
+	 * @param integer  Whether the matrix holds integer values only.
+	 */
+	public SymmetricMatrix(int size, boolean integer) {
+		long cells = (long) size * (size + 1) / 2;
+		if (cells > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A symmetric matrix with " + size + " rows is too large.");
+		}
+		this.size = size;
+		if (integer == true) {
+			counts = new int[(int) cells];
+		} else {
+			values = new float[(int) cells];
+		}
+	}
+	
+	/**
+	 * Store a symmetric sparse matrix in packed form. Integer storage is used if all values are integers.
+	 * Only the upper triangle of the sparse matrix is read.
+	 * 
+	 * @param sparse  A symmetric sparse matrix.
+	 * @return        The packed matrix.
+	 */
+	public static SymmetricMatrix fromSparse(SparseMatrix sparse) {
+		boolean integer = true;
+		for (int p = 0; p < sparse.getNonZeros() && integer == true; p++) {
+			double v = sparse.valueAt(p);
+			integer = v == Math.rint(v) && Math.abs(v) <= Integer.MAX_VALUE;
+		}
+		SymmetricMatrix packed = new SymmetricMatrix(sparse.getRows(), integer);
+		for (int i = 0; i < sparse.getRows(); i++) {
+			for (int p = sparse.rowStart(i); p < sparse.rowEnd(i); p++) {
+				if (sparse.columnAt(p) >= i) {
+					packed.set(i, sparse.columnAt(p), sparse.valueAt(p));
+				}
+			}
+		}
+		return packed;
+	}
+	
+	/**
+	 * Check whether a symmetric sparse matrix needs less memory in packed form. A stored cell of a sparse 
+	 * matrix takes twelve bytes, and both triangles are stored, whereas a packed matrix takes four bytes 
+	 * per cell of the upper triangle, including the zeros.
+	 * 
+	 * @param sparse  A symmetric sparse matrix.
+	 * @return        Whether {@link #fromSparse(SparseMatrix)} would save memory.
+	 */
+	public static boolean isSmaller(SparseMatrix sparse) {
+		long n = sparse.getRows();
+		return 4 * n * (n + 1) / 2 < 12L * sparse.getNonZeros();
+	}
+	
+	private int index(int row, int col) {
+		if (row > col) {
+			int t = row;
+			row = col;
+			col = t;
+		}
+		return (int) ((long) row * size - (long) row * (row - 1) / 2 + (col - row));
+	}
+	
+	/**
+	 * @return  The number of rows and columns.
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * @return  Whether the values are stored as integers.
+	 */
+	public boolean isInteger() {
+		return counts != null;
+	}
+	
+	/**
+	 * @param row  Row index.
+	 * @param col  Column index.
+	 * @return     The value of the cell, which is the same as the value of the cell (col, row).
+	 */
+	public double get(int row, int col) {
+		int k = index(row, col);
+		return counts != null ? counts[k] : values[k];
+	}
+	
+	/**
+	 * Set the cells (row, col) and (col, row). In an integer matrix, the value is rounded.
+	 * 
+	 * @param row    Row index.
+	 * @param col    Column index.
+	 * @param value  The value.
+	 */
+	public void set(int row, int col, double value) {
+		int k = index(row, col);
+		if (counts != null) {
+			counts[k] = (int) Math.round(value);
+		} else {
+			values[k] = (float) value;
+		}
+	}
+	
+	/**
+	 * Write a row of the matrix into an array.
+	 * 
+	 * @param row     Row index.
+	 * @param result  An array with at least as many elements as the matrix has columns.
+	 */
+	public void getRow(int row, double[] result) {
+		for (int j = 0; j < row; j++) {  // lower triangle: column "row" of the rows above
+			result[j] = get(j, row);
+		}
+		int k = index(row, row);
+		for (int j = row; j < size; j++, k++) {  // upper triangle: consecutive cells
+			result[j] = counts != null ? counts[k] : values[k];
+		}
+	}
+	
+	/**
+	 * @return  The packed upper triangle of an integer matrix, or {@code null} if the matrix holds other values.
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+	
+	/**
+	 * @return  The packed upper triangle of a matrix with non-integer values, or {@code null} if the matrix 
+	 *          holds integers.
+	 */
+	public float[] getValues() {
+		return values;
+	}
+	
+	/**
+	 * @return  The matrix in sparse form, with both triangles.
+	 */
+	public SparseMatrix toSparse() {
+		SparseMatrix.Builder builder = new SparseMatrix.Builder(size, size);
+		double[] row = new double[size];
+		for (int i = 0; i < size; i++) {
+			getRow(i, row);
+			for (int j = 0; j < size; j++) {
+				if (row[j] != 0) {
+					builder.add(i, j, row[j]);
+				}
+			}
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * @return  The matrix as a two-dimensional array.
+	 */
+	public double[][] toDense() {
+		double[][] mat = new double[size][size];
+		for (int i = 0; i < size; i++) {
+			getRow(i, mat[i]);
+		}
+		return mat;
+	}
+}
@@ -232,12 +232,8 @@ public class AttributePanel extends JPanel {
 				if (newValue.equals("")) {
 					add = false;
 				}
-				for (int i = 0; i < Dna.data.getAttributes().size(); i++) {
-					AttributeVector av = Dna.data.getAttributes().get(i);
-					if (av.getVariable().equals(variable) && av.getStatementTypeId() == statementTypeId && av.getValue().equals(newValue)) {
-						add = false;
-						break;
-					}
+				if (Dna.data.getAttribute(newValue, variable, statementTypeId) != null) {
+					add = false;
 				}
 				if (add == false) {
 					addButton.setEnabled(false);
@@ -384,7 +380,7 @@ public class AttributePanel extends JPanel {
 			ArrayList<String> vars;
 			String value;
 			int id;
-			AttributeVector avk, av;
+			AttributeVector av;
 			ArrayList<AttributeVector> al = new ArrayList<AttributeVector>(); //TEST
 			for (int i = 0; i < Dna.data.getStatements().size(); i++) {
 				if (progressMonitor.isCanceled()) {
@@ -395,15 +391,7 @@ public class AttributePanel extends JPanel {
 				if (vars.size() > 0) {
 					for (int j = 0; j < vars.size(); j++) {
 						value = (String) Dna.data.getStatements().get(i).getValues().get(vars.get(j));
-						boolean exists = false;
-						for (int k = 0; k < Dna.data.getAttributes().size(); k++) {
-							avk = Dna.data.getAttributes().get(k);
-							if (avk.getValue().equals(value) && avk.getVariable().equals(vars.get(j)) && avk.getStatementTypeId() == statementTypeId) {
-								exists = true;
-								break;
-							}
-						}
-						if (exists == false) {
+						if (Dna.data.getAttribute(value, vars.get(j), statementTypeId) == null) {
 							id = Dna.data.generateNewId("attributes");
 							av = new AttributeVector(id, value, new Color(0, 0, 0), "", "", "", "", statementTypeId, vars.get(j));
 							Dna.data.getAttributes().add(av);
@@ -413,7 +401,7 @@ public class AttributePanel extends JPanel {
 				}
 				progressMonitor.setProgress(i);
 			}
-			Dna.dna.sql.insertAttributeVectors(al);
+			Dna.dna.saveAttributeVectors(al);
 			attributeTableModel.sort();
 		}
 	}
@@ -124,8 +124,7 @@ public class CoderPanel extends JPanel {
 					int dialog = JOptionPane.showConfirmDialog(Dna.dna.gui, message, "Confirmation required", JOptionPane.YES_NO_OPTION);
 					if (dialog == 0) {
 						int id = Dna.data.getActiveCoder();
-						Dna.dna.sql.removeCoder(id);
-						Dna.data.removeCoder(id);
+						Dna.dna.removeCoder(id);
 						coderBox.updateUI();
 						coderBox.setSelectedIndex(0);
 					}
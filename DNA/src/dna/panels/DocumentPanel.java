@@ -3,6 +3,7 @@ package dna.panels;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
 
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenuItem;
@@ -20,6 +21,7 @@ import javax.swing.table.TableRowSorter;
 
 import dna.Dna;
 import dna.dataStructures.Document;
+import dna.dataStructures.TextCache;
 import dna.renderer.DocumentTableModel;
 
 @SuppressWarnings("serial")
@@ -29,6 +31,7 @@ public class DocumentPanel extends JScrollPane {
 	TableRowSorter<DocumentTableModel> sorter;
 	JScrollPane jsp;
 	public JMenuItem menuItemDelete;
+	static final int PREFETCH = 3;  // number of documents above and below the selected one whose texts are prefetched
 	
 	public DocumentPanel() {
 		if(Dna.dna != null) {
@@ -211,6 +214,31 @@ public class DocumentPanel extends JScrollPane {
 		sorter.setRowFilter(documentFilter);
 	}
 	
+	/**
+	 * Read the texts of the documents above and below a row in the background, so that they are in the text
+	 * cache when the user moves through the table. Only needed if the texts are loaded on demand.
+	 * 
+	 * @param row  The selected row of the table.
+	 */
+	void prefetchNeighbours(int row) {
+		if (Dna.dna.sql == null || !Dna.dna.sql.isLazyTexts()) {
+			return;
+		}
+		final ArrayList<Document> neighbours = new ArrayList<Document>();
+		for (int i = Math.max(0, row - PREFETCH); i <= Math.min(documentTable.getRowCount() - 1, row + PREFETCH); i++) {
+			if (i != row) {
+				neighbours.add(documentContainer.get(documentTable.convertRowIndexToModel(i)));
+			}
+		}
+		Thread prefetchThread = new Thread(new Runnable() {
+			public void run() {
+				TextCache.prefetch(neighbours);
+			}
+		}, "Prefetch document texts");
+		prefetchThread.setDaemon(true);
+		prefetchThread.start();
+	}
+	
 	public class DocumentTable extends JTable {
 		
 		public DocumentTable() {
@@ -246,6 +274,7 @@ public class DocumentPanel extends JScrollPane {
 				Dna.dna.gui.textPanel.setDocumentId(id);
 				Dna.dna.gui.textPanel.setDocumentText(text);
 				Dna.dna.gui.textPanel.setEnabled(true);
+				prefetchNeighbours(selectedRow);
 				
 				boolean[] b = Dna.data.getActiveDocumentPermissions(id);
 				if (b[0] == true && b[1] == true) {
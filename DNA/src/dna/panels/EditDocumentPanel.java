@@ -322,7 +322,7 @@ public class EditDocumentPanel extends JPanel {
 		Dna.data.getDocument(documentId).setSection(section);
 		Dna.data.getDocument(documentId).setNotes(notes);
 		
-		Dna.dna.sql.upsertDocument(Dna.data.getDocument(documentId));
+		Dna.dna.updateDocument(Dna.data.getDocument(documentId));
 		
 		Dna.dna.gui.documentPanel.documentContainer.sort();
 		int newModelIndex = Dna.dna.gui.documentPanel.documentContainer.getModelIndexById(document.getId());
@@ -8,13 +8,17 @@ import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Vector;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -27,6 +31,7 @@ import javax.swing.JTextField;
 import javax.swing.JToggleButton;
 import javax.swing.ListSelectionModel;
 import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -35,6 +40,10 @@ import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
 
 import dna.Dna;
+import dna.SqlConnection.FullTextMatch;
+import dna.dataStructures.Document;
+import dna.dataStructures.TextCache;
+import dna.dataStructures.TextIndex;
 
 @SuppressWarnings("serial")
 public class SearchWindow extends JPanel {
@@ -45,8 +54,12 @@ public class SearchWindow extends JPanel {
 	SearchTableModel tableModel;
 	JScrollPane resultScroller;
 	JTextField textField;
-	JButton searchButton, searchRevert;
+	JButton searchButton, searchRevert, moreButton;
+	JToggleButton databaseToggleButton, wordToggleButton;
 	KeyAdapter enter;
+	static final int PAGE = 100;  // number of results per page in database search mode
+	String databaseQuery;  // the last query in database search mode
+	int databaseOffset;  // the number of results shown for the last query in database search mode
 	
 	public SearchWindow() {
 		
@@ -143,6 +156,39 @@ public class SearchWindow extends JPanel {
 			public void actionPerformed(ActionEvent e) {
 				tableModel.clear();
 				textField.setText("");
+				moreButton.setEnabled(false);
+			}
+		});
+		databaseToggleButton = new JToggleButton(new ImageIcon(getClass().getResource("/icons/database.png")));
+		databaseToggleButton.setToolTipText("<html>search the full-text index of the SQLite database instead of using a regular <br> "
+				+ "expression: words, \"quoted phrases\", prefixes like climat*, AND, OR, NOT; <br> "
+				+ "the best matches come first, " + PAGE + " documents at a time</html>");
+		databaseToggleButton.setPreferredSize(new Dimension(18, 18));
+		databaseToggleButton.addActionListener( new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if (databaseToggleButton.isSelected()) {
+					wordToggleButton.setSelected(false);
+				}
+			}
+		});
+		wordToggleButton = new JToggleButton(new ImageIcon(getClass().getResource("/icons/font.png")));
+		wordToggleButton.setToolTipText("<html>search for a keyword or a phrase of whole words instead of a regular <br> "
+				+ "expression, ignoring the case and the punctuation between the words</html>");
+		wordToggleButton.setPreferredSize(new Dimension(18, 18));
+		wordToggleButton.addActionListener( new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if (wordToggleButton.isSelected()) {
+					databaseToggleButton.setSelected(false);
+				}
+			}
+		});
+		moreButton = new JButton(new ImageIcon(getClass().getResource("/icons/resultset_next.png")));
+		moreButton.setToolTipText("show the next " + PAGE + " documents found in the full-text index");
+		moreButton.setPreferredSize(new Dimension(18, 18));
+		moreButton.setEnabled(false);
+		moreButton.addActionListener( new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				new Thread(new DatabaseSearch(false), "Generate search results").start();
 			}
 		});
 		searchButton.addActionListener( new ActionListener() {
@@ -155,6 +201,9 @@ public class SearchWindow extends JPanel {
 		buttonPanel.add(searchRevert);
 		buttonPanel.add(searchButton);
 		buttonPanel.add(textField);
+		buttonPanel.add(wordToggleButton);
+		buttonPanel.add(databaseToggleButton);
+		buttonPanel.add(moreButton);
 		
 		topPanel.add(buttonPanel, BorderLayout.WEST);
 		
@@ -177,11 +226,13 @@ public class SearchWindow extends JPanel {
 				if (selectedRow == -1) {
 					
 				} else {
-					int acRow = tableModel.get(selectedRow).getAcRow();
+					SearchResult sr = tableModel.get(selectedRow);
+					sr.locate();
+					int acRow = sr.getAcRow();
 					Dna.dna.gui.documentPanel.documentTable.changeSelection(acRow, 0, false, false);
 					Dna.dna.gui.textPanel.textWindow.grabFocus();
-					Dna.dna.gui.textPanel.textWindow.setSelectionStart(tableModel.get(selectedRow).getStartCoordinate());
-					Dna.dna.gui.textPanel.textWindow.setSelectionEnd(tableModel.get(selectedRow).getEndCoordinate());
+					Dna.dna.gui.textPanel.textWindow.setSelectionStart(sr.getStartCoordinate());
+					Dna.dna.gui.textPanel.textWindow.setSelectionEnd(sr.getEndCoordinate());
 				}
 			}
 		});
@@ -194,7 +245,14 @@ public class SearchWindow extends JPanel {
 	
 	public void startThread() {
 		try {
-			Thread generateThread = new Thread( new ReportGenerator(), "Generate search results" );
+			Runnable search;
+			if (databaseToggleButton.isSelected()) {
+				search = new DatabaseSearch(true);
+			} else {
+				moreButton.setEnabled(false);
+				search = new ReportGenerator(wordToggleButton.isSelected());
+			}
+			Thread generateThread = new Thread( search, "Generate search results" );
 			generateThread.start();
 		} catch (Exception ex) {
 			System.err.println("There was a problem during full-text search: " + ex.getStackTrace());
@@ -202,9 +260,34 @@ public class SearchWindow extends JPanel {
 		}
 	}
 	
+	/**
+	 * Show a message from a search thread on the event dispatch thread.
+	 * 
+	 * @param message  The message.
+	 */
+	void showMessage(final String message) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				JOptionPane.showMessageDialog(SearchWindow.this, message);
+			}
+		});
+	}
+	
+	/**
+	 * Searches the document texts for a regular expression or, in word mode, for a keyword or phrase of whole 
+	 * words, and adds the matches to the results as they are found.
+	 */
 	class ReportGenerator implements Runnable {
 		
 		ProgressMonitor progressMonitor;
+		boolean words;
+		
+		/**
+		 * @param words  True to search for a keyword or phrase, false to search for a regular expression.
+		 */
+		public ReportGenerator(boolean words) {
+			this.words = words;
+		}
 		
 		public void run() {
 			
@@ -216,38 +299,89 @@ public class SearchWindow extends JPanel {
 					Dna.dna.gui.documentPanel.documentContainer.getRowCount() - 1 );
 			progressMonitor.setMillisToDecideToPopup(1);
 			
-			tableModel.clear();
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					tableModel.clear();
+				}
+			});
 			
 			String searchTerm = textField.getText();
+			Pattern p = null;
+			String error = null;
+			try {
+				if (words == true) {
+					p = TextIndex.phrasePattern(searchTerm);
+					if (p == null) {
+						error = "The search term contains no words.";
+					}
+				} else {
+					p = Pattern.compile(searchTerm, Pattern.CASE_INSENSITIVE);
+				}
+			} catch (PatternSyntaxException e) {
+				error = "Invalid regular expression: " + e.getDescription();
+			}
+			if (error != null) {
+				progressMonitor.close();
+				showMessage(error);
+				searchButton.setEnabled(true);
+				searchRevert.setEnabled(true);
+				textField.addKeyListener(enter);
+				return;
+			}
 			
+			// only documents that contain the words of the search term can match, and keywords and phrases are 
+			// found in the index directly; the index is not built if the texts are too large to be kept in memory
+			HashSet<Integer> candidates = null;
+			HashMap<Integer, ArrayList<int[]>> phraseMatches = null;  // document ID -> {document ID, start, end}
+			if (Dna.dna.sql == null || !Dna.dna.sql.isLazyTexts()) {
+				if (words == true) {
+					phraseMatches = new HashMap<Integer, ArrayList<int[]>>();
+					ArrayList<int[]> found = Dna.data.getTextIndex().findPhrase(searchTerm);
+					for (int i = 0; i < found.size(); i++) {
+						if (!phraseMatches.containsKey(found.get(i)[0])) {
+							phraseMatches.put(found.get(i)[0], new ArrayList<int[]>());
+						}
+						phraseMatches.get(found.get(i)[0]).add(found.get(i));
+					}
+					candidates = new HashSet<Integer>(phraseMatches.keySet());
+				} else {
+					candidates = Dna.data.getTextIndex().getCandidates(searchTerm);
+				}
+			}
+			
+			HashMap<Integer, String> texts = new HashMap<Integer, String>();
 			for (int i = 0; i < Dna.dna.gui.documentPanel.documentContainer.getRowCount(); i++) {
 				progressMonitor.setProgress(i);
 				if (progressMonitor.isCanceled()) {
 					break;
 				}
 				
-				String text = Dna.dna.gui.documentPanel.documentContainer.get(i).getText();
-				Pattern p = Pattern.compile(searchTerm, Pattern.CASE_INSENSITIVE);
-				Matcher m = p.matcher(text);
-				while (m.find()) {
-					Date d = Dna.dna.gui.documentPanel.documentContainer.get(i).getDate();
-					GregorianCalendar date = new GregorianCalendar();
-					date.setTime(d);
-					int start;
-					if (m.start() > 15) {
-						start = m.start() - 15;
-					} else {
-						start = 1;
+				if (i % TextCache.BATCH == 0) {  // read the texts of the next candidates at once
+					ArrayList<Document> batch = new ArrayList<Document>();
+					int end = Math.min(i + TextCache.BATCH, Dna.dna.gui.documentPanel.documentContainer.getRowCount());
+					for (int j = i; j < end; j++) {
+						Document document = Dna.dna.gui.documentPanel.documentContainer.get(j);
+						if (candidates == null || candidates.contains(document.getId())) {
+							batch.add(document);
+						}
+					}
+					texts = TextCache.getTexts(batch);
+				}
+				Document document = Dna.dna.gui.documentPanel.documentContainer.get(i);
+				if (!texts.containsKey(document.getId())) {
+					continue;
+				}
+				String text = texts.get(document.getId());
+				if (phraseMatches != null) {
+					ArrayList<int[]> found = phraseMatches.get(document.getId());
+					for (int j = 0; j < found.size(); j++) {
+						addResult(i, document, text, found.get(j)[1], found.get(j)[2]);
 					}
-					int end;
-					if (m.end() < text.length() - 20) {
-						end = m.end() + 20;
-					} else {
-						end = text.length();
+				} else {
+					Matcher m = p.matcher(text);
+					while (m.find()) {
+						addResult(i, document, text, m.start(), m.end());
 					}
-					String subtext = "..." + text.substring(start, end) + "...";
-					SearchResult sr = new SearchResult(i, Dna.dna.gui.documentPanel.documentContainer.get(i).getTitle(), date, m.start(), m.end(), subtext);
-					tableModel.addSearchResult(sr);
 				}
 				
 			}
@@ -256,6 +390,99 @@ public class SearchWindow extends JPanel {
 			searchRevert.setEnabled(true);
 			textField.addKeyListener(enter);
 		}
+		
+		/**
+		 * Show a match with some text around it.
+		 */
+		private void addResult(int acRow, Document document, String text, int matchStart, int matchEnd) {
+			Date d = document.getDate();
+			GregorianCalendar date = new GregorianCalendar();
+			date.setTime(d);
+			int start;
+			if (matchStart > 15) {
+				start = matchStart - 15;
+			} else {
+				start = 1;
+			}
+			int end;
+			if (matchEnd < text.length() - 20) {
+				end = matchEnd + 20;
+			} else {
+				end = text.length();
+			}
+			String subtext = "..." + text.substring(start, end) + "...";
+			final SearchResult sr = new SearchResult(acRow, document.getTitle(), date, matchStart, matchEnd, subtext);
+			SwingUtilities.invokeLater(new Runnable() {  // show the results as they are found
+				public void run() {
+					tableModel.addSearchResult(sr);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Searches the full-text index of the database and adds the next page of matching documents to the 
+	 * results, best matches first.
+	 */
+	class DatabaseSearch implements Runnable {
+		boolean newQuery;
+		
+		/**
+		 * @param newQuery  True to start a new search with the search term, false to show the next page of 
+		 *                  the previous search.
+		 */
+		public DatabaseSearch(boolean newQuery) {
+			this.newQuery = newQuery;
+		}
+		
+		public void run() {
+			if (Dna.dna.sql == null || !Dna.dna.sql.hasFullTextIndex()) {
+				showMessage("The database has no full-text index. Full-text indexes are available for SQLite databases.");
+				return;
+			}
+			textField.removeKeyListener(enter);
+			searchButton.setEnabled(false);
+			searchRevert.setEnabled(false);
+			moreButton.setEnabled(false);
+			if (newQuery == true) {
+				databaseQuery = textField.getText();
+				databaseOffset = 0;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						tableModel.clear();
+					}
+				});
+			}
+			
+			ArrayList<FullTextMatch> matches = new ArrayList<FullTextMatch>();
+			try {
+				Dna.dna.flushWrites();  // the index must contain the documents that were just changed
+				matches = Dna.dna.sql.searchFullText(databaseQuery, databaseOffset, PAGE);
+			} catch (SQLException e) {
+				showMessage("Invalid full-text query: " + e.getMessage());
+			}
+			databaseOffset = databaseOffset + matches.size();
+			for (int i = 0; i < matches.size(); i++) {
+				FullTextMatch match = matches.get(i);
+				if (Dna.data.getDocument(match.getDocumentId()) == null) {
+					continue;  // not in the document table
+				}
+				int acRow = Dna.dna.gui.documentPanel.documentContainer.getModelIndexById(match.getDocumentId());
+				GregorianCalendar date = new GregorianCalendar();
+				date.setTime(Dna.dna.gui.documentPanel.documentContainer.get(acRow).getDate());
+				final SearchResult sr = new SearchResult(acRow, match.getTitle(), date, match);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						tableModel.addSearchResult(sr);
+					}
+				});
+			}
+			
+			moreButton.setEnabled(matches.size() == PAGE);
+			searchButton.setEnabled(true);
+			searchRevert.setEnabled(true);
+			textField.addKeyListener(enter);
+		}
 	}
 	
 	class SearchResult {
@@ -265,6 +492,34 @@ public class SearchWindow extends JPanel {
 		String articleTitle;
 		GregorianCalendar date;
 		String displayText;
+		FullTextMatch match;  // in database search mode, to find the coordinates when the result is selected
+		
+		/**
+		 * Create a result of the full-text index. The coordinates of the match are found in the document
+		 * text by {@link #locate()} when the result is selected.
+		 */
+		public SearchResult(int acRow, String articleTitle, GregorianCalendar date, FullTextMatch match) {
+			this(acRow, articleTitle, date, -1, -1, "..." + match.getSnippet() + "...");
+			this.match = match;
+		}
+		
+		/**
+		 * Find the coordinates of a full-text index match by looking up its snippet in the document text.
+		 */
+		public void locate() {
+			if (startCoordinate >= 0 || match == null) {
+				return;
+			}
+			String text = Dna.data.getDocument(match.getDocumentId()).getText();
+			int position = text.indexOf(match.getSnippet());
+			if (position < 0 || match.getMatchStart() < 0) {
+				startCoordinate = 0;
+				endCoordinate = 0;
+			} else {
+				startCoordinate = position + match.getMatchStart();
+				endCoordinate = position + match.getMatchEnd();
+			}
+		}
 		
 		public SearchResult(int acRow, String articleTitle, GregorianCalendar date, int startCoordinate, int endCoordinate, String displayText) {
 			this.startCoordinate = startCoordinate;
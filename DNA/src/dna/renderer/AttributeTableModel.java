@@ -107,7 +107,7 @@ public class AttributeTableModel extends AbstractTableModel {
 	}
 	
 	public void clear() {
-		Dna.data.attributes = new ArrayList<AttributeVector>();
+		Dna.data.setAttributes(new ArrayList<AttributeVector>());
 		fireTableDataChanged();
 	}
 	
@@ -94,16 +94,16 @@ public class CoderRelationTableModel extends AbstractTableModel implements Table
 			Dna.data.getCoderById(cr.getOtherCoder()).setName((String) aValue);
 		} else if (columnIndex == 1) {
 			Dna.data.getCoderRelations().get(rowIndex).setViewStatements((boolean) aValue);
-			Dna.dna.sql.updateCoderRelationViewStatements(cr.getId(), (boolean) aValue);
+			Dna.dna.updateCoderRelation(cr);
 		} else if (columnIndex == 2) {
 			Dna.data.getCoderRelations().get(rowIndex).setEditStatements((boolean) aValue);
-			Dna.dna.sql.updateCoderRelationEditStatements(cr.getId(), (boolean) aValue);
+			Dna.dna.updateCoderRelation(cr);
 		} else if (columnIndex == 3) {
 			Dna.data.getCoderRelations().get(rowIndex).setViewDocuments((boolean) aValue);
-			Dna.dna.sql.updateCoderRelationViewDocuments(cr.getId(), (boolean) aValue);
+			Dna.dna.updateCoderRelation(cr);
 		} else if (columnIndex == 4) {
 			Dna.data.getCoderRelations().get(rowIndex).setEditDocuments((boolean) aValue);
-			Dna.dna.sql.updateCoderRelationEditDocuments(cr.getId(), (boolean) aValue);
+			Dna.dna.updateCoderRelation(cr);
 		}
 		
 		TableModelEvent e = new TableModelEvent(this);
@@ -73,12 +73,7 @@ public class DocumentTableModel extends AbstractTableModel {
 	}
 
 	public Document getDocumentByID(int id)	{
-		for(Document doc: Dna.data.getDocuments() ) {
-			if (doc.getId() == id) {
-				return doc;
-			}
-		}
-		return null;
+		return Dna.data.getDocument(id);
 	}
 	
 	//return number of documents in the table
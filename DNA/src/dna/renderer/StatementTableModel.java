@@ -101,14 +101,14 @@ public class StatementTableModel extends AbstractTableModel {
 	
 	@Override
 	public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-		int statementId = Dna.data.getStatements().get(rowIndex).getId();
+		Statement statement = Dna.data.getStatements().get(rowIndex);
 		
 		switch( columnIndex ){
 			case 0: 
-				getByStatementId(statementId).setId((Integer) aValue);
+				Dna.data.statements.update(statement, () -> statement.setId((Integer) aValue));
 				break;
 			case 1: 
-				getByStatementId(statementId).setStatementTypeId((Integer) aValue);
+				Dna.data.statements.update(statement, () -> statement.setStatementTypeId((Integer) aValue));
 				break;
 		}
 	}
@@ -118,12 +118,11 @@ public class StatementTableModel extends AbstractTableModel {
 	}
 	
 	public Statement getByStatementId(int id) throws NullPointerException {
-		for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-			if (Dna.data.getStatements().get(i).getId() == id) {
-				return Dna.data.getStatements().get(i);
-			}
+		Statement s = Dna.data.getStatement(id);
+		if (s == null) {
+			throw new NullPointerException();
 		}
-		throw new NullPointerException();
+		return s;
 	}
 	
 	public int getIndexByStatementId(int id) {
@@ -145,12 +144,7 @@ public class StatementTableModel extends AbstractTableModel {
 	}
 	
 	public boolean containsStatementId(int id) {
-		for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-			if (Dna.data.getStatements().get(i).getId() == id) {
-				return true;
-			}
-		}
-		return false;
+		return Dna.data.getStatement(id) != null;
 	}
 	
 	public void sort() {
@@ -190,23 +184,6 @@ public class StatementTableModel extends AbstractTableModel {
 	}
 	
 	public int getFirstUnusedId() {
-		sort();
-		int unused = 1;
-		boolean accept = false;
-		while (accept == false) {
-			boolean used = false;
-			for (int i = 0; i < Dna.data.getStatements().size(); i++) {
-				if (unused == Dna.data.getStatements().get(i).getId()) {
-					used = true;
-				}
-			}
-			if (used == true) {
-				accept = false;
-				unused++;
-			} else {
-				accept = true;
-			}
-		}
-		return unused;
+		return Dna.data.generateNewId("statements");
 	}
 }